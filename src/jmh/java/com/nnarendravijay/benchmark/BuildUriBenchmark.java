@@ -0,0 +1,74 @@
+package com.nnarendravijay.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import com.nnarendravijay.RestClient;
+import com.nnarendravijay.RestRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.MediaType;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request preparation paths that run on every call without touching the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildUriBenchmark {
+
+  private static final String BASE_URI = "https://localhost:443/base1";
+
+  private RestClient client;
+  private Map<String, String> queryParams;
+  private Map<String, String> headers;
+  private URI uri;
+
+  @Setup
+  public void setup() {
+    client = new RestClient();
+    queryParams = ImmutableMap.of("p1", "v1", "p2", "v2");
+    headers = ImmutableMap.of("Header1", "Value1", "Header2", "Value2");
+    uri = URI.create(BASE_URI);
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.close();
+  }
+
+  @Benchmark
+  public URI buildUri() {
+    return client.buildUri(BASE_URI, "base2/base3", queryParams);
+  }
+
+  @Benchmark
+  public URI buildUriFromTemplate() {
+    return client.buildUri(BASE_URI, "account/{acId}/user/{uId}", queryParams, "123", "456");
+  }
+
+  @Benchmark
+  public RestRequest requestWithHeaders() {
+    return RestRequest.get(uri).accept(MediaType.APPLICATION_JSON_TYPE).headers(headers).build();
+  }
+
+  @Benchmark
+  public int updateClientHeaders() {
+    client.addHeaders(headers);
+    return client.getHeaders().size();
+  }
+}
@@ -0,0 +1,110 @@
+package com.nnarendravijay.benchmark;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal in-process HTTP(S) server for the benchmarks, so numbers reflect the client rather than MockServer.
+ */
+public final class LocalServer implements Closeable {
+
+  public static final String JSON = "{\"param1\":\"value1\",\"param2\":\"value2\"}";
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final String baseUri;
+
+  private LocalServer(HttpServer server, ExecutorService executor, String scheme) {
+    this.server = server;
+    this.executor = executor;
+    this.baseUri = scheme + "://localhost:" + server.getAddress().getPort();
+  }
+
+  public static LocalServer start(boolean secure) throws Exception {
+    // without this the JDK server leaves Nagle on and every small response waits on a delayed ACK
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    InetSocketAddress address = new InetSocketAddress("localhost", 0);
+    HttpServer server;
+    if (secure) {
+      HttpsServer httpsServer = HttpsServer.create(address, 0);
+      httpsServer.setHttpsConfigurator(new HttpsConfigurator(serverSslContext()));
+      server = httpsServer;
+    } else {
+      server = HttpServer.create(address, 0);
+    }
+
+    byte[] json = JSON.getBytes(StandardCharsets.UTF_8);
+    byte[] gzippedJson = gzip(json);
+    server.createContext("/ResourceA", exchange -> respond(exchange, json, null));
+    server.createContext("/Encoded", exchange -> respond(exchange, gzippedJson, "gzip"));
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    server.setExecutor(executor);
+    server.start();
+    return new LocalServer(server, executor, secure ? "https" : "http");
+  }
+
+  public String getBaseUri() {
+    return baseUri;
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private static void respond(HttpExchange exchange, byte[] body, String contentEncoding) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      ByteStreams.copy(in, ByteStreams.nullOutputStream());
+    }
+    int status = "POST".equals(exchange.getRequestMethod()) ? 201 : 200;
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    if (contentEncoding != null) {
+      exchange.getResponseHeaders().add("Content-Encoding", contentEncoding);
+    }
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(data);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static SSLContext serverSslContext() throws Exception {
+    char[] password = "testing".toCharArray();
+    KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+    try (InputStream in = Resources.getResource("keyStore.jks").openStream()) {
+      keyStore.load(in, password);
+    }
+    KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+    keyManagerFactory.init(keyStore, password);
+    SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
+    sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+    return sslContext;
+  }
+}
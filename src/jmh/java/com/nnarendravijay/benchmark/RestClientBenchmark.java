@@ -0,0 +1,86 @@
+package com.nnarendravijay.benchmark;
+
+import com.nnarendravijay.RestClient;
+import com.nnarendravijay.RestClientConfig;
+import com.nnarendravijay.securerestclienttest.ResourceA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end send paths over plain HTTP and TLS, for each connector mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class RestClientBenchmark {
+
+  @Param({"http", "https"})
+  private String transport;
+
+  @Param({"default", "pooled"})
+  private String connector;
+
+  private LocalServer server;
+  private RestClient client;
+  private ResourceA resourceA;
+  private URI resourceUri;
+  private URI encodedUri;
+
+  @Setup
+  public void setup() throws Exception {
+    boolean secure = "https".equals(transport);
+    server = LocalServer.start(secure);
+
+    RestClientConfig config = RestClientConfig.newInstance().pooledConnections("pooled".equals(connector));
+    client = secure ? new RestClient("keyStore.jks", "testing", "sampleAlias", "TLSv1.2", config)
+        : new RestClient(config);
+
+    resourceA = new ResourceA();
+    resourceA.setParam1("value1");
+    resourceA.setParam2("value2");
+    resourceUri = URI.create(server.getBaseUri() + "/ResourceA/1");
+    encodedUri = URI.create(server.getBaseUri() + "/Encoded/1");
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.close();
+    server.close();
+  }
+
+  @Benchmark
+  public ResourceA get() {
+    return client.sendGetRequest(resourceUri, MediaType.APPLICATION_JSON_TYPE).readEntity(ResourceA.class);
+  }
+
+  @Benchmark
+  public int post() {
+    return client.sendPostRequest(resourceA, resourceUri, MediaType.APPLICATION_JSON_TYPE).getStatus();
+  }
+
+  @Benchmark
+  public ResourceA getGzip() {
+    Response response = client.sendGetRequestWithEncoding(encodedUri, MediaType.APPLICATION_JSON_TYPE);
+    return response.readEntity(ResourceA.class);
+  }
+}
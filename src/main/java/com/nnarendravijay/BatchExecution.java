@@ -0,0 +1,103 @@
+package com.nnarendravijay;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Sends a list of requests with at most {@code parallelism} of them in flight. Each completion starts the next
+ * pending request, so no thread is parked waiting for a slot.
+ */
+final class BatchExecution {
+
+  private final List<RestRequest> requests;
+  private final Function<RestRequest, CompletableFuture<Response>> sender;
+  private final BatchResult[] results;
+  private final AtomicInteger next = new AtomicInteger();
+  private final AtomicInteger remaining;
+  private final BlockingQueue<BatchResult> completions = new LinkedBlockingQueue<>();
+  private final CompletableFuture<List<BatchResult>> done = new CompletableFuture<>();
+
+  private BatchExecution(List<RestRequest> requests, Function<RestRequest, CompletableFuture<Response>> sender) {
+    this.requests = requests;
+    this.sender = sender;
+    this.results = new BatchResult[requests.size()];
+    this.remaining = new AtomicInteger(requests.size());
+  }
+
+  static BatchExecution start(List<RestRequest> requests, int parallelism,
+      Function<RestRequest, CompletableFuture<Response>> sender) {
+    BatchExecution execution = new BatchExecution(requests, sender);
+    if (requests.isEmpty()) {
+      execution.done.complete(Arrays.asList(execution.results));
+    }
+    for (int lane = 0; lane < Math.min(parallelism, requests.size()); lane++) {
+      execution.launch();
+    }
+    return execution;
+  }
+
+  /**
+   * Results in the order of the requests, once all of them completed.
+   */
+  CompletableFuture<List<BatchResult>> results() {
+    return done;
+  }
+
+  /**
+   * Results in the order in which the requests completed.
+   */
+  Stream<BatchResult> completions() {
+    return IntStream.range(0, results.length).mapToObj(i -> Uninterruptibles.takeUninterruptibly(completions));
+  }
+
+  private void launch() {
+    while (true) {
+      int index = next.getAndIncrement();
+      if (index >= requests.size()) {
+        return;
+      }
+      CompletableFuture<Response> future;
+      try {
+        future = sender.apply(requests.get(index));
+      } catch (RuntimeException e) {
+        record(index, null, e);
+        continue;
+      }
+      if (!future.isDone()) {
+        future.whenComplete((response, failure) -> {
+          record(index, response, failure);
+          launch();
+        });
+        return;
+      }
+      // completed synchronously, for instance on a direct executor; keep going on this thread
+      try {
+        record(index, future.join(), null);
+      } catch (RuntimeException e) {
+        record(index, null, e);
+      }
+    }
+  }
+
+  private void record(int index, Response response, Throwable failure) {
+    Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause() : failure;
+    BatchResult result = new BatchResult(index, requests.get(index), cause == null ? response : null, cause);
+    results[index] = result;
+    completions.add(result);
+    if (remaining.decrementAndGet() == 0) {
+      done.complete(Arrays.asList(results));
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package com.nnarendravijay;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Outcome of one request of a batch sent through {@link RestClient#sendBatch}. A request that got any HTTP
+ * response, including an error status, succeeded; a request that failed without a response, for example on a
+ * connect timeout, carries the failure instead and does not affect the rest of the batch.
+ */
+public class BatchResult {
+  private final int index;
+  private final RestRequest request;
+  private final Response response;
+  private final Throwable failure;
+
+  BatchResult(int index, RestRequest request, Response response, Throwable failure) {
+    this.index = index;
+    this.request = request;
+    this.response = response;
+    this.failure = failure;
+  }
+
+  /**
+   * Position of the request in the list passed to the batch.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  public RestRequest getRequest() {
+    return request;
+  }
+
+  public boolean isSuccess() {
+    return failure == null;
+  }
+
+  public Response getResponse() {
+    return response;
+  }
+
+  public Throwable getFailure() {
+    return failure;
+  }
+}
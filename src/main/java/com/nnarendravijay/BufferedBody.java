@@ -0,0 +1,79 @@
+package com.nnarendravijay;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A response entity buffered with a memory cap. Bodies up to the cap are held on heap, larger ones are written
+ * to a temporary file that is deleted on {@link #close()}.
+ */
+public class BufferedBody implements Closeable {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final byte[] bytes;
+  private final Path file;
+  private final long size;
+
+  private BufferedBody(byte[] bytes, Path file, long size) {
+    this.bytes = bytes;
+    this.file = file;
+    this.size = size;
+  }
+
+  static BufferedBody read(InputStream in, long maxInMemoryBytes) throws IOException {
+    ByteArrayOutputStream memory = new ByteArrayOutputStream((int) Math.min(maxInMemoryBytes, CHUNK_SIZE));
+    byte[] chunk = new byte[CHUNK_SIZE];
+    int read;
+    while ((read = in.read(chunk)) != -1) {
+      if (memory.size() + read > maxInMemoryBytes) {
+        return spill(in, memory, chunk, read);
+      }
+      memory.write(chunk, 0, read);
+    }
+    return new BufferedBody(memory.toByteArray(), null, memory.size());
+  }
+
+  private static BufferedBody spill(InputStream in, ByteArrayOutputStream memory, byte[] chunk, int pending)
+      throws IOException {
+    Path file = Files.createTempFile("rest-client-body", ".tmp");
+    long size = memory.size();
+    try (OutputStream out = Files.newOutputStream(file)) {
+      memory.writeTo(out);
+      int read = pending;
+      do {
+        out.write(chunk, 0, read);
+        size += read;
+      } while ((read = in.read(chunk)) != -1);
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+    return new BufferedBody(null, file, size);
+  }
+
+  public boolean isInMemory() {
+    return file == null;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public InputStream openStream() throws IOException {
+    return file == null ? new ByteArrayInputStream(bytes) : Files.newInputStream(file);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (file != null) {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.nnarendravijay;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count based circuit breaker over a ring of the last calls to one host. Every transition is made under the
+ * breaker's own lock, which is held only for a few field updates per call.
+ */
+final class CircuitBreaker {
+
+  private final CircuitBreakerPolicy policy;
+  private final boolean[] failed;
+  private final boolean[] slow;
+
+  private HostProtectionStats.CircuitState state = HostProtectionStats.CircuitState.CLOSED;
+  private int next;
+  private int calls;
+  private int failures;
+  private int slowCalls;
+  private long openedAtNanos;
+  private int probesLeft;
+  private int probeSuccesses;
+
+  CircuitBreaker(CircuitBreakerPolicy policy) {
+    this.policy = policy;
+    this.failed = new boolean[policy.getWindowSize()];
+    this.slow = new boolean[policy.getWindowSize()];
+  }
+
+  synchronized boolean tryAcquire() {
+    if (state == HostProtectionStats.CircuitState.OPEN) {
+      if (System.nanoTime() - openedAtNanos < TimeUnit.MILLISECONDS.toNanos(policy.getOpenMillis())) {
+        return false;
+      }
+      state = HostProtectionStats.CircuitState.HALF_OPEN;
+      probesLeft = policy.getHalfOpenCalls();
+      probeSuccesses = 0;
+    }
+    if (state == HostProtectionStats.CircuitState.HALF_OPEN) {
+      if (probesLeft == 0) {
+        return false;
+      }
+      probesLeft--;
+    }
+    return true;
+  }
+
+  synchronized void record(boolean failure, long latencyNanos) {
+    boolean slowCall = latencyNanos > TimeUnit.MILLISECONDS.toNanos(policy.getSlowCallMillis());
+    if (state == HostProtectionStats.CircuitState.HALF_OPEN) {
+      if (failure || slowCall) {
+        open();
+      } else if (++probeSuccesses >= policy.getHalfOpenCalls()) {
+        close();
+      }
+      return;
+    }
+    if (state == HostProtectionStats.CircuitState.OPEN) {
+      return;
+    }
+    if (calls == failed.length) {
+      failures -= failed[next] ? 1 : 0;
+      slowCalls -= slow[next] ? 1 : 0;
+    } else {
+      calls++;
+    }
+    failed[next] = failure;
+    slow[next] = slowCall;
+    failures += failure ? 1 : 0;
+    slowCalls += slowCall ? 1 : 0;
+    next = (next + 1) % failed.length;
+    if (calls >= policy.getMinimumCalls() && (failures >= policy.getFailureRateThreshold() * calls
+        || slowCalls >= policy.getSlowCallRateThreshold() * calls)) {
+      open();
+    }
+  }
+
+  /**
+   * Gives back a probe that ended without an outcome, such as a cancelled hedge.
+   */
+  synchronized void release() {
+    if (state == HostProtectionStats.CircuitState.HALF_OPEN) {
+      probesLeft++;
+    }
+  }
+
+  synchronized HostProtectionStats.CircuitState getState() {
+    return state;
+  }
+
+  synchronized double getFailureRate() {
+    return calls == 0 ? 0 : (double) failures / calls;
+  }
+
+  private void open() {
+    state = HostProtectionStats.CircuitState.OPEN;
+    openedAtNanos = System.nanoTime();
+  }
+
+  private void close() {
+    state = HostProtectionStats.CircuitState.CLOSED;
+    calls = 0;
+    failures = 0;
+    slowCalls = 0;
+    next = 0;
+  }
+}
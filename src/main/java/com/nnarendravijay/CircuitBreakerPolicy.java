@@ -0,0 +1,109 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the per host circuit breaker of a {@link RestClient}. The breaker opens when, over the last
+ * {@code windowSize} calls and once at least {@code minimumCalls} were made, the share of failed calls (no
+ * response or a 5xx) or of slow calls reaches its threshold. While open, calls to the host are rejected with a
+ * {@link RejectedRequestException}; after {@code openMillis} a few probe calls are let through and the breaker
+ * closes again only if all of them succeed.
+ */
+public class CircuitBreakerPolicy {
+
+  private double failureRateThreshold = 0.5;
+  private double slowCallRateThreshold = 1.0;
+  private long slowCallMillis = 5000;
+  private int windowSize = 100;
+  private int minimumCalls = 20;
+  private long openMillis = 5000;
+  private int halfOpenCalls = 5;
+
+  public static CircuitBreakerPolicy newInstance() {
+    return new CircuitBreakerPolicy();
+  }
+
+  public CircuitBreakerPolicy failureRateThreshold(double failureRateThreshold) {
+    Preconditions.checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1,
+        "failureRateThreshold must be between 0 and 1");
+    this.failureRateThreshold = failureRateThreshold;
+    return this;
+  }
+
+  public CircuitBreakerPolicy slowCallRateThreshold(double slowCallRateThreshold) {
+    Preconditions.checkArgument(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1,
+        "slowCallRateThreshold must be between 0 and 1");
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    return this;
+  }
+
+  /**
+   * Calls whose response headers take longer than this count as slow.
+   */
+  public CircuitBreakerPolicy slowCallMillis(long slowCallMillis) {
+    Preconditions.checkArgument(slowCallMillis > 0, "slowCallMillis must be positive");
+    this.slowCallMillis = slowCallMillis;
+    return this;
+  }
+
+  public CircuitBreakerPolicy windowSize(int windowSize) {
+    Preconditions.checkArgument(windowSize > 0, "windowSize must be positive");
+    this.windowSize = windowSize;
+    return this;
+  }
+
+  public CircuitBreakerPolicy minimumCalls(int minimumCalls) {
+    Preconditions.checkArgument(minimumCalls > 0, "minimumCalls must be positive");
+    this.minimumCalls = minimumCalls;
+    return this;
+  }
+
+  public CircuitBreakerPolicy openMillis(long openMillis) {
+    Preconditions.checkArgument(openMillis >= 0, "openMillis cannot be negative");
+    this.openMillis = openMillis;
+    return this;
+  }
+
+  /**
+   * Number of probe calls let through, and required to succeed, before an open breaker closes.
+   */
+  public CircuitBreakerPolicy halfOpenCalls(int halfOpenCalls) {
+    Preconditions.checkArgument(halfOpenCalls > 0, "halfOpenCalls must be positive");
+    this.halfOpenCalls = halfOpenCalls;
+    return this;
+  }
+
+  public double getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  public double getSlowCallRateThreshold() {
+    return slowCallRateThreshold;
+  }
+
+  public long getSlowCallMillis() {
+    return slowCallMillis;
+  }
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  public int getMinimumCalls() {
+    return minimumCalls;
+  }
+
+  public long getOpenMillis() {
+    return openMillis;
+  }
+
+  public int getHalfOpenCalls() {
+    return halfOpenCalls;
+  }
+
+  CircuitBreakerPolicy copy() {
+    return newInstance().failureRateThreshold(failureRateThreshold).slowCallRateThreshold(slowCallRateThreshold)
+        .slowCallMillis(slowCallMillis).windowSize(windowSize).minimumCalls(minimumCalls).openMillis(openMillis)
+        .halfOpenCalls(halfOpenCalls);
+  }
+}
@@ -0,0 +1,238 @@
+package com.nnarendravijay;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, in-flight and byte counters for a {@link RestClient}, recorded by client filters registered in
+ * {@code createClientBuilder()}. Latency is measured up to the arrival of the response headers, which is the
+ * time to first byte as seen by the client. Read the numbers with {@link #snapshot()}.
+ */
+public class ClientMetrics implements ClientRequestFilter, ClientResponseFilter, WriterInterceptor {
+
+  private static final String ATTEMPT_PROPERTY = ClientMetrics.class.getName() + ".attempt";
+  private static final String UNKNOWN_HOST = "unknown";
+  private static final int STATUS_CLASSES = 6;
+
+  private final ConcurrentMap<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    Object property = requestContext.getProperty(ATTEMPT_PROPERTY);
+    Attempt attempt = property == null ? new Attempt() : (Attempt) property;
+    if (property == null) {
+      requestContext.setProperty(ATTEMPT_PROPERTY, attempt);
+    }
+    attempt.start(host(requestContext.getUri()));
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+    Object property = requestContext.getProperty(ATTEMPT_PROPERTY);
+    if (property == null || !((Attempt) property).release()) {
+      return;
+    }
+    Attempt attempt = (Attempt) property;
+    attempt.hostMetrics.method(requestContext.getMethod())[responseContext.getStatus() / 100 % STATUS_CLASSES]
+        .record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - attempt.startNanos));
+    if (responseContext.hasEntity()) {
+      responseContext.setEntityStream(
+          new CountingInputStream(responseContext.getEntityStream(), attempt.hostMetrics.bytesIn));
+    }
+  }
+
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+    Object attempt = context.getProperty(ATTEMPT_PROPERTY);
+    if (attempt != null && ((Attempt) attempt).hostMetrics != null) {
+      context.setOutputStream(
+          new CountingOutputStream(context.getOutputStream(), ((Attempt) attempt).hostMetrics.bytesOut));
+    }
+    context.proceed();
+  }
+
+  /**
+   * Tracks one attempt sent through {@code invocation}, so its outcome can be reported to {@link #failed} or
+   * {@link #cancelled} even when it never reaches the response filter.
+   */
+  Attempt track(Invocation invocation) {
+    Attempt attempt = new Attempt();
+    invocation.property(ATTEMPT_PROPERTY, attempt);
+    return attempt;
+  }
+
+  /**
+   * Records an attempt that failed without a response, such as a connect or read failure, under status class 0.
+   * Only an attempt the request filter counted as in flight, and that no response released yet, leaves the
+   * in-flight gauge.
+   */
+  void failed(Attempt attempt, URI uri, String method, long startNanos) {
+    if (attempt.release()) {
+      attempt.hostMetrics.method(method)[0].record(
+          TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - attempt.startNanos));
+    } else if (attempt.isUnsent()) {
+      host(uri).method(method)[0].record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+  }
+
+  /**
+   * Takes a cancelled attempt out of the in-flight gauge without recording it.
+   */
+  void cancelled(Attempt attempt) {
+    attempt.cancel();
+  }
+
+  public MetricsSnapshot snapshot() {
+    List<MetricsSnapshot.HostSnapshot> hostSnapshots = new ArrayList<>();
+    for (Map.Entry<String, HostMetrics> host : hosts.entrySet()) {
+      List<MetricsSnapshot.LatencySnapshot> latencies = new ArrayList<>();
+      for (Map.Entry<String, LatencyHistogram[]> method : host.getValue().methods.entrySet()) {
+        LatencyHistogram[] byStatusClass = method.getValue();
+        for (int statusClass = 0; statusClass < STATUS_CLASSES; statusClass++) {
+          if (byStatusClass[statusClass].getCount() > 0) {
+            latencies.add(
+                new MetricsSnapshot.LatencySnapshot(method.getKey(), statusClass, byStatusClass[statusClass]));
+          }
+        }
+      }
+      HostMetrics metrics = host.getValue();
+      hostSnapshots.add(new MetricsSnapshot.HostSnapshot(host.getKey(), metrics.inFlight.sum(), metrics.bytesIn.sum(),
+          metrics.bytesOut.sum(), latencies));
+    }
+    return new MetricsSnapshot(hostSnapshots);
+  }
+
+  private HostMetrics host(URI uri) {
+    String host = uri.getHost() == null ? UNKNOWN_HOST : uri.getHost();
+    HostMetrics metrics = hosts.get(host);
+    return metrics != null ? metrics : hosts.computeIfAbsent(host, h -> new HostMetrics());
+  }
+
+  /**
+   * One attempt: new, then in flight once the request filter counted it, then released exactly once by its
+   * response, failure or cancellation.
+   */
+  static final class Attempt {
+    private static final int NEW = 0;
+    private static final int IN_FLIGHT = 1;
+    private static final int RELEASED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(NEW);
+    private volatile HostMetrics hostMetrics;
+    private volatile long startNanos;
+
+    private void start(HostMetrics metrics) {
+      hostMetrics = metrics;
+      startNanos = System.nanoTime();
+      if (state.compareAndSet(NEW, IN_FLIGHT)) {
+        metrics.inFlight.increment();
+      }
+    }
+
+    private boolean release() {
+      if (state.compareAndSet(IN_FLIGHT, RELEASED)) {
+        hostMetrics.inFlight.decrement();
+        return true;
+      }
+      return false;
+    }
+
+    private void cancel() {
+      // a request filter running after the cancellation must not count it any more
+      if (!state.compareAndSet(NEW, RELEASED)) {
+        release();
+      }
+    }
+
+    private boolean isUnsent() {
+      return state.get() == NEW;
+    }
+  }
+
+  private static final class HostMetrics {
+    private final ConcurrentMap<String, LatencyHistogram[]> methods = new ConcurrentHashMap<>();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    private LatencyHistogram[] method(String method) {
+      LatencyHistogram[] histograms = methods.get(method);
+      return histograms != null ? histograms : methods.computeIfAbsent(method, m -> newHistograms());
+    }
+
+    private static LatencyHistogram[] newHistograms() {
+      LatencyHistogram[] histograms = new LatencyHistogram[STATUS_CLASSES];
+      for (int i = 0; i < STATUS_CLASSES; i++) {
+        histograms[i] = new LatencyHistogram();
+      }
+      return histograms;
+    }
+  }
+
+  private static final class CountingInputStream extends FilterInputStream {
+    private final LongAdder counter;
+
+    private CountingInputStream(InputStream in, LongAdder counter) {
+      super(in);
+      this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        counter.increment();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        counter.add(read);
+      }
+      return read;
+    }
+  }
+
+  private static final class CountingOutputStream extends FilterOutputStream {
+    private final LongAdder counter;
+
+    private CountingOutputStream(OutputStream out, LongAdder counter) {
+      super(out);
+      this.counter = counter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      counter.increment();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      counter.add(len);
+    }
+  }
+}
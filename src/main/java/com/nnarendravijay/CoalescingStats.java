@@ -0,0 +1,50 @@
+package com.nnarendravijay;
+
+/**
+ * Counters of a {@link RestClient} with request coalescing, see {@link RequestCoalescer}.
+ */
+public class CoalescingStats {
+  private final long sent;
+  private final long collapsed;
+  private final long fallbacks;
+
+  CoalescingStats(long sent, long collapsed, long fallbacks) {
+    this.sent = sent;
+    this.collapsed = collapsed;
+    this.fallbacks = fallbacks;
+  }
+
+  /**
+   * Coalescable requests that went to the server because no identical request was in flight.
+   */
+  public long getSent() {
+    return sent;
+  }
+
+  /**
+   * Requests answered with the response of an identical request already in flight.
+   */
+  public long getCollapsed() {
+    return collapsed;
+  }
+
+  /**
+   * Requests that waited for an identical request which then failed, and so were sent on their own.
+   */
+  public long getFallbacks() {
+    return fallbacks;
+  }
+
+  /**
+   * Share of coalescable requests that did not reach the server, from 0.0 to 1.0.
+   */
+  public double getCollapseRatio() {
+    long total = sent + collapsed + fallbacks;
+    return total == 0 ? 0 : (double) collapsed / total;
+  }
+
+  @Override
+  public String toString() {
+    return "CoalescingStats{sent=" + sent + ", collapsed=" + collapsed + ", fallbacks=" + fallbacks + "}";
+  }
+}
@@ -0,0 +1,275 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.glassfish.jersey.uri.UriComponent;
+
+import javax.ws.rs.core.UriBuilder;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A URI template parsed once and expanded many times, with the same output as
+ * {@code UriBuilder.fromUri(template).queryParam(...).build(pathParams, true)}. Templates whose variables are all
+ * plain {@code {name}} path variables and whose literals need no encoding are expanded directly into a single
+ * buffer; anything else, such as regex variables or variables outside the path, is expanded by a copy of a
+ * parsed {@link UriBuilder}. Instances are immutable and shared through {@link #compile(String)}.
+ */
+public final class CompiledUriTemplate {
+
+  private static final int MAX_CACHED_TEMPLATES = 1024;
+  private static final int ESTIMATED_VALUE_LENGTH = 16;
+  private static final Cache<String, CompiledUriTemplate> TEMPLATES = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_TEMPLATES)
+      .build();
+
+  private static final BitSet UNRESERVED = chars("-._~");
+  private static final BitSet PATH_LITERAL = chars("-._~!$&'()*+,;=:@/");
+  private static final BitSet QUERY_LITERAL = chars("-._~!$&'()*+,;=:@/?");
+  private static final BitSet NAME = chars("-._");
+
+  private final String template;
+  private final UriBuilder prototype;
+  private final String[] literals;
+  private final int[] variables;
+  private final int variableCount;
+  private final List<String> names;
+  private final boolean hasQuery;
+  private final int estimatedLength;
+
+  private CompiledUriTemplate(String template) {
+    this.template = template;
+    List<String> literalParts = new ArrayList<>();
+    List<Integer> variableIndexes = new ArrayList<>();
+    List<String> variableNames = new ArrayList<>();
+    boolean simple = parse(template, literalParts, variableIndexes, variableNames);
+    if (simple) {
+      this.prototype = null;
+      this.literals = literalParts.toArray(new String[literalParts.size()]);
+      this.variables = variableIndexes.stream().mapToInt(Integer::intValue).toArray();
+      this.variableCount = variableNames.size();
+      this.names = variableNames;
+    } else {
+      this.prototype = UriBuilder.fromUri(template);
+      this.literals = null;
+      this.variables = null;
+      this.variableCount = 0;
+      this.names = null;
+    }
+    this.hasQuery = template.indexOf('?') >= 0;
+    this.estimatedLength = template.length() + ESTIMATED_VALUE_LENGTH * variableIndexes.size();
+  }
+
+  /**
+   * Returns the compiled form of {@code template}, parsing it only the first time it is seen.
+   */
+  public static CompiledUriTemplate compile(String template) {
+    Preconditions.checkNotNull(template, "template cannot be null");
+    try {
+      return TEMPLATES.get(template, () -> new CompiledUriTemplate(template));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalArgumentException(cause);
+    }
+  }
+
+  public String getTemplate() {
+    return template;
+  }
+
+  /**
+   * Fills the path variables, in order of first appearance, and appends {@code queryParams} to the query.
+   * Values are percent encoded, including any {@code /}.
+   */
+  public URI expand(Map<String, String> queryParams, Object... pathParams) {
+    if (prototype != null || !isSimple(queryParams)) {
+      return fallback(queryParams, pathParams);
+    }
+    String[] values = new String[variableCount];
+    for (int i = 0; i < variableCount; i++) {
+      Object value = pathParams == null || i >= pathParams.length ? null : pathParams[i];
+      if (value == null) {
+        throw new IllegalArgumentException("The template variable '" + names.get(i) + "' has no value");
+      }
+      values[i] = encodePathValue(value.toString());
+    }
+
+    StringBuilder uri = new StringBuilder(estimatedLength);
+    for (int i = 0; i < literals.length; i++) {
+      uri.append(literals[i]);
+      if (i < variables.length) {
+        uri.append(values[variables[i]]);
+      }
+    }
+    if (queryParams != null && !queryParams.isEmpty()) {
+      char separator = hasQuery ? '&' : '?';
+      for (Map.Entry<String, String> param : queryParams.entrySet()) {
+        uri.append(separator);
+        appendQueryComponent(uri, param.getKey());
+        uri.append('=');
+        appendQueryComponent(uri, param.getValue());
+        separator = '&';
+      }
+    }
+    return URI.create(uri.toString());
+  }
+
+  private URI fallback(Map<String, String> queryParams, Object... pathParams) {
+    UriBuilder builder = prototype != null ? prototype.clone() : UriBuilder.fromUri(template);
+    if (queryParams != null) {
+      for (Map.Entry<String, String> param : queryParams.entrySet()) {
+        builder.queryParam(param.getKey(), param.getValue());
+      }
+    }
+    return builder.build(pathParams, true);
+  }
+
+  /**
+   * Splits a template of the form {@code scheme://authority/path?query} into literals and variables, returning
+   * {@code false} when it needs the general purpose parser.
+   */
+  private static boolean parse(String template, List<String> literals, List<Integer> variables,
+      List<String> names) {
+    int schemeEnd = template.indexOf("://");
+    if (schemeEnd <= 0 || template.indexOf('#') >= 0) {
+      return false;
+    }
+    int pathStart = template.indexOf('/', schemeEnd + 3);
+    if (pathStart < 0) {
+      return false;
+    }
+    int queryStart = template.indexOf('?');
+    int pathEnd = queryStart < 0 ? template.length() : queryStart;
+    if (queryStart >= 0 && (queryStart < pathStart || queryStart == template.length() - 1)
+        || !isLiteral(template, 0, pathStart, QUERY_LITERAL, true)
+        || !isLiteral(template, pathEnd, template.length(), QUERY_LITERAL, false)) {
+      return false;
+    }
+
+    int literalStart = 0;
+    int i = pathStart;
+    while (i < pathEnd) {
+      char c = template.charAt(i);
+      if (c == '{') {
+        int close = template.indexOf('}', i);
+        if (close < 0 || close > pathEnd || !isName(template, i + 1, close)) {
+          return false;
+        }
+        String name = template.substring(i + 1, close);
+        int index = names.indexOf(name);
+        if (index < 0) {
+          index = names.size();
+          names.add(name);
+        }
+        literals.add(template.substring(literalStart, i));
+        variables.add(index);
+        i = close + 1;
+        literalStart = i;
+      } else if (isAllowed(c, PATH_LITERAL)) {
+        i++;
+      } else {
+        return false;
+      }
+    }
+    literals.add(template.substring(literalStart));
+    return true;
+  }
+
+  private static boolean isLiteral(String value, int start, int end, BitSet allowed, boolean authority) {
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (!isAllowed(c, allowed) && !(authority && c == '[' || authority && c == ']')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isName(String value, int start, int end) {
+    if (start == end) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (!isAllowed(value.charAt(i), NAME)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Query parameters that could be read as templates, that are not ASCII or that are null go through the general
+   * parser, which also reports the null ones.
+   */
+  private static boolean isSimple(Map<String, String> queryParams) {
+    if (queryParams == null) {
+      return true;
+    }
+    for (Map.Entry<String, String> param : queryParams.entrySet()) {
+      if (!isPlainQueryComponent(param.getKey()) || !isPlainQueryComponent(param.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPlainQueryComponent(String value) {
+    if (value == null) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '{' || c == '}' || c > 0x7e) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String encodePathValue(String value) {
+    return isUnreserved(value) ? value : UriComponent.encode(value, UriComponent.Type.PATH_SEGMENT);
+  }
+
+  private static void appendQueryComponent(StringBuilder uri, String value) {
+    if (isUnreserved(value)) {
+      uri.append(value);
+    } else {
+      uri.append(UriComponent.contextualEncode(value, UriComponent.Type.QUERY_PARAM));
+    }
+  }
+
+  private static boolean isUnreserved(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (!isAllowed(value.charAt(i), UNRESERVED)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAllowed(char c, BitSet allowed) {
+    return c < 128 && allowed.get(c);
+  }
+
+  private static BitSet chars(String extra) {
+    BitSet set = new BitSet(128);
+    set.set('a', 'z' + 1);
+    set.set('A', 'Z' + 1);
+    set.set('0', '9' + 1);
+    for (int i = 0; i < extra.length(); i++) {
+      set.set(extra.charAt(i));
+    }
+    return set;
+  }
+
+  @Override
+  public String toString() {
+    return template;
+  }
+}
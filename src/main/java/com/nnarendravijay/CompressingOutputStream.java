@@ -0,0 +1,156 @@
+package com.nnarendravijay;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Holds back the first {@code threshold} bytes of a request body. Smaller bodies are written as is; once the
+ * threshold is crossed the {@code Content-Encoding} header is set, before anything reaches the connection, and
+ * the body is gzip or deflate encoded with a pooled {@link Deflater}.
+ */
+final class CompressingOutputStream extends OutputStream {
+
+  static final String GZIP = "gzip";
+  static final String DEFLATE = "deflate";
+
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final OutputStream out;
+  private final MultivaluedMap<String, Object> headers;
+  private final String encoding;
+  private final int threshold;
+  private final byte[] single = new byte[1];
+
+  private ByteArrayOutputStream pending;
+  private DeflaterPool.Compressor compressor;
+  private boolean finished;
+
+  CompressingOutputStream(OutputStream out, MultivaluedMap<String, Object> headers, String encoding, int threshold) {
+    this.out = out;
+    this.headers = headers;
+    this.encoding = encoding;
+    this.threshold = threshold;
+    this.pending = new ByteArrayOutputStream(Math.min(threshold, 8192) + 1);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    single[0] = (byte) b;
+    write(single, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (compressor != null) {
+      compress(b, off, len);
+    } else if (pending.size() + len <= threshold) {
+      pending.write(b, off, len);
+    } else {
+      startCompression();
+      compress(b, off, len);
+    }
+  }
+
+  /**
+   * Starts compressing straight away, for when the {@code Content-Encoding} header was already sent.
+   */
+  void start() throws IOException {
+    if (compressor == null) {
+      startCompression();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (compressor != null) {
+      out.flush();
+    }
+  }
+
+  /**
+   * Writes whatever is still held back, plus the gzip trailer if compressing, and returns the deflater to its
+   * pool. Safe to call more than once.
+   */
+  void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    if (compressor == null) {
+      pending.writeTo(out);
+      pending = null;
+      return;
+    }
+    try {
+      Deflater deflater = compressor.deflater;
+      deflater.finish();
+      while (!deflater.finished()) {
+        drain();
+      }
+      if (GZIP.equals(encoding)) {
+        writeIntLe(compressor.crc.getValue());
+        writeIntLe(deflater.getBytesRead());
+      }
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * Returns the deflater to its pool without writing anything, for when the body could not be written.
+   */
+  void release() {
+    if (compressor != null) {
+      compressor.close();
+      compressor = null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    out.close();
+  }
+
+  private void startCompression() throws IOException {
+    headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+    headers.remove(HttpHeaders.CONTENT_LENGTH);
+    compressor = (GZIP.equals(encoding) ? DeflaterPool.GZIP : DeflaterPool.DEFLATE).borrow();
+    if (GZIP.equals(encoding)) {
+      out.write(GZIP_HEADER);
+    }
+    byte[] held = pending.toByteArray();
+    pending = null;
+    compress(held, 0, held.length);
+  }
+
+  private void compress(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return;
+    }
+    compressor.crc.update(b, off, len);
+    Deflater deflater = compressor.deflater;
+    deflater.setInput(b, off, len);
+    while (!deflater.needsInput()) {
+      drain();
+    }
+  }
+
+  private void drain() throws IOException {
+    int count = compressor.deflater.deflate(compressor.buffer, 0, compressor.buffer.length);
+    if (count > 0) {
+      out.write(compressor.buffer, 0, count);
+    }
+  }
+
+  private void writeIntLe(long value) throws IOException {
+    out.write((int) (value & 0xff));
+    out.write((int) ((value >> 8) & 0xff));
+    out.write((int) ((value >> 16) & 0xff));
+    out.write((int) ((value >> 24) & 0xff));
+  }
+}
@@ -0,0 +1,95 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the per host adaptive concurrency limit of a {@link RestClient}. The limit follows AIMD: it grows
+ * by about one for every limit's worth of calls that succeed while the limit is in use, and is multiplied by
+ * {@code backoffRatio} whenever a call fails without a response, is answered with 429, 503 or 504, or takes
+ * longer than {@code latencyThresholdMillis}. Calls over the limit wait up to {@code maxQueueWaitMillis} for a
+ * slot and are then rejected with a {@link RejectedRequestException}; async calls wait on their future rather
+ * than a thread.
+ */
+public class ConcurrencyLimitPolicy {
+
+  private int initialLimit = 20;
+  private int minLimit = 1;
+  private int maxLimit = 200;
+  private double backoffRatio = 0.9;
+  private long latencyThresholdMillis = 2000;
+  private long maxQueueWaitMillis;
+
+  public static ConcurrencyLimitPolicy newInstance() {
+    return new ConcurrencyLimitPolicy();
+  }
+
+  public ConcurrencyLimitPolicy initialLimit(int initialLimit) {
+    Preconditions.checkArgument(initialLimit > 0, "initialLimit must be positive");
+    this.initialLimit = initialLimit;
+    return this;
+  }
+
+  public ConcurrencyLimitPolicy minLimit(int minLimit) {
+    Preconditions.checkArgument(minLimit > 0, "minLimit must be positive");
+    this.minLimit = minLimit;
+    return this;
+  }
+
+  public ConcurrencyLimitPolicy maxLimit(int maxLimit) {
+    Preconditions.checkArgument(maxLimit > 0, "maxLimit must be positive");
+    this.maxLimit = maxLimit;
+    return this;
+  }
+
+  public ConcurrencyLimitPolicy backoffRatio(double backoffRatio) {
+    Preconditions.checkArgument(backoffRatio > 0 && backoffRatio < 1, "backoffRatio must be between 0 and 1");
+    this.backoffRatio = backoffRatio;
+    return this;
+  }
+
+  public ConcurrencyLimitPolicy latencyThresholdMillis(long latencyThresholdMillis) {
+    Preconditions.checkArgument(latencyThresholdMillis > 0, "latencyThresholdMillis must be positive");
+    this.latencyThresholdMillis = latencyThresholdMillis;
+    return this;
+  }
+
+  /**
+   * How long a call waits for a slot once the limit is reached. Zero, the default, fails fast.
+   */
+  public ConcurrencyLimitPolicy maxQueueWaitMillis(long maxQueueWaitMillis) {
+    Preconditions.checkArgument(maxQueueWaitMillis >= 0, "maxQueueWaitMillis cannot be negative");
+    this.maxQueueWaitMillis = maxQueueWaitMillis;
+    return this;
+  }
+
+  public int getInitialLimit() {
+    return initialLimit;
+  }
+
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public double getBackoffRatio() {
+    return backoffRatio;
+  }
+
+  public long getLatencyThresholdMillis() {
+    return latencyThresholdMillis;
+  }
+
+  public long getMaxQueueWaitMillis() {
+    return maxQueueWaitMillis;
+  }
+
+  ConcurrencyLimitPolicy copy() {
+    Preconditions.checkArgument(minLimit <= initialLimit && initialLimit <= maxLimit,
+        "initialLimit must be between minLimit and maxLimit");
+    return newInstance().initialLimit(initialLimit).minLimit(minLimit).maxLimit(maxLimit).backoffRatio(backoffRatio)
+        .latencyThresholdMillis(latencyThresholdMillis).maxQueueWaitMillis(maxQueueWaitMillis);
+  }
+}
@@ -0,0 +1,160 @@
+package com.nnarendravijay;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit for one host. Acquiring a slot is a CAS on the in-flight count; the monitor guards
+ * limit updates and the callers queued for a slot. Async callers queue a future instead, which a released slot
+ * is handed to directly.
+ */
+final class ConcurrencyLimiter {
+
+  private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-client-concurrency-limit").build());
+
+  private final ConcurrencyLimitPolicy policy;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final Queue<CompletableFuture<Boolean>> queued = new ConcurrentLinkedQueue<>();
+  private volatile double limit;
+
+  ConcurrencyLimiter(ConcurrencyLimitPolicy policy) {
+    this.policy = policy;
+    this.limit = policy.getInitialLimit();
+  }
+
+  boolean acquire() {
+    if (tryAcquire()) {
+      return true;
+    }
+    long waitNanos = TimeUnit.MILLISECONDS.toNanos(policy.getMaxQueueWaitMillis());
+    if (waitNanos <= 0) {
+      return false;
+    }
+    long deadline = System.nanoTime() + waitNanos;
+    waiting.incrementAndGet();
+    try {
+      synchronized (this) {
+        while (!tryAcquire()) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return false;
+          }
+          TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      waiting.decrementAndGet();
+    }
+  }
+
+  /**
+   * Like {@link #acquire()} without parking a thread: completes with true once a slot is free, or with false
+   * after {@code maxQueueWaitMillis}. Cancelling the future gives up its place in the queue.
+   */
+  CompletableFuture<Boolean> acquireAsync() {
+    if (tryAcquire()) {
+      return CompletableFuture.completedFuture(Boolean.TRUE);
+    }
+    long waitMillis = policy.getMaxQueueWaitMillis();
+    if (waitMillis <= 0) {
+      return CompletableFuture.completedFuture(Boolean.FALSE);
+    }
+    CompletableFuture<Boolean> slot = new CompletableFuture<>();
+    queued.add(slot);
+    ScheduledFuture<?> timeout = TIMER.schedule(() -> slot.complete(Boolean.FALSE), waitMillis,
+        TimeUnit.MILLISECONDS);
+    slot.whenComplete((granted, failure) -> {
+      timeout.cancel(false);
+      if (!Boolean.TRUE.equals(granted)) {
+        queued.remove(slot);
+      }
+    });
+    // a slot freed while this one was being queued
+    handOff();
+    return slot;
+  }
+
+  /**
+   * Frees the slot and adjusts the limit: a dropped call backs it off, a successful one grows it when the
+   * limit was actually in use.
+   */
+  void release(boolean dropped) {
+    int before = inFlight.getAndDecrement();
+    synchronized (this) {
+      if (dropped) {
+        limit = Math.max(policy.getMinLimit(), limit * policy.getBackoffRatio());
+      } else if (before * 2 >= limit) {
+        limit = Math.min(policy.getMaxLimit(), limit + 1 / limit);
+      }
+      if (waiting.get() > 0) {
+        notifyAll();
+      }
+    }
+    handOff();
+  }
+
+  /**
+   * Frees the slot without counting the call, for calls that ended without an outcome.
+   */
+  void cancel() {
+    inFlight.decrementAndGet();
+    if (waiting.get() > 0) {
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+    handOff();
+  }
+
+  int getLimit() {
+    return (int) limit;
+  }
+
+  int getInFlight() {
+    return inFlight.get();
+  }
+
+  boolean isDrop(int status, long latencyNanos) {
+    return status == 429 || status == 503 || status == 504
+        || latencyNanos > TimeUnit.MILLISECONDS.toNanos(policy.getLatencyThresholdMillis());
+  }
+
+  /**
+   * Hands free slots to queued async callers, taking each slot before completing its future so it cannot be
+   * taken twice. A slot taken for a caller that already gave up goes back.
+   */
+  private void handOff() {
+    while (!queued.isEmpty() && tryAcquire()) {
+      CompletableFuture<Boolean> next = queued.poll();
+      if (next == null || !next.complete(Boolean.TRUE)) {
+        inFlight.decrementAndGet();
+      }
+    }
+  }
+
+  private boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= (int) limit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package com.nnarendravijay;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keep-alive connection pool backing the Apache connector of a pooled {@link RestClient}.
+ */
+class ConnectionPool implements Closeable {
+
+  private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-client-pool-evictor").build());
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final RequestConfig requestConfig;
+  private final ScheduledFuture<?> evictionTask;
+  private final long idleTimeoutMillis;
+
+  ConnectionPool(RestClientConfig config, SSLContext sslContext) {
+    SSLConnectionSocketFactory sslSocketFactory = sslContext == null
+        ? SSLConnectionSocketFactory.getSocketFactory()
+        : new SSLConnectionSocketFactory(sslContext, SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER);
+    Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .register("https", sslSocketFactory)
+        .build();
+
+    connectionManager = new PoolingHttpClientConnectionManager(registry, null, null, null,
+        config.getConnectionTimeToLiveMillis(), TimeUnit.MILLISECONDS);
+    connectionManager.setMaxTotal(config.getMaxTotalConnections());
+    connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+    for (Map.Entry<URI, Integer> entry : config.getRouteConnectionLimits().entrySet()) {
+      connectionManager.setMaxPerRoute(toRoute(entry.getKey()), entry.getValue());
+    }
+
+    requestConfig = RequestConfig.custom()
+        .setConnectionRequestTimeout(config.getConnectionLeaseTimeoutMillis())
+        .build();
+
+    long idleTimeout = config.getIdleConnectionTimeoutMillis();
+    idleTimeoutMillis = idleTimeout;
+    if (idleTimeout > 0) {
+      long interval = config.getIdleEvictionIntervalMillis();
+      evictionTask = EVICTOR.scheduleWithFixedDelay(() -> {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+      }, interval, interval, TimeUnit.MILLISECONDS);
+    } else {
+      evictionTask = null;
+    }
+  }
+
+  ClientConfig clientConfig() {
+    return new ClientConfig()
+        .connectorProvider(new ApacheConnectorProvider())
+        .property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager)
+        .property(ApacheClientProperties.REQUEST_CONFIG, requestConfig);
+  }
+
+  /**
+   * Opens up to {@code count} connections to the route of {@code uri}, within the pool limits, completing the
+   * TLS handshake for https, and returns them to the pool as idle connections. Connections already idle in the
+   * pool are counted, not reopened. Returns the number of connections the route now holds ready.
+   */
+  int open(URI uri, int count, int connectTimeoutMillis) throws IOException, InterruptedException,
+      ExecutionException, TimeoutException {
+    HttpRoute route = toRoute(uri);
+    // every connection stays leased until the loop ends, so asking for more than the limits would block
+    int limit = Math.min(count, Math.min(connectionManager.getMaxPerRoute(route), connectionManager.getMaxTotal()));
+    List<HttpClientConnection> leased = new ArrayList<>();
+    try {
+      for (int i = 0; i < limit; i++) {
+        HttpClientConnection connection = connectionManager.requestConnection(route, null)
+            .get(Math.max(requestConfig.getConnectionRequestTimeout(), 0), TimeUnit.MILLISECONDS);
+        leased.add(connection);
+        if (!connection.isOpen()) {
+          HttpClientContext context = HttpClientContext.create();
+          connectionManager.connect(connection, route, connectTimeoutMillis, context);
+          connectionManager.routeComplete(connection, route, context);
+        }
+      }
+      return leased.size();
+    } finally {
+      for (HttpClientConnection connection : leased) {
+        connectionManager.releaseConnection(connection, null, idleTimeoutMillis > 0 ? idleTimeoutMillis : -1,
+            TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  ConnectionPoolStats getStats() {
+    return new ConnectionPoolStats(connectionManager.getTotalStats());
+  }
+
+  ConnectionPoolStats getStats(URI route) {
+    return new ConnectionPoolStats(connectionManager.getStats(toRoute(route)));
+  }
+
+  @Override
+  public void close() {
+    if (evictionTask != null) {
+      evictionTask.cancel(false);
+    }
+    connectionManager.shutdown();
+  }
+
+  static HttpRoute toRoute(URI uri) {
+    String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+    boolean secure = "https".equals(scheme);
+    int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80);
+    return new HttpRoute(new HttpHost(uri.getHost(), port, scheme), null, secure);
+  }
+}
@@ -0,0 +1,41 @@
+package com.nnarendravijay;
+
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Point in time view of the connection pool of a pooled {@link RestClient}, in total or for a single route.
+ */
+public class ConnectionPoolStats {
+  private final int leased;
+  private final int idle;
+  private final int pending;
+  private final int max;
+
+  ConnectionPoolStats(PoolStats stats) {
+    this.leased = stats.getLeased();
+    this.idle = stats.getAvailable();
+    this.pending = stats.getPending();
+    this.max = stats.getMax();
+  }
+
+  public int getLeased() {
+    return leased;
+  }
+
+  public int getIdle() {
+    return idle;
+  }
+
+  public int getPending() {
+    return pending;
+  }
+
+  public int getMax() {
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionPoolStats{leased=" + leased + ", idle=" + idle + ", pending=" + pending + ", max=" + max + "}";
+  }
+}
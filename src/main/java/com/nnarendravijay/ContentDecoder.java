@@ -0,0 +1,14 @@
+package com.nnarendravijay;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes a response entity sent with one {@code Content-Encoding}, see
+ * {@link RestClientConfig#contentDecoder(String, ContentDecoder)}.
+ */
+@FunctionalInterface
+public interface ContentDecoder {
+
+  InputStream decode(InputStream encoded) throws IOException;
+}
@@ -0,0 +1,154 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decodes response entities by their {@code Content-Encoding}, including stacked values such as
+ * {@code gzip, br}, which are undone last coding first. {@code gzip} and {@code deflate} are decoded with pooled
+ * {@link java.util.zip.Inflater}s, see {@link InflatingInputStream}. {@code br} and {@code zstd} are decoded when
+ * the optional {@code org.brotli:dec}, {@code com.github.luben:zstd-jni} or {@code io.airlift:aircompressor}
+ * codecs are on the classpath, and any other coding can be added as a {@link ContentDecoder}. An entity with a
+ * coding that cannot be decoded is passed on as it is.
+ */
+public class ContentDecodingInterceptor implements ReaderInterceptor {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ContentDecodingInterceptor.class);
+
+  private static final String IDENTITY = "identity";
+  private static final String X_GZIP = "x-gzip";
+  private static final Map<String, ContentDecoder> DEFAULT_DECODERS = defaultDecoders();
+
+  private final Map<String, ContentDecoder> decoders;
+  private final String[] encodings;
+
+  public ContentDecodingInterceptor() {
+    this(ImmutableMap.of());
+  }
+
+  /**
+   * @param decoders decoders by {@code Content-Encoding}, added to or replacing the default ones
+   */
+  public ContentDecodingInterceptor(Map<String, ContentDecoder> decoders) {
+    Map<String, ContentDecoder> all = new LinkedHashMap<>(DEFAULT_DECODERS);
+    for (Map.Entry<String, ContentDecoder> decoder : decoders.entrySet()) {
+      all.put(decoder.getKey().toLowerCase(Locale.ROOT),
+          Preconditions.checkNotNull(decoder.getValue(), "decoder cannot be null"));
+    }
+    this.decoders = ImmutableMap.copyOf(all);
+    this.encodings = all.keySet().stream().filter(encoding -> !X_GZIP.equals(encoding)).toArray(String[]::new);
+  }
+
+  @Override
+  public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException, WebApplicationException {
+
+    List<String> codings = codings(context.getHeaders().get(HttpHeaders.CONTENT_ENCODING));
+    if (codings != null && !codings.isEmpty()) {
+      LOGGER.debug("Content-Encoding is set to {} in the response, decoding first", codings);
+      InputStream in = context.getInputStream();
+      for (int i = codings.size() - 1; i >= 0; i--) {
+        in = decoders.get(codings.get(i)).decode(in);
+      }
+      context.setInputStream(in);
+    }
+    return context.proceed();
+  }
+
+  /**
+   * Returns {@code true} if an entity with this {@code Content-Encoding} header value is decoded when read.
+   */
+  public boolean decodes(String contentEncoding) {
+    List<String> codings = contentEncoding == null ? null : codings(Collections.singletonList(contentEncoding));
+    return codings != null && !codings.isEmpty();
+  }
+
+  /**
+   * Content codings this interceptor decodes, in the order they are advertised in {@code Accept-Encoding}.
+   */
+  public String[] getEncodings() {
+    return encodings.clone();
+  }
+
+  /**
+   * Splits the {@code Content-Encoding} values into codings in the order they were applied, leaving out
+   * {@code identity}, or returns {@code null} when one of them cannot be decoded.
+   */
+  private List<String> codings(List<String> headerValues) {
+    if (headerValues == null) {
+      return null;
+    }
+    List<String> codings = new ArrayList<>(2);
+    for (String headerValue : headerValues) {
+      for (String coding : headerValue.split(",")) {
+        String normalized = coding.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty() || IDENTITY.equals(normalized)) {
+          continue;
+        }
+        if (!decoders.containsKey(normalized)) {
+          LOGGER.debug("Content-Encoding {} cannot be decoded, leaving the entity as it is", normalized);
+          return null;
+        }
+        codings.add(normalized);
+      }
+    }
+    return codings;
+  }
+
+  private static Map<String, ContentDecoder> defaultDecoders() {
+    Map<String, ContentDecoder> decoders = new LinkedHashMap<>();
+    decoders.put(CompressingOutputStream.DEFLATE, InflatingInputStream::deflate);
+    decoders.put(CompressingOutputStream.GZIP, InflatingInputStream::gzip);
+    decoders.put(X_GZIP, InflatingInputStream::gzip);
+    addOptional(decoders, "br", "org.brotli.dec.BrotliInputStream");
+    addOptional(decoders, "zstd", "com.github.luben.zstd.ZstdInputStream", "io.airlift.compress.zstd.ZstdInputStream");
+    return decoders;
+  }
+
+  /**
+   * Adds a decoder for {@code encoding} from the first of {@code streamClasses} on the classpath, each an
+   * {@link InputStream} with a constructor taking the encoded stream.
+   */
+  private static void addOptional(Map<String, ContentDecoder> decoders, String encoding, String... streamClasses) {
+    for (String streamClass : streamClasses) {
+      try {
+        Constructor<? extends InputStream> constructor = Class.forName(streamClass).asSubclass(InputStream.class)
+            .getConstructor(InputStream.class);
+        decoders.put(encoding, encoded -> newStream(constructor, encoded));
+        return;
+      } catch (ClassNotFoundException | NoSuchMethodException | ClassCastException | LinkageError e) {
+        LOGGER.debug("{} is not available for Content-Encoding {}", streamClass, encoding);
+      }
+    }
+  }
+
+  private static InputStream newStream(Constructor<? extends InputStream> constructor, InputStream encoded)
+      throws IOException {
+    try {
+      return constructor.newInstance(encoded);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new IOException(e);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An {@code Authorization} header value and the time it expires, as returned by a {@link CredentialProvider}.
+ */
+public final class Credential {
+
+  /**
+   * Expiry of a credential that never expires.
+   */
+  public static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
+  private final String authorization;
+  private final long expiresAtMillis;
+
+  private Credential(String authorization, long expiresAtMillis) {
+    Preconditions.checkArgument(authorization != null && !authorization.isEmpty(), "authorization cannot be empty");
+    this.authorization = authorization;
+    this.expiresAtMillis = expiresAtMillis;
+  }
+
+  /**
+   * @param expiresAtMillis epoch milliseconds after which the credential is no longer sent
+   */
+  public static Credential of(String authorization, long expiresAtMillis) {
+    return new Credential(authorization, expiresAtMillis);
+  }
+
+  public static Credential bearer(String token, long expiresAtMillis) {
+    return new Credential("Bearer " + token, expiresAtMillis);
+  }
+
+  /**
+   * A SAML2 assertion, sent the same way as by {@link RestClient#addAuthHeader(String)}.
+   */
+  public static Credential samlAssertion(String assertion, long expiresAtMillis) {
+    return new Credential("SAML2 assertion=" + assertion, expiresAtMillis);
+  }
+
+  public String getAuthorization() {
+    return authorization;
+  }
+
+  public long getExpiresAtMillis() {
+    return expiresAtMillis;
+  }
+
+  boolean isExpired(long nowMillis) {
+    return nowMillis >= expiresAtMillis;
+  }
+
+  @Override
+  public String toString() {
+    // never log the secret itself
+    return "Credential{expiresAtMillis=" + expiresAtMillis + "}";
+  }
+}
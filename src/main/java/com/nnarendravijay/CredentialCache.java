@@ -0,0 +1,199 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.ProcessingException;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The current credential of a {@link RestClient}, read without locking on every request. It is fetched again in
+ * the background ahead of its expiry, by at most one fetch at a time shared by everyone who needs it, so
+ * requests only wait for the {@link CredentialProvider} when there is no usable credential at all: on the first
+ * request, or once a failing provider let the credential expire. A shared timer thread only decides when to
+ * refresh; the provider itself is called on a thread of this cache's own, so a slow provider holds up no one
+ * else's refresh.
+ */
+final class CredentialCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CredentialCache.class);
+
+  private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-client-credential-timer").build());
+  private static final long FETCHER_KEEP_ALIVE_SECONDS = 60;
+  private static final long MIN_RETRY_MILLIS = 1000;
+  private static final long MAX_RETRY_MILLIS = 60000;
+
+  private final CredentialProvider provider;
+  private final long refreshAheadMillis;
+  private final ExecutorService fetcher;
+  private final AtomicReference<CompletableFuture<Credential>> fetching = new AtomicReference<>();
+  private volatile Cached cached;
+  private long retryMillis = MIN_RETRY_MILLIS;
+  private ScheduledFuture<?> scheduled;
+  private boolean closed;
+
+  CredentialCache(CredentialProvider provider, long refreshAheadMillis) {
+    this.provider = Preconditions.checkNotNull(provider, "provider cannot be null");
+    this.refreshAheadMillis = refreshAheadMillis;
+    // at most one thread, and none between refreshes
+    this.fetcher = new ThreadPoolExecutor(0, 1, FETCHER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-client-credential-fetch").build());
+  }
+
+  /**
+   * Waits for {@link #currentAsync()}, for callers that block anyway.
+   *
+   * @throws ProcessingException when there is no usable credential and fetching one fails
+   */
+  Credential current() {
+    try {
+      return currentAsync().join();
+    } catch (CompletionException e) {
+      throw new ProcessingException("Could not fetch a credential", e.getCause());
+    }
+  }
+
+  /**
+   * The current credential, already completed unless there is no usable one, in which case it completes with
+   * the shared fetch.
+   */
+  CompletableFuture<Credential> currentAsync() {
+    Cached current = cached;
+    if (current != null) {
+      long now = System.currentTimeMillis();
+      if (now < current.refreshAtMillis) {
+        return CompletableFuture.completedFuture(current.credential);
+      }
+      if (!current.credential.isExpired(now)) {
+        fetch();
+        return CompletableFuture.completedFuture(current.credential);
+      }
+    }
+    return fetch();
+  }
+
+  /**
+   * A credential to replace {@code rejected} after a 401: the current one if it was already replaced, or else
+   * a new one fetched now.
+   */
+  CompletableFuture<Credential> renew(Credential rejected) {
+    Cached current = cached;
+    if (current != null && current.credential != rejected
+        && !current.credential.isExpired(System.currentTimeMillis())) {
+      return CompletableFuture.completedFuture(current.credential);
+    }
+    return fetch();
+  }
+
+  void close() {
+    synchronized (this) {
+      closed = true;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+    }
+    fetcher.shutdown();
+  }
+
+  /**
+   * Starts a fetch unless one is already running, and returns the running one.
+   */
+  private CompletableFuture<Credential> fetch() {
+    while (true) {
+      CompletableFuture<Credential> running = fetching.get();
+      if (running != null) {
+        return running;
+      }
+      CompletableFuture<Credential> started = new CompletableFuture<>();
+      if (fetching.compareAndSet(null, started)) {
+        try {
+          fetcher.execute(() -> fetch(started));
+        } catch (RejectedExecutionException e) {
+          fetching.compareAndSet(started, null);
+          started.completeExceptionally(new ProcessingException("The credential cache is closed", e));
+        }
+        return started;
+      }
+    }
+  }
+
+  private void fetch(CompletableFuture<Credential> future) {
+    Credential credential = null;
+    Throwable failure = null;
+    try {
+      credential = Preconditions.checkNotNull(provider.fetch(), "CredentialProvider returned null");
+    } catch (IOException | RuntimeException e) {
+      failure = e;
+    } catch (Error e) {
+      failure = e;
+      throw e;
+    } finally {
+      // whatever the provider threw, waiting callers are released and the next fetch can start
+      if (credential != null) {
+        fetched(future, credential);
+      } else {
+        failed(future, failure);
+      }
+    }
+  }
+
+  private void failed(CompletableFuture<Credential> future, Throwable failure) {
+    LOGGER.warn("Fetching a credential failed, trying again in {} ms", retryMillis, failure);
+    fetching.set(null);
+    future.completeExceptionally(failure);
+    schedule(retryMillis);
+    retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+  }
+
+  private void fetched(CompletableFuture<Credential> future, Credential credential) {
+    long now = System.currentTimeMillis();
+    long expiresAt = credential.getExpiresAtMillis();
+    // never refresh sooner than half way through the lifetime, or short lived credentials are fetched non stop
+    long refreshAt = expiresAt == Credential.NEVER_EXPIRES ? Credential.NEVER_EXPIRES
+        : expiresAt - Math.min(refreshAheadMillis, Math.max(0, expiresAt - now) / 2);
+    cached = new Cached(credential, refreshAt);
+    retryMillis = MIN_RETRY_MILLIS;
+    fetching.set(null);
+    future.complete(credential);
+    if (refreshAt != Credential.NEVER_EXPIRES) {
+      schedule(refreshAt - now);
+    }
+  }
+
+  private synchronized void schedule(long delayMillis) {
+    if (closed) {
+      return;
+    }
+    if (scheduled != null) {
+      scheduled.cancel(false);
+    }
+    scheduled = TIMER.schedule(() -> {
+      fetch();
+    }, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+  }
+
+  private static final class Cached {
+    private final Credential credential;
+    private final long refreshAtMillis;
+
+    private Cached(Credential credential, long refreshAtMillis) {
+      this.credential = credential;
+      this.refreshAtMillis = refreshAtMillis;
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.nnarendravijay;
+
+import java.io.IOException;
+
+/**
+ * Fetches a fresh credential, for instance a SAML2 assertion or an OAuth bearer token, for
+ * {@link RestClientConfig#credentialProvider(CredentialProvider)}. Called from one thread at a time.
+ */
+@FunctionalInterface
+public interface CredentialProvider {
+
+  Credential fetch() throws IOException;
+}
@@ -0,0 +1,56 @@
+package com.nnarendravijay;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Bounded pool of {@link Deflater}s with their output buffers, so compressing a request body does not allocate
+ * native zlib state per request. Instances beyond the pool capacity are ended when returned.
+ */
+final class DeflaterPool {
+
+  static final DeflaterPool GZIP = new DeflaterPool(true);
+  static final DeflaterPool DEFLATE = new DeflaterPool(false);
+
+  private static final int CAPACITY = 32;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final boolean nowrap;
+  private final BlockingQueue<Compressor> idle = new ArrayBlockingQueue<>(CAPACITY);
+
+  private DeflaterPool(boolean nowrap) {
+    this.nowrap = nowrap;
+  }
+
+  Compressor borrow() {
+    Compressor compressor = idle.poll();
+    return compressor != null ? compressor : new Compressor(this);
+  }
+
+  private void release(Compressor compressor) {
+    compressor.deflater.reset();
+    compressor.crc.reset();
+    if (!idle.offer(compressor)) {
+      compressor.deflater.end();
+    }
+  }
+
+  static final class Compressor implements AutoCloseable {
+    final Deflater deflater;
+    final CRC32 crc = new CRC32();
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    private final DeflaterPool pool;
+
+    private Compressor(DeflaterPool pool) {
+      this.pool = pool;
+      this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, pool.nowrap);
+    }
+
+    @Override
+    public void close() {
+      pool.release(this);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Settings for {@link RestClient#download(java.net.URI, java.nio.file.Path, DownloadOptions)}.
+ */
+public class DownloadOptions {
+
+  private int segments = 4;
+  private long minSegmentBytes = 8 * 1024 * 1024;
+  private boolean resume = true;
+  private String checksumAlgorithm;
+  private String expectedChecksum;
+
+  public static DownloadOptions newInstance() {
+    return new DownloadOptions();
+  }
+
+  /**
+   * Largest number of byte ranges fetched in parallel when the server accepts range requests.
+   */
+  public DownloadOptions segments(int segments) {
+    Preconditions.checkArgument(segments > 0, "segments must be positive");
+    this.segments = segments;
+    return this;
+  }
+
+  /**
+   * Smallest range worth its own request; smaller resources are fetched in fewer segments.
+   */
+  public DownloadOptions minSegmentBytes(long minSegmentBytes) {
+    Preconditions.checkArgument(minSegmentBytes > 0, "minSegmentBytes must be positive");
+    this.minSegmentBytes = minSegmentBytes;
+    return this;
+  }
+
+  /**
+   * Whether a partial download left by an earlier failure is continued instead of started over.
+   */
+  public DownloadOptions resume(boolean resume) {
+    this.resume = resume;
+    return this;
+  }
+
+  /**
+   * Computes the checksum of the downloaded file with the given {@link MessageDigest} algorithm and, when
+   * {@code expectedHex} is not null, fails the download if it does not match.
+   */
+  public DownloadOptions checksum(String algorithm, String expectedHex) {
+    try {
+      MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException("Unsupported checksum algorithm " + algorithm, e);
+    }
+    this.checksumAlgorithm = algorithm;
+    this.expectedChecksum = expectedHex;
+    return this;
+  }
+
+  public int getSegments() {
+    return segments;
+  }
+
+  public long getMinSegmentBytes() {
+    return minSegmentBytes;
+  }
+
+  public boolean isResume() {
+    return resume;
+  }
+
+  public String getChecksumAlgorithm() {
+    return checksumAlgorithm;
+  }
+
+  public String getExpectedChecksum() {
+    return expectedChecksum;
+  }
+}
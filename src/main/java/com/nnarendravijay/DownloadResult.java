@@ -0,0 +1,63 @@
+package com.nnarendravijay;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of a completed download.
+ */
+public class DownloadResult {
+  private final Path path;
+  private final long bytes;
+  private final int segments;
+  private final long resumedBytes;
+  private final String checksum;
+  private final long elapsedMillis;
+
+  DownloadResult(Path path, long bytes, int segments, long resumedBytes, String checksum, long elapsedMillis) {
+    this.path = path;
+    this.bytes = bytes;
+    this.segments = segments;
+    this.resumedBytes = resumedBytes;
+    this.checksum = checksum;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Number of byte ranges the resource was fetched in; 1 when the server does not accept range requests.
+   */
+  public int getSegments() {
+    return segments;
+  }
+
+  /**
+   * Bytes that were already on disk from an earlier, interrupted download.
+   */
+  public long getResumedBytes() {
+    return resumedBytes;
+  }
+
+  /**
+   * Hex checksum of the file, or {@code null} when none was requested.
+   */
+  public String getChecksum() {
+    return checksum;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "DownloadResult{path=" + path + ", bytes=" + bytes + ", segments=" + segments + ", resumedBytes="
+        + resumedBytes + ", checksum=" + checksum + ", elapsedMillis=" + elapsedMillis + "}";
+  }
+}
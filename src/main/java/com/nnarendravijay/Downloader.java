@@ -0,0 +1,348 @@
+package com.nnarendravijay;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Downloads one resource into a file. The body is written to {@code <target>.part} and moved over the target
+ * once its length and checksum check out. When the server accepts byte ranges the resource is split into
+ * segments fetched in parallel and written at their offsets, and the progress of every segment is kept in
+ * {@code <target>.part.properties} so a failed download picks up where it stopped.
+ */
+final class Downloader {
+
+  private static final String RANGE = "Range";
+  private static final String IF_RANGE = "If-Range";
+  private static final String CONTENT_RANGE = "Content-Range";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long SAVE_INTERVAL_BYTES = 16 * 1024 * 1024;
+
+  private final Function<RestRequest, Response> sender;
+  private final Executor executor;
+  private final URI uri;
+  private final Path target;
+  private final Path part;
+  private final Path state;
+  private final DownloadOptions options;
+  private final AtomicBoolean failed = new AtomicBoolean();
+
+  private Probe probe;
+  private Segment[] segments;
+
+  Downloader(Function<RestRequest, Response> sender, Executor executor, URI uri, Path target,
+      DownloadOptions options) {
+    this.sender = sender;
+    this.executor = executor;
+    this.uri = uri;
+    this.target = target;
+    this.part = target.resolveSibling(target.getFileName() + ".part");
+    this.state = target.resolveSibling(target.getFileName() + ".part.properties");
+    this.options = options;
+  }
+
+  DownloadResult download() throws IOException {
+    long start = System.nanoTime();
+    probe = probe();
+    segments = options.isResume() ? loadState() : null;
+    if (segments == null) {
+      segments = plan();
+      Files.deleteIfExists(state);
+      Files.deleteIfExists(part);
+    }
+    long resumed = 0;
+    for (Segment segment : segments) {
+      resumed += segment.done.get();
+    }
+
+    boolean completed = false;
+    try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      fetchAll(channel);
+      completed = true;
+    } finally {
+      if (!completed && probe.acceptsRanges) {
+        saveState();
+      }
+    }
+
+    long size = Files.size(part);
+    if (probe.length >= 0 && size != probe.length) {
+      discard();
+      throw new IOException("Downloaded " + size + " bytes of " + uri + " but expected " + probe.length);
+    }
+    String checksum = null;
+    if (options.getChecksumAlgorithm() != null) {
+      checksum = checksum(part, options.getChecksumAlgorithm());
+      if (options.getExpectedChecksum() != null && !options.getExpectedChecksum().equalsIgnoreCase(checksum)) {
+        discard();
+        throw new IOException(options.getChecksumAlgorithm() + " checksum " + checksum + " of " + uri
+            + " does not match " + options.getExpectedChecksum());
+      }
+    }
+    Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    Files.deleteIfExists(state);
+    return new DownloadResult(target, size, segments.length, resumed, checksum,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /**
+   * Asks for the first byte only. A 206 tells the total length, from {@code Content-Range}, and that ranges
+   * work; a server that ignores ranges answers 200 with the whole body, which is then used as the download.
+   */
+  private Probe probe() {
+    Response response = sender.apply(RestRequest.get(uri).header(RANGE, "bytes=0-0")
+        .buffering(ResponseBuffering.STREAMING).build());
+    if (response.getStatus() == Response.Status.PARTIAL_CONTENT.getStatusCode()) {
+      try {
+        String contentRange = response.getHeaderString(CONTENT_RANGE);
+        String total = contentRange == null ? "*" : contentRange.substring(contentRange.indexOf('/') + 1).trim();
+        String validator = response.getHeaderString(HttpHeaders.ETAG) != null
+            ? response.getHeaderString(HttpHeaders.ETAG) : response.getHeaderString(HttpHeaders.LAST_MODIFIED);
+        return "*".equals(total) ? new Probe(-1, false, null, null) : new Probe(Long.parseLong(total), true,
+            validator, null);
+      } finally {
+        response.close();
+      }
+    }
+    if (response.getStatus() == Response.Status.OK.getStatusCode()) {
+      return new Probe(response.getLength(), false, null, response);
+    }
+    response.close();
+    return new Probe(-1, false, null, null);
+  }
+
+  private Segment[] plan() {
+    if (!probe.acceptsRanges || probe.length <= 0) {
+      return new Segment[] {new Segment(0, probe.length - 1, 0)};
+    }
+    int count = (int) Math.max(1, Math.min(options.getSegments(), probe.length / options.getMinSegmentBytes()));
+    Segment[] planned = new Segment[count];
+    long size = probe.length / count;
+    for (int i = 0; i < count; i++) {
+      long first = i * size;
+      long last = i == count - 1 ? probe.length - 1 : first + size - 1;
+      planned[i] = new Segment(first, last, 0);
+    }
+    return planned;
+  }
+
+  private void fetchAll(FileChannel channel) throws IOException {
+    if (segments.length == 1) {
+      fetch(segments[0], channel);
+      return;
+    }
+    ExecutorService pool = executor == null ? Executors.newFixedThreadPool(segments.length) : null;
+    try {
+      List<CompletableFuture<Void>> fetches = new ArrayList<>();
+      for (Segment segment : segments) {
+        fetches.add(CompletableFuture.runAsync(() -> {
+          try {
+            fetch(segment, channel);
+          } catch (IOException e) {
+            failed.set(true);
+            throw new UncheckedIOException(e);
+          } catch (RuntimeException e) {
+            failed.set(true);
+            throw e;
+          }
+        }, pool != null ? pool : executor));
+      }
+      CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[fetches.size()])).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+    } finally {
+      if (pool != null) {
+        MoreExecutors.shutdownAndAwaitTermination(pool, 1, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  private void fetch(Segment segment, FileChannel channel) throws IOException {
+    if (segment.isComplete()) {
+      return;
+    }
+    boolean ranged = probe.acceptsRanges && (segments.length > 1 || segment.done.get() > 0);
+    RestRequest.Builder request = RestRequest.get(uri).buffering(ResponseBuffering.STREAMING);
+    if (ranged) {
+      request.header(RANGE, "bytes=" + (segment.first + segment.done.get()) + "-" + segment.last);
+      if (probe.validator != null) {
+        request.header(IF_RANGE, probe.validator);
+      }
+    } else {
+      channel.truncate(0);
+      segment.done.set(0);
+    }
+    Response probed = ranged ? null : probe.takeBody();
+    Response response = probed != null ? probed : sender.apply(request.build());
+    try {
+      int expected = ranged ? Response.Status.PARTIAL_CONTENT.getStatusCode() : Response.Status.OK.getStatusCode();
+      if (response.getStatus() != expected) {
+        if (ranged && response.getStatus() == Response.Status.OK.getStatusCode()) {
+          // If-Range did not match; the saved progress will not match the next probe either
+          throw new IOException(uri + " changed while it was being downloaded");
+        }
+        throw new IOException("Download of " + uri + " failed with status " + response.getStatus());
+      }
+      copy(response.readEntity(InputStream.class), segment, channel);
+    } finally {
+      response.close();
+    }
+  }
+
+  private void copy(InputStream in, Segment segment, FileChannel channel) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long unsaved = 0;
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+      long position = segment.first + segment.done.get();
+      while (chunk.hasRemaining()) {
+        position += channel.write(chunk, position);
+      }
+      segment.done.addAndGet(read);
+      unsaved += read;
+      if (probe.acceptsRanges && unsaved >= SAVE_INTERVAL_BYTES) {
+        saveState();
+        unsaved = 0;
+      }
+      if (failed.get()) {
+        throw new IOException("Download of " + uri + " aborted after another segment failed");
+      }
+    }
+  }
+
+  private Segment[] loadState() throws IOException {
+    if (!probe.acceptsRanges || !Files.exists(state) || !Files.exists(part)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(state)) {
+      properties.load(in);
+    }
+    if (!uri.toString().equals(properties.getProperty("uri"))
+        || !String.valueOf(probe.length).equals(properties.getProperty("length"))
+        || !String.valueOf(probe.validator).equals(properties.getProperty("validator"))) {
+      return null;
+    }
+    int count = Integer.parseInt(properties.getProperty("segments"));
+    Segment[] loaded = new Segment[count];
+    for (int i = 0; i < count; i++) {
+      String[] values = properties.getProperty("segment." + i).split(",");
+      loaded[i] = new Segment(Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2]));
+    }
+    return loaded;
+  }
+
+  private synchronized void saveState() throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("uri", uri.toString());
+    properties.setProperty("length", String.valueOf(probe.length));
+    properties.setProperty("validator", String.valueOf(probe.validator));
+    properties.setProperty("segments", String.valueOf(segments.length));
+    for (int i = 0; i < segments.length; i++) {
+      properties.setProperty("segment." + i, segments[i].first + "," + segments[i].last + "," + segments[i].done.get());
+    }
+    Path temp = state.resolveSibling(state.getFileName() + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temp)) {
+      properties.store(out, null);
+    }
+    Files.move(temp, state, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void discard() throws IOException {
+    Files.deleteIfExists(part);
+    Files.deleteIfExists(state);
+  }
+
+  static String checksum(Path file, String algorithm) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(algorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalArgumentException("Unsupported checksum algorithm " + algorithm, e);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+    return BaseEncoding.base16().lowerCase().encode(digest.digest());
+  }
+
+  private static final class Probe {
+    private final long length;
+    private final boolean acceptsRanges;
+    private final String validator;
+    private Response body;
+
+    private Probe(long length, boolean acceptsRanges, String validator, Response body) {
+      this.length = length;
+      this.acceptsRanges = acceptsRanges;
+      this.validator = validator;
+      this.body = body;
+    }
+
+    /**
+     * The full response received while probing, handed out once.
+     */
+    private Response takeBody() {
+      Response taken = body;
+      body = null;
+      return taken;
+    }
+  }
+
+  /**
+   * Inclusive byte range of the resource and how much of it is already on disk. An unknown length is an
+   * open ended range with {@code last} of -2.
+   */
+  private static final class Segment {
+    private final long first;
+    private final long last;
+    private final AtomicLong done;
+
+    private Segment(long first, long last, long done) {
+      this.first = first;
+      this.last = last;
+      this.done = new AtomicLong(done);
+    }
+
+    private boolean isComplete() {
+      return last >= first && done.get() >= last - first + 1;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Request entity that streams a file from a {@link java.nio.channels.FileChannel} in fixed size chunks, so the
+ * heap used by an upload does not depend on the size of the file. It can be sent on its own or as the entity
+ * of a multipart body part; requests carrying one are sent with chunked transfer encoding.
+ */
+public final class FileUpload {
+
+  static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  private final Path path;
+  private final int chunkSize;
+  private final UploadProgressListener progressListener;
+
+  private FileUpload(Path path, int chunkSize, UploadProgressListener progressListener) {
+    this.path = path;
+    this.chunkSize = chunkSize;
+    this.progressListener = progressListener;
+  }
+
+  public static FileUpload of(Path path) {
+    Preconditions.checkNotNull(path, "path cannot be null");
+    Preconditions.checkArgument(Files.isRegularFile(path), "%s is not a file", path);
+    return new FileUpload(path, DEFAULT_CHUNK_SIZE, null);
+  }
+
+  public FileUpload withChunkSize(int chunkSize) {
+    Preconditions.checkArgument(chunkSize > 0, "chunkSize must be positive");
+    return new FileUpload(path, chunkSize, progressListener);
+  }
+
+  public FileUpload withProgressListener(UploadProgressListener progressListener) {
+    return new FileUpload(path, chunkSize, progressListener);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  public UploadProgressListener getProgressListener() {
+    return progressListener;
+  }
+}
@@ -0,0 +1,54 @@
+package com.nnarendravijay;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a {@link FileUpload} one chunk at a time. The connection is only reachable as an
+ * {@link OutputStream}, so each chunk is read from the channel into one reused array and written from there.
+ */
+final class FileUploadWriter implements MessageBodyWriter<FileUpload> {
+
+  @Override
+  public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    return FileUpload.class.isAssignableFrom(type);
+  }
+
+  @Override
+  public long getSize(FileUpload upload, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return -1;
+  }
+
+  @Override
+  public void writeTo(FileUpload upload, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+      throws IOException, WebApplicationException {
+
+    try (FileChannel channel = FileChannel.open(upload.getPath(), StandardOpenOption.READ)) {
+      long total = Files.size(upload.getPath());
+      byte[] chunk = new byte[(int) Math.min(upload.getChunkSize(), Math.max(total, 1))];
+      ByteBuffer buffer = ByteBuffer.wrap(chunk);
+      long sent = 0;
+      int read;
+      while ((read = channel.read(buffer)) != -1) {
+        entityStream.write(chunk, 0, read);
+        buffer.clear();
+        sent += read;
+        if (upload.getProgressListener() != null) {
+          upload.getProgressListener().onProgress(sent, total);
+        }
+      }
+    }
+  }
+}
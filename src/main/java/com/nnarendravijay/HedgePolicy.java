@@ -0,0 +1,85 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Hedging for GET requests: when the first attempt has not answered within the given latency percentile of
+ * recent requests, a second copy is sent and whichever answers first wins. The hedge ratio caps the share of
+ * requests that may be hedged, so a slow server does not see its load doubled.
+ */
+public class HedgePolicy {
+
+  private double percentile = 0.95;
+  private long minDelayMillis = 5;
+  private long initialDelayMillis = 100;
+  private int minSamples = 50;
+  private double maxHedgeRatio = 0.1;
+
+  public static HedgePolicy newInstance() {
+    return new HedgePolicy();
+  }
+
+  /**
+   * Latency percentile, between 0 and 1, after which the hedge is sent.
+   */
+  public HedgePolicy percentile(double percentile) {
+    Preconditions.checkArgument(percentile > 0 && percentile < 1, "percentile must be between 0 and 1");
+    this.percentile = percentile;
+    return this;
+  }
+
+  public HedgePolicy minDelayMillis(long minDelayMillis) {
+    Preconditions.checkArgument(minDelayMillis >= 0, "minDelayMillis cannot be negative");
+    this.minDelayMillis = minDelayMillis;
+    return this;
+  }
+
+  /**
+   * Delay used until {@code minSamples} latencies have been recorded.
+   */
+  public HedgePolicy initialDelayMillis(long initialDelayMillis) {
+    Preconditions.checkArgument(initialDelayMillis >= 0, "initialDelayMillis cannot be negative");
+    this.initialDelayMillis = initialDelayMillis;
+    return this;
+  }
+
+  public HedgePolicy minSamples(int minSamples) {
+    Preconditions.checkArgument(minSamples >= 0, "minSamples cannot be negative");
+    this.minSamples = minSamples;
+    return this;
+  }
+
+  /**
+   * Largest share, between 0 and 1, of requests that may be hedged.
+   */
+  public HedgePolicy maxHedgeRatio(double maxHedgeRatio) {
+    Preconditions.checkArgument(maxHedgeRatio >= 0 && maxHedgeRatio <= 1, "maxHedgeRatio must be between 0 and 1");
+    this.maxHedgeRatio = maxHedgeRatio;
+    return this;
+  }
+
+  public double getPercentile() {
+    return percentile;
+  }
+
+  public long getMinDelayMillis() {
+    return minDelayMillis;
+  }
+
+  public long getInitialDelayMillis() {
+    return initialDelayMillis;
+  }
+
+  public int getMinSamples() {
+    return minSamples;
+  }
+
+  public double getMaxHedgeRatio() {
+    return maxHedgeRatio;
+  }
+
+  HedgePolicy copy() {
+    return newInstance().percentile(percentile).minDelayMillis(minDelayMillis).initialDelayMillis(initialDelayMillis)
+        .minSamples(minSamples).maxHedgeRatio(maxHedgeRatio);
+  }
+}
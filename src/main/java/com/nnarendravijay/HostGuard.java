@@ -0,0 +1,176 @@
+package com.nnarendravijay;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per host circuit breakers and concurrency limits of a {@link RestClient}. Every attempt sent to a host takes a
+ * {@link Permit} first and reports its outcome on it.
+ */
+final class HostGuard {
+
+  private final CircuitBreakerPolicy breakerPolicy;
+  private final ConcurrencyLimitPolicy limitPolicy;
+  private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+  HostGuard(CircuitBreakerPolicy breakerPolicy, ConcurrencyLimitPolicy limitPolicy) {
+    this.breakerPolicy = breakerPolicy == null ? null : breakerPolicy.copy();
+    this.limitPolicy = limitPolicy == null ? null : limitPolicy.copy();
+  }
+
+  /**
+   * @throws RejectedRequestException when the breaker of the host is open or its limit is reached
+   */
+  Permit acquire(URI uri) {
+    String key = key(uri);
+    Host host = host(key);
+    if (host.limiter != null && !host.limiter.acquire()) {
+      throw limited(key, host);
+    }
+    return new Permit(host);
+  }
+
+  /**
+   * Like {@link #acquire(URI)}, but a call queued for a concurrency slot waits on the returned future instead of
+   * a thread. The future fails with a {@link RejectedRequestException} when the call is rejected.
+   */
+  CompletableFuture<Permit> acquireAsync(URI uri) {
+    String key = key(uri);
+    CompletableFuture<Permit> permit = new CompletableFuture<>();
+    Host host;
+    try {
+      host = host(key);
+    } catch (RejectedRequestException e) {
+      permit.completeExceptionally(e);
+      return permit;
+    }
+    if (host.limiter == null) {
+      permit.complete(new Permit(host));
+      return permit;
+    }
+    CompletableFuture<Boolean> slot = host.limiter.acquireAsync();
+    slot.whenComplete((granted, failure) -> {
+      if (!Boolean.TRUE.equals(granted)) {
+        if (!permit.isCancelled()) {
+          permit.completeExceptionally(limited(key, host));
+        } else if (host.breaker != null) {
+          host.breaker.release();
+        }
+        return;
+      }
+      Permit acquired = new Permit(host);
+      if (!permit.complete(acquired)) {
+        // cancelled while the slot was handed over
+        acquired.cancelled();
+      }
+    });
+    permit.whenComplete((acquired, failure) -> {
+      if (permit.isCancelled()) {
+        slot.cancel(false);
+      }
+    });
+    return permit;
+  }
+
+  List<HostProtectionStats> getStats() {
+    List<HostProtectionStats> stats = new ArrayList<>();
+    for (Map.Entry<String, Host> entry : hosts.entrySet()) {
+      Host host = entry.getValue();
+      stats.add(new HostProtectionStats(entry.getKey(),
+          host.breaker == null ? null : host.breaker.getState(),
+          host.breaker == null ? 0 : host.breaker.getFailureRate(),
+          host.limiter == null ? -1 : host.limiter.getLimit(),
+          host.limiter == null ? 0 : host.limiter.getInFlight(),
+          host.rejected.sum()));
+    }
+    return stats;
+  }
+
+  /**
+   * The host of {@code key}, once its breaker let the call through.
+   */
+  private Host host(String key) {
+    Host host = hosts.get(key);
+    if (host == null) {
+      host = hosts.computeIfAbsent(key, k -> new Host());
+    }
+    if (host.breaker != null && !host.breaker.tryAcquire()) {
+      host.rejected.increment();
+      throw new RejectedRequestException(key, RejectedRequestException.Reason.CIRCUIT_OPEN);
+    }
+    return host;
+  }
+
+  private static RejectedRequestException limited(String key, Host host) {
+    if (host.breaker != null) {
+      host.breaker.release();
+    }
+    host.rejected.increment();
+    return new RejectedRequestException(key, RejectedRequestException.Reason.CONCURRENCY_LIMIT);
+  }
+
+  static String key(URI uri) {
+    int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    return uri.getHost() + ":" + port;
+  }
+
+  private final class Host {
+    private final CircuitBreaker breaker = breakerPolicy == null ? null : new CircuitBreaker(breakerPolicy);
+    private final ConcurrencyLimiter limiter = limitPolicy == null ? null : new ConcurrencyLimiter(limitPolicy);
+    private final LongAdder rejected = new LongAdder();
+  }
+
+  /**
+   * A slot for one attempt. Exactly one of the outcome methods takes effect; later calls are ignored.
+   */
+  static final class Permit {
+    private final Host host;
+    private final long startNanos = System.nanoTime();
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private Permit(Host host) {
+      this.host = host;
+    }
+
+    void completed(int status) {
+      if (done.compareAndSet(false, true)) {
+        long latency = System.nanoTime() - startNanos;
+        if (host.breaker != null) {
+          host.breaker.record(status >= 500, latency);
+        }
+        if (host.limiter != null) {
+          host.limiter.release(host.limiter.isDrop(status, latency));
+        }
+      }
+    }
+
+    void failed() {
+      if (done.compareAndSet(false, true)) {
+        if (host.breaker != null) {
+          host.breaker.record(true, System.nanoTime() - startNanos);
+        }
+        if (host.limiter != null) {
+          host.limiter.release(true);
+        }
+      }
+    }
+
+    void cancelled() {
+      if (done.compareAndSet(false, true)) {
+        if (host.breaker != null) {
+          host.breaker.release();
+        }
+        if (host.limiter != null) {
+          host.limiter.cancel();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.nnarendravijay;
+
+/**
+ * Point in time view of the circuit breaker and concurrency limit that protect one host.
+ */
+public class HostProtectionStats {
+
+  public enum CircuitState {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String host;
+  private final CircuitState circuitState;
+  private final double failureRate;
+  private final int concurrencyLimit;
+  private final int inFlight;
+  private final long rejected;
+
+  HostProtectionStats(String host, CircuitState circuitState, double failureRate, int concurrencyLimit, int inFlight,
+      long rejected) {
+    this.host = host;
+    this.circuitState = circuitState;
+    this.failureRate = failureRate;
+    this.concurrencyLimit = concurrencyLimit;
+    this.inFlight = inFlight;
+    this.rejected = rejected;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * State of the circuit breaker, or {@code null} when the client has none.
+   */
+  public CircuitState getCircuitState() {
+    return circuitState;
+  }
+
+  public double getFailureRate() {
+    return failureRate;
+  }
+
+  /**
+   * Current concurrency limit, or -1 when the client has none.
+   */
+  public int getConcurrencyLimit() {
+    return concurrencyLimit;
+  }
+
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  @Override
+  public String toString() {
+    return "HostProtectionStats{host=" + host + ", circuitState=" + circuitState + ", failureRate=" + failureRate
+        + ", concurrencyLimit=" + concurrencyLimit + ", inFlight=" + inFlight + ", rejected=" + rejected + "}";
+  }
+}
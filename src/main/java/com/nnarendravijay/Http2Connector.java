@@ -0,0 +1,244 @@
+package com.nnarendravijay;
+
+import com.google.common.collect.ImmutableSet;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
+import org.eclipse.jetty.client.MultiplexConnectionPool;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.client.util.InputStreamResponseListener;
+import org.eclipse.jetty.client.util.OutputStreamContentProvider;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.eclipse.jetty.util.HttpCookieStore;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.message.internal.Statuses;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.ProcessingException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Jersey connector that sends every call as a stream of a multiplexed HTTP/2 connection, using Jetty's HTTP/2
+ * client. Entities are buffered unless the request asks for chunked processing, in which case they are written
+ * to the stream while it is being sent. Content decoding, cookies and authentication are left to Jersey, as with
+ * the other connectors.
+ */
+final class Http2Connector implements Connector {
+
+  /**
+   * Connection specific headers that HTTP/2 does not allow; the body length is framed by the connector.
+   */
+  private static final Set<String> EXCLUDED_HEADERS = ImmutableSet.of("connection", "keep-alive",
+      "proxy-connection", "transfer-encoding", "upgrade", "host", "content-length");
+
+  private final HttpClient httpClient;
+
+  Http2Connector(Http2Options options, SSLContext sslContext, HostnameVerifier hostnameVerifier,
+      long idleTimeoutMillis) {
+    SslContextFactory.Client sslContextFactory = new SslContextFactory.Client();
+    if (sslContext != null) {
+      sslContextFactory.setSslContext(sslContext);
+    }
+    if (hostnameVerifier != null) {
+      sslContextFactory.setEndpointIdentificationAlgorithm(null);
+      sslContextFactory.setHostnameVerifier(hostnameVerifier);
+    }
+    HttpClientTransportOverHTTP2 transport = new HttpClientTransportOverHTTP2(new HTTP2Client());
+    transport.setConnectionPoolFactory(destination -> new StreamLimitedConnectionPool(destination,
+        options.getMaxConnectionsPerHost(), options.getMaxConcurrentStreams()));
+
+    httpClient = new HttpClient(transport, sslContextFactory);
+    httpClient.setMaxConnectionsPerDestination(options.getMaxConnectionsPerHost());
+    httpClient.setMaxRequestsQueuedPerDestination(options.getMaxQueuedRequestsPerHost());
+    httpClient.setIdleTimeout(Math.max(idleTimeoutMillis, 0));
+    httpClient.setCookieStore(new HttpCookieStore.Empty());
+    httpClient.getContentDecoderFactories().clear();
+    httpClient.setName("rest-client-http2");
+    try {
+      httpClient.start();
+    } catch (Exception e) {
+      throw new ProcessingException("Could not start the HTTP/2 client", e);
+    }
+  }
+
+  @Override
+  public ClientResponse apply(ClientRequest request) {
+    Request http2Request = newRequest(request);
+    int readTimeout = request.resolveProperty(ClientProperties.READ_TIMEOUT, 0);
+    InputStreamResponseListener listener = new InputStreamResponseListener();
+    try {
+      send(request, http2Request, listener);
+      org.eclipse.jetty.client.api.Response response = listener.get(
+          readTimeout > 0 ? readTimeout : Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      return clientResponse(request, response, listener.getInputStream());
+    } catch (IOException e) {
+      http2Request.abort(e);
+      throw new ProcessingException(e);
+    } catch (ExecutionException e) {
+      throw new ProcessingException(e.getCause());
+    } catch (TimeoutException e) {
+      http2Request.abort(e);
+      throw new ProcessingException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      http2Request.abort(e);
+      throw new ProcessingException(e);
+    }
+  }
+
+  /**
+   * Sends the request without waiting for it. The callback gets the response on a Jetty pool thread once its
+   * headers arrived, never on the thread that delivers the body, so it may read the entity. Cancelling the
+   * returned future before then aborts the stream.
+   */
+  @Override
+  public Future<?> apply(ClientRequest request, AsyncConnectorCallback callback) {
+    Request http2Request = newRequest(request);
+    CompletableFuture<ClientResponse> future = new CompletableFuture<>();
+    InputStreamResponseListener listener = new InputStreamResponseListener() {
+      @Override
+      public void onHeaders(org.eclipse.jetty.client.api.Response response) {
+        super.onHeaders(response);
+        ClientResponse clientResponse = clientResponse(request, response, getInputStream());
+        if (future.complete(clientResponse)) {
+          httpClient.getExecutor().execute(() -> callback.response(clientResponse));
+        }
+      }
+
+      @Override
+      public void onComplete(Result result) {
+        super.onComplete(result);
+        if (result.isFailed() && future.completeExceptionally(result.getFailure())) {
+          callback.failure(new ProcessingException(result.getFailure()));
+        }
+      }
+    };
+    future.whenComplete((response, failure) -> {
+      if (future.isCancelled()) {
+        http2Request.abort(new CancellationException());
+      }
+    });
+    try {
+      send(request, http2Request, listener);
+    } catch (IOException | RuntimeException e) {
+      http2Request.abort(e);
+      if (future.completeExceptionally(e)) {
+        callback.failure(e instanceof ProcessingException ? e : new ProcessingException(e));
+      }
+    }
+    return future;
+  }
+
+  private Request newRequest(ClientRequest request) {
+    Request http2Request = httpClient.newRequest(request.getUri()).method(request.getMethod())
+        .followRedirects(request.resolveProperty(ClientProperties.FOLLOW_REDIRECTS, Boolean.TRUE));
+    int readTimeout = request.resolveProperty(ClientProperties.READ_TIMEOUT, 0);
+    if (readTimeout > 0) {
+      http2Request.idleTimeout(readTimeout, TimeUnit.MILLISECONDS);
+    }
+    return http2Request;
+  }
+
+  private static ClientResponse clientResponse(ClientRequest request, org.eclipse.jetty.client.api.Response response,
+      InputStream entityStream) {
+    ClientResponse clientResponse = new ClientResponse(Statuses.from(response.getStatus()), request);
+    for (HttpField field : response.getHeaders()) {
+      clientResponse.getHeaders().add(field.getName(), field.getValue());
+    }
+    clientResponse.setResolvedRequestUri(response.getRequest().getURI());
+    clientResponse.setEntityStream(entityStream);
+    return clientResponse;
+  }
+
+  /**
+   * Sends the request once its headers are final, which is when Jersey opens the entity stream.
+   */
+  private static void send(ClientRequest request, Request http2Request, InputStreamResponseListener listener)
+      throws IOException {
+    if (!request.hasEntity()) {
+      copyHeaders(request, http2Request);
+      http2Request.send(listener);
+      return;
+    }
+    if (request.resolveProperty(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.class)
+        == RequestEntityProcessing.CHUNKED) {
+      try (OutputStreamContentProvider content = new OutputStreamContentProvider()) {
+        request.setStreamProvider(contentLength -> {
+          copyHeaders(request, http2Request);
+          http2Request.content(content).send(listener);
+          return content.getOutputStream();
+        });
+        request.writeEntity();
+      }
+      return;
+    }
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    request.setStreamProvider(contentLength -> buffer);
+    request.writeEntity();
+    copyHeaders(request, http2Request);
+    http2Request.content(new BytesContentProvider(buffer.toByteArray())).send(listener);
+  }
+
+  private static void copyHeaders(ClientRequest request, Request http2Request) {
+    for (Map.Entry<String, List<String>> header : request.getStringHeaders().entrySet()) {
+      if (!EXCLUDED_HEADERS.contains(header.getKey().toLowerCase())) {
+        for (String value : header.getValue()) {
+          http2Request.header(header.getKey(), value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "Jetty HTTP/2";
+  }
+
+  @Override
+  public void close() {
+    try {
+      httpClient.stop();
+    } catch (Exception e) {
+      throw new ProcessingException("Could not stop the HTTP/2 client", e);
+    }
+  }
+
+  /**
+   * Caps the streams per connection at the configured limit, even when the server allows more.
+   */
+  private static final class StreamLimitedConnectionPool extends MultiplexConnectionPool {
+    private final int maxStreams;
+
+    private StreamLimitedConnectionPool(HttpDestination destination, int maxConnections, int maxStreams) {
+      super(destination, maxConnections, destination, maxStreams);
+      this.maxStreams = maxStreams;
+    }
+
+    @Override
+    public void setMaxMultiplex(int maxMultiplex) {
+      // also called by the super constructor, before maxStreams is set, with the same limit
+      super.setMaxMultiplex(maxStreams > 0 ? Math.min(maxMultiplex, maxStreams) : maxMultiplex);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings of the HTTP/2 transport of a {@link RestClient}. Calls to a host are multiplexed as streams over at
+ * most {@code maxConnectionsPerHost} connections; another connection is only opened once every open one carries
+ * {@code maxConcurrentStreams} streams, or the lower limit announced by the server. {@code https} URIs negotiate
+ * {@code h2} with ALPN and {@code http} URIs speak cleartext {@code h2c} with prior knowledge, so the server must
+ * support HTTP/2 in both cases.
+ */
+public class Http2Options {
+
+  private int maxConcurrentStreams = 100;
+  private int maxConnectionsPerHost = 2;
+  private int maxQueuedRequestsPerHost = 1024;
+
+  public static Http2Options newInstance() {
+    return new Http2Options();
+  }
+
+  public Http2Options maxConcurrentStreams(int maxConcurrentStreams) {
+    Preconditions.checkArgument(maxConcurrentStreams > 0, "maxConcurrentStreams must be positive");
+    this.maxConcurrentStreams = maxConcurrentStreams;
+    return this;
+  }
+
+  public Http2Options maxConnectionsPerHost(int maxConnectionsPerHost) {
+    Preconditions.checkArgument(maxConnectionsPerHost > 0, "maxConnectionsPerHost must be positive");
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    return this;
+  }
+
+  /**
+   * Calls waiting for a stream once every connection to a host is full; calls beyond this fail at once.
+   */
+  public Http2Options maxQueuedRequestsPerHost(int maxQueuedRequestsPerHost) {
+    Preconditions.checkArgument(maxQueuedRequestsPerHost > 0, "maxQueuedRequestsPerHost must be positive");
+    this.maxQueuedRequestsPerHost = maxQueuedRequestsPerHost;
+    return this;
+  }
+
+  public int getMaxConcurrentStreams() {
+    return maxConcurrentStreams;
+  }
+
+  public int getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  public int getMaxQueuedRequestsPerHost() {
+    return maxQueuedRequestsPerHost;
+  }
+}
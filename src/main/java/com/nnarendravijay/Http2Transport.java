@@ -0,0 +1,27 @@
+package com.nnarendravijay;
+
+import org.glassfish.jersey.client.ClientConfig;
+
+/**
+ * HTTP/2 transport of a {@link RestClient}, which replaces the HTTP/1.1 connectors with an {@link Http2Connector}
+ * built from the client's own SSL context and hostname verifier.
+ */
+class Http2Transport {
+
+  private final Http2Options options;
+  private final long idleTimeoutMillis;
+
+  Http2Transport(RestClientConfig config) {
+    this.options = config.getHttp2Options();
+    this.idleTimeoutMillis = config.getIdleConnectionTimeoutMillis();
+  }
+
+  int getMaxConnectionsPerHost() {
+    return options.getMaxConnectionsPerHost();
+  }
+
+  ClientConfig clientConfig() {
+    return new ClientConfig().connectorProvider((client, runtimeConfig) -> new Http2Connector(options,
+        client.getSslContext(), client.getHostnameVerifier(), idleTimeoutMillis));
+  }
+}
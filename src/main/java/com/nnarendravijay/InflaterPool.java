@@ -0,0 +1,60 @@
+package com.nnarendravijay;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+
+/**
+ * Bounded pool of {@link Inflater}s with their input buffers, the decoding counterpart of {@link DeflaterPool},
+ * so decoding a response does not allocate native zlib state per response. Instances beyond the pool capacity
+ * are ended when returned.
+ */
+final class InflaterPool {
+
+  /**
+   * Raw deflate data, as found inside gzip members and in {@code deflate} bodies sent without the zlib wrapper.
+   */
+  static final InflaterPool RAW = new InflaterPool(true);
+  static final InflaterPool ZLIB = new InflaterPool(false);
+
+  private static final int CAPACITY = 32;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final boolean nowrap;
+  private final BlockingQueue<Decompressor> idle = new ArrayBlockingQueue<>(CAPACITY);
+
+  private InflaterPool(boolean nowrap) {
+    this.nowrap = nowrap;
+  }
+
+  Decompressor borrow() {
+    Decompressor decompressor = idle.poll();
+    return decompressor != null ? decompressor : new Decompressor(this);
+  }
+
+  private void release(Decompressor decompressor) {
+    decompressor.inflater.reset();
+    decompressor.crc.reset();
+    if (!idle.offer(decompressor)) {
+      decompressor.inflater.end();
+    }
+  }
+
+  static final class Decompressor implements AutoCloseable {
+    final Inflater inflater;
+    final CRC32 crc = new CRC32();
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    private final InflaterPool pool;
+
+    private Decompressor(InflaterPool pool) {
+      this.pool = pool;
+      this.inflater = new Inflater(pool.nowrap);
+    }
+
+    @Override
+    public void close() {
+      pool.release(this);
+    }
+  }
+}
@@ -0,0 +1,253 @@
+package com.nnarendravijay;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Decodes a {@code gzip} or {@code deflate} body with a pooled {@link Inflater}, which is returned to its pool as
+ * soon as the body is fully read or the stream is closed. Gzip headers, trailers and concatenated members are
+ * handled as by {@link java.util.zip.GZIPInputStream}; {@code deflate} accepts both the zlib wrapped form the
+ * specification asks for and the raw form some servers send. An empty body decodes to an empty stream.
+ */
+final class InflatingInputStream extends InputStream {
+
+  private static final int GZIP_MAGIC = 0x8b1f;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private final InputStream in;
+  private final boolean gzip;
+  private final byte[] single = new byte[1];
+
+  private InflaterPool.Decompressor decompressor;
+  private int pos;
+  private int limit;
+  private boolean started;
+  private boolean eof;
+  private boolean closed;
+
+  private InflatingInputStream(InputStream in, boolean gzip) {
+    this.in = in;
+    this.gzip = gzip;
+  }
+
+  static InputStream gzip(InputStream in) {
+    return new InflatingInputStream(in, true);
+  }
+
+  static InputStream deflate(InputStream in) {
+    return new InflatingInputStream(in, false);
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (!started) {
+      start();
+    }
+    while (!eof) {
+      Inflater inflater = decompressor.inflater;
+      int count;
+      try {
+        count = inflater.inflate(b, off, len);
+      } catch (DataFormatException e) {
+        throw new ZipException(e.getMessage());
+      }
+      if (count > 0) {
+        if (gzip) {
+          decompressor.crc.update(b, off, count);
+        }
+        return count;
+      }
+      if (inflater.finished()) {
+        pos = limit - inflater.getRemaining();
+        endOfMember();
+      } else if (inflater.needsDictionary()) {
+        throw new ZipException("Deflate streams with a preset dictionary are not supported");
+      } else if (inflater.needsInput()) {
+        if (pos == limit && !fill()) {
+          throw new EOFException("Unexpected end of " + (gzip ? "gzip" : "deflate") + " stream");
+        }
+        inflater.setInput(decompressor.buffer, pos, limit - pos);
+        pos = limit;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      release();
+      in.close();
+    }
+  }
+
+  private void start() throws IOException {
+    started = true;
+    if (gzip) {
+      decompressor = InflaterPool.RAW.borrow();
+      if (!readHeader()) {
+        finish();
+      }
+      return;
+    }
+    byte[] head = new byte[2];
+    int count = 0;
+    while (count < head.length) {
+      int read = in.read(head, count, head.length - count);
+      if (read < 0) {
+        break;
+      }
+      count += read;
+    }
+    if (count == 0) {
+      eof = true;
+      return;
+    }
+    boolean zlib = count == 2 && (head[0] & 0x0f) == Deflater.DEFLATED
+        && ((head[0] & 0xff) << 8 | head[1] & 0xff) % 31 == 0;
+    decompressor = (zlib ? InflaterPool.ZLIB : InflaterPool.RAW).borrow();
+    System.arraycopy(head, 0, decompressor.buffer, 0, count);
+    limit = count;
+  }
+
+  /**
+   * Reads a gzip member header, or returns {@code false} if the stream ends before its first byte.
+   */
+  private boolean readHeader() throws IOException {
+    int first = readByte();
+    if (first < 0) {
+      return false;
+    }
+    if ((readUnsignedByte() << 8 | first) != GZIP_MAGIC) {
+      throw new ZipException("Not in gzip format");
+    }
+    readMemberHeader();
+    return true;
+  }
+
+  /**
+   * Reads the rest of a gzip member header, after its two magic bytes.
+   */
+  private void readMemberHeader() throws IOException {
+    if (readUnsignedByte() != Deflater.DEFLATED) {
+      throw new ZipException("Unsupported gzip compression method");
+    }
+    int flags = readUnsignedByte();
+    skipBytes(6);
+    if ((flags & FEXTRA) != 0) {
+      skipBytes(readUnsignedByte() | readUnsignedByte() << 8);
+    }
+    if ((flags & FNAME) != 0) {
+      skipString();
+    }
+    if ((flags & FCOMMENT) != 0) {
+      skipString();
+    }
+    if ((flags & FHCRC) != 0) {
+      skipBytes(2);
+    }
+  }
+
+  private void endOfMember() throws IOException {
+    if (!gzip) {
+      finish();
+      return;
+    }
+    Inflater inflater = decompressor.inflater;
+    if (readIntLe() != decompressor.crc.getValue()) {
+      throw new ZipException("Corrupt gzip trailer, CRC mismatch");
+    }
+    if (readIntLe() != (inflater.getBytesWritten() & 0xffffffffL)) {
+      throw new ZipException("Corrupt gzip trailer, size mismatch");
+    }
+    // anything after the trailer is either another member or ignored, as GZIPInputStream does
+    if (readByte() == (GZIP_MAGIC & 0xff) && readByte() == GZIP_MAGIC >> 8) {
+      inflater.reset();
+      decompressor.crc.reset();
+      readMemberHeader();
+    } else {
+      finish();
+    }
+  }
+
+  private void finish() {
+    eof = true;
+    release();
+  }
+
+  private void release() {
+    if (decompressor != null) {
+      decompressor.close();
+      decompressor = null;
+    }
+  }
+
+  /**
+   * Refills the input buffer once it is used up, returning {@code false} at the end of the stream.
+   */
+  private boolean fill() throws IOException {
+    int read = in.read(decompressor.buffer, 0, decompressor.buffer.length);
+    if (read < 0) {
+      return false;
+    }
+    pos = 0;
+    limit = read;
+    return true;
+  }
+
+  private int readByte() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return decompressor.buffer[pos++] & 0xff;
+  }
+
+  private int readUnsignedByte() throws IOException {
+    int value = readByte();
+    if (value < 0) {
+      throw new EOFException("Unexpected end of gzip header or trailer");
+    }
+    return value;
+  }
+
+  private long readIntLe() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      value |= (long) readUnsignedByte() << shift;
+    }
+    return value;
+  }
+
+  private void skipBytes(int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      readUnsignedByte();
+    }
+  }
+
+  private void skipString() throws IOException {
+    int value;
+    do {
+      value = readUnsignedByte();
+    } while (value != 0);
+  }
+}
@@ -0,0 +1,137 @@
+package com.nnarendravijay;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily reads the elements of a JSON array, or the values of a newline delimited JSON (NDJSON) body, with
+ * Jackson's incremental parser. Only the element being read is held in memory, and elements are returned as
+ * soon as their bytes arrive. The underlying response is closed once the last element is read, when reading
+ * fails, or when the iterator is closed.
+ */
+public final class JsonIterator<T> implements Iterator<T>, Closeable {
+
+  private static final ObjectMapper DEFAULT_MAPPER = new ObjectMapper();
+
+  private final JsonParser parser;
+  private final ObjectMapper mapper;
+  private final Class<T> elementType;
+  private final Closeable resource;
+  private final boolean array;
+  private JsonToken next;
+  private boolean advanced;
+  private boolean closed;
+
+  private JsonIterator(JsonParser parser, ObjectMapper mapper, Class<T> elementType, Closeable resource)
+      throws IOException {
+    this.parser = parser;
+    this.mapper = mapper;
+    this.elementType = elementType;
+    this.resource = resource;
+    JsonToken first = parser.nextToken();
+    this.array = first == JsonToken.START_ARRAY;
+    if (!array) {
+      next = first;
+      advanced = true;
+    }
+  }
+
+  /**
+   * Reads {@code in} as a JSON array, when it starts with {@code [}, or as a sequence of whitespace separated
+   * JSON values otherwise. {@code resource} is closed along with the stream.
+   */
+  static <T> JsonIterator<T> of(InputStream in, Class<T> elementType, ObjectMapper mapper, Closeable resource) {
+    JsonParser parser = null;
+    try {
+      ObjectMapper reader = mapper == null ? DEFAULT_MAPPER : mapper;
+      parser = reader.getFactory().createParser(in);
+      return new JsonIterator<>(parser, reader, elementType, resource);
+    } catch (IOException e) {
+      closeQuietly(parser, resource);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (closed) {
+      return false;
+    }
+    if (!advanced) {
+      try {
+        next = parser.nextToken();
+      } catch (IOException e) {
+        closeQuietly(this);
+        throw new UncheckedIOException(e);
+      }
+      advanced = true;
+    }
+    if (next == null || array && next == JsonToken.END_ARRAY) {
+      closeQuietly(this);
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      T element = mapper.readValue(parser, elementType);
+      advanced = false;
+      return element;
+    } catch (IOException e) {
+      closeQuietly(this);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * A sequential stream over the remaining elements; closing the stream closes this iterator.
+   */
+  public Stream<T> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+        .onClose(() -> closeQuietly(this));
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      parser.close();
+    } finally {
+      if (resource != null) {
+        resource.close();
+      }
+    }
+  }
+
+  private static void closeQuietly(Closeable... closeables) {
+    for (Closeable closeable : closeables) {
+      try {
+        if (closeable != null) {
+          closeable.close();
+        }
+      } catch (IOException e) {
+        // the read failure or end of data being reported matters more
+      }
+    }
+  }
+}
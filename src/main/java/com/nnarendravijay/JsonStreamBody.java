@@ -0,0 +1,115 @@
+package com.nnarendravijay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Preconditions;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Request entity that serializes a sequence of elements as they are pulled from their source, written either
+ * as one JSON array or as newline delimited JSON (NDJSON). Requests carrying one are sent with chunked transfer
+ * encoding, so the payload is never staged in memory as a whole. A body built from an {@link Iterable} can be
+ * sent again, for instance by a retry; one built from an {@link Iterator} or {@link Stream} can be sent once.
+ */
+public final class JsonStreamBody {
+
+  private static final ObjectWriter DEFAULT_WRITER = new ObjectMapper().writer()
+      .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+  private final Iterable<?> iterable;
+  private final Iterator<?> iterator;
+  private final Stream<?> stream;
+  private final boolean ndjson;
+  private final ObjectWriter writer;
+  private final AtomicBoolean consumed;
+
+  private JsonStreamBody(Iterable<?> iterable, Iterator<?> iterator, Stream<?> stream, boolean ndjson,
+      ObjectWriter writer, AtomicBoolean consumed) {
+    this.iterable = iterable;
+    this.iterator = iterator;
+    this.stream = stream;
+    this.ndjson = ndjson;
+    this.writer = writer;
+    this.consumed = consumed;
+  }
+
+  public static JsonStreamBody of(Iterable<?> elements) {
+    Preconditions.checkNotNull(elements, "elements cannot be null");
+    return new JsonStreamBody(elements, null, null, false, DEFAULT_WRITER, new AtomicBoolean());
+  }
+
+  public static JsonStreamBody of(Iterator<?> elements) {
+    Preconditions.checkNotNull(elements, "elements cannot be null");
+    return new JsonStreamBody(null, elements, null, false, DEFAULT_WRITER, new AtomicBoolean());
+  }
+
+  /**
+   * Streams the elements of {@code elements}, closing it once the body is written.
+   */
+  public static JsonStreamBody of(Stream<?> elements) {
+    Preconditions.checkNotNull(elements, "elements cannot be null");
+    return new JsonStreamBody(null, null, elements, false, DEFAULT_WRITER, new AtomicBoolean());
+  }
+
+  /**
+   * Writes one element per line instead of a JSON array.
+   */
+  public JsonStreamBody asNdjson() {
+    return new JsonStreamBody(iterable, iterator, stream, true, writer, consumed);
+  }
+
+  /**
+   * Serializes every element as {@code elementType}, so the serializer is resolved once rather than looked up
+   * for each element.
+   */
+  public JsonStreamBody elementType(Class<?> elementType) {
+    Preconditions.checkNotNull(elementType, "elementType cannot be null");
+    return new JsonStreamBody(iterable, iterator, stream, ndjson, writer.withType(elementType), consumed);
+  }
+
+  /**
+   * Serializes elements with a writer of the given mapper instead of a default {@link ObjectMapper}.
+   */
+  public JsonStreamBody withMapper(ObjectMapper mapper) {
+    Preconditions.checkNotNull(mapper, "mapper cannot be null");
+    return new JsonStreamBody(iterable, iterator, stream, ndjson,
+        mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE), consumed);
+  }
+
+  public boolean isNdjson() {
+    return ndjson;
+  }
+
+  /**
+   * Whether the body can be written more than once.
+   */
+  public boolean isRepeatable() {
+    return iterable != null;
+  }
+
+  ObjectWriter writer() {
+    return writer;
+  }
+
+  /**
+   * The elements to write. Single use sources are handed out once and fail on a second write rather than send
+   * an empty or partial body.
+   */
+  Iterator<?> elements() {
+    if (iterable != null) {
+      return iterable.iterator();
+    }
+    Preconditions.checkState(consumed.compareAndSet(false, true), "The elements of this body were already sent");
+    return iterator != null ? iterator : stream.iterator();
+  }
+
+  void close() {
+    if (stream != null) {
+      stream.close();
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.nnarendravijay;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+
+/**
+ * Writes a {@link JsonStreamBody} through one {@link JsonGenerator}, pulling and serializing one element at a
+ * time. The generator is only flushed at the end; the connection sends chunks as its buffer fills.
+ */
+final class JsonStreamBodyWriter implements MessageBodyWriter<JsonStreamBody> {
+
+  @Override
+  public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+    return JsonStreamBody.class.isAssignableFrom(type);
+  }
+
+  @Override
+  public long getSize(JsonStreamBody body, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return -1;
+  }
+
+  @Override
+  public void writeTo(JsonStreamBody body, Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+      throws IOException, WebApplicationException {
+
+    ObjectWriter writer = body.writer();
+    try (JsonGenerator generator = writer.getFactory().createGenerator(entityStream, JsonEncoding.UTF8)) {
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      generator.setRootValueSeparator(null);
+      Iterator<?> elements = body.elements();
+      if (body.isNdjson()) {
+        while (elements.hasNext()) {
+          writer.writeValue(generator, elements.next());
+          generator.writeRaw('\n');
+        }
+      } else {
+        generator.writeStartArray();
+        while (elements.hasNext()) {
+          writer.writeValue(generator, elements.next());
+        }
+        generator.writeEndArray();
+      }
+    } finally {
+      body.close();
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.nnarendravijay;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of microsecond latencies, in the spirit of HdrHistogram. Every power of two
+ * is split into 32 linear sub-buckets, which keeps quantiles within about 3% of the recorded values.
+ * Recording is a handful of atomic increments and never allocates.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder totalCount = new LongAdder();
+  private final LongAdder totalMicros = new LongAdder();
+  private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+  public void record(long micros) {
+    long value = Math.max(0, micros);
+    counts.incrementAndGet(bucketIndex(value));
+    totalCount.increment();
+    totalMicros.add(value);
+    maxMicros.accumulate(value);
+  }
+
+  public long getCount() {
+    return totalCount.sum();
+  }
+
+  public long getMaxMicros() {
+    return maxMicros.get();
+  }
+
+  public double getMeanMicros() {
+    long count = totalCount.sum();
+    return count == 0 ? 0 : (double) totalMicros.sum() / count;
+  }
+
+  /**
+   * Upper bound, in microseconds, of the bucket holding the given quantile (0 to 1) of the recorded values.
+   */
+  public long getValueAtQuantile(double quantile) {
+    long[] snapshot = new long[BUCKET_COUNT];
+    long count = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(bucketUpperBound(i), getMaxMicros());
+      }
+    }
+    return getMaxMicros();
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+    return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) ((value >>> shift) - SUB_BUCKET_HALF);
+  }
+
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int offset = index - SUB_BUCKET_COUNT;
+    int shift = offset / SUB_BUCKET_HALF + 1;
+    long mantissa = offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+    return ((mantissa + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,275 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * A logical service served by several replicas, registered with
+ * {@link RestClient#loadBalancedTarget(String, Collection, LoadBalancerPolicy)}. Requests are addressed to
+ * {@code lb://<serviceName>/path}, for instance through {@code buildUri(target.getBaseUri().toString(), ...)},
+ * and every attempt, retries and hedges included, is sent to the replica picked by the
+ * {@link LoadBalancerPolicy} at that moment, with the path and query appended to the replica base URI. Replica
+ * health is tracked passively from the outcome of those attempts.
+ */
+public final class LoadBalancedTarget {
+
+  static final String SCHEME = "lb";
+
+  private static final Pattern SERVICE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9.-]*");
+
+  private final String serviceName;
+  private final URI baseUri;
+  private final LoadBalancerPolicy policy;
+  private final long decayNanos;
+  private volatile List<Replica> replicas = ImmutableList.of();
+
+  LoadBalancedTarget(String serviceName, Collection<URI> replicaUris, LoadBalancerPolicy policy) {
+    Preconditions.checkArgument(serviceName != null && SERVICE_NAME.matcher(serviceName).matches(),
+        "serviceName must be a valid host name, got %s", serviceName);
+    Preconditions.checkNotNull(policy, "policy cannot be null");
+    this.serviceName = serviceName;
+    this.baseUri = URI.create(SCHEME + "://" + serviceName);
+    this.policy = policy.copy();
+    this.decayNanos = TimeUnit.MILLISECONDS.toNanos(this.policy.getEwmaDecayMillis());
+    setReplicas(replicaUris);
+  }
+
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  /**
+   * The {@code lb://<serviceName>} URI that requests to this target start with.
+   */
+  public URI getBaseUri() {
+    return baseUri;
+  }
+
+  /**
+   * Replaces the replicas, for instance after a service discovery update. Replicas that stay keep their
+   * statistics and ejection state; attempts in flight to removed replicas complete normally.
+   */
+  public synchronized void setReplicas(Collection<URI> replicaUris) {
+    Preconditions.checkArgument(replicaUris != null && !replicaUris.isEmpty(), "replicaUris cannot be empty");
+    Map<URI, Replica> current = new HashMap<>();
+    for (Replica replica : replicas) {
+      current.put(replica.baseUri, replica);
+    }
+    List<Replica> updated = new ArrayList<>(replicaUris.size());
+    for (URI replicaUri : replicaUris) {
+      Preconditions.checkArgument(replicaUri.isAbsolute() && replicaUri.getHost() != null,
+          "Replica %s must be an absolute URI with a host", replicaUri);
+      Preconditions.checkArgument(replicaUri.getRawQuery() == null && replicaUri.getRawFragment() == null,
+          "Replica %s cannot have a query or fragment", replicaUri);
+      Replica replica = current.remove(replicaUri);
+      updated.add(replica != null ? replica : new Replica(replicaUri));
+    }
+    replicas = ImmutableList.copyOf(updated);
+  }
+
+  public List<ReplicaStats> getStats() {
+    long now = System.nanoTime();
+    List<ReplicaStats> stats = new ArrayList<>();
+    for (Replica replica : replicas) {
+      stats.add(new ReplicaStats(replica.baseUri, replica.inFlight.get(), replica.ewmaNanos / 1e6,
+          replica.requests.sum(), replica.failures.sum(), replica.isEjected(now), replica.ejections));
+    }
+    return stats;
+  }
+
+  /**
+   * {@code logical} addressed to each of the replicas.
+   */
+  List<URI> resolveAll(URI logical) {
+    List<URI> resolved = new ArrayList<>();
+    for (Replica replica : replicas) {
+      resolved.add(replica.resolve(logical));
+    }
+    return resolved;
+  }
+
+  /**
+   * Picks a replica for one attempt of {@code request}, which must be addressed to this target.
+   */
+  Lease lease(RestRequest request) {
+    Replica replica = choose(replicas, System.nanoTime());
+    replica.inFlight.incrementAndGet();
+    replica.requests.increment();
+    return new Lease(replica, request.withUri(replica.resolve(request.getUri())));
+  }
+
+  private Replica choose(List<Replica> candidates, long now) {
+    int size = candidates.size();
+    if (size == 1) {
+      return candidates.get(0);
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    if (policy.getSelection() == LoadBalancerPolicy.Selection.POWER_OF_TWO_CHOICES) {
+      int firstIndex = random.nextInt(size);
+      int secondIndex = random.nextInt(size - 1);
+      Replica first = candidates.get(firstIndex);
+      Replica second = candidates.get(secondIndex >= firstIndex ? secondIndex + 1 : secondIndex);
+      boolean firstEjected = first.isEjected(now);
+      boolean secondEjected = second.isEjected(now);
+      if (!firstEjected && !secondEjected) {
+        return first.cost() <= second.cost() ? first : second;
+      } else if (firstEjected != secondEjected) {
+        return firstEjected ? second : first;
+      }
+    }
+    // least outstanding requests, or both choices ejected: scan from a random start so ties spread evenly
+    Replica best = null;
+    int start = random.nextInt(size);
+    for (int i = 0; i < size; i++) {
+      Replica replica = candidates.get((start + i) % size);
+      if (!replica.isEjected(now) && (best == null || replica.isLessLoadedThan(best))) {
+        best = replica;
+      }
+    }
+    return best != null ? best : candidates.get(start);
+  }
+
+  private boolean canEject(long now) {
+    List<Replica> current = replicas;
+    int ejected = 0;
+    for (Replica replica : current) {
+      if (replica.isEjected(now)) {
+        ejected++;
+      }
+    }
+    return ejected + 1 <= (int) (current.size() * policy.getMaxEjectedRatio());
+  }
+
+  private final class Replica {
+    private final URI baseUri;
+    private final String base;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile double ewmaNanos;
+    private long lastSampleNanos = System.nanoTime();
+    private volatile long ejectedUntilNanos = lastSampleNanos;
+    private int consecutiveFailures;
+    private int ejectionsSinceSuccess;
+    private volatile long ejections;
+
+    private Replica(URI baseUri) {
+      this.baseUri = baseUri;
+      String uri = baseUri.toString();
+      this.base = uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    URI resolve(URI logical) {
+      StringBuilder resolved = new StringBuilder(base);
+      if (logical.getRawPath() != null) {
+        resolved.append(logical.getRawPath());
+      }
+      if (logical.getRawQuery() != null) {
+        resolved.append('?').append(logical.getRawQuery());
+      }
+      if (logical.getRawFragment() != null) {
+        resolved.append('#').append(logical.getRawFragment());
+      }
+      return URI.create(resolved.toString());
+    }
+
+    boolean isEjected(long now) {
+      return ejectedUntilNanos - now > 0;
+    }
+
+    /**
+     * Expected wait of one more request: latency EWMA times the requests it would queue behind, plus one so
+     * replicas without samples yet are still told apart by their outstanding requests.
+     */
+    double cost() {
+      return (ewmaNanos + 1) * (inFlight.get() + 1);
+    }
+
+    boolean isLessLoadedThan(Replica other) {
+      int outstanding = inFlight.get();
+      int otherOutstanding = other.inFlight.get();
+      return outstanding < otherOutstanding || outstanding == otherOutstanding && ewmaNanos < other.ewmaNanos;
+    }
+
+    synchronized void record(long latencyNanos, boolean failure, long now) {
+      // peak EWMA: a slower sample is taken as is, faster ones are blended in by how recent the last one was
+      double weight = Math.exp(-Math.max(0, now - lastSampleNanos) / (double) decayNanos);
+      ewmaNanos = latencyNanos > ewmaNanos ? latencyNanos : ewmaNanos * weight + latencyNanos * (1 - weight);
+      lastSampleNanos = now;
+
+      if (!failure) {
+        consecutiveFailures = 0;
+        ejectionsSinceSuccess = 0;
+        return;
+      }
+      failures.increment();
+      int threshold = policy.getConsecutiveFailures();
+      if (threshold > 0 && ++consecutiveFailures >= threshold && !isEjected(now) && canEject(now)) {
+        ejectionsSinceSuccess++;
+        ejections++;
+        long ejectionMillis = Math.min(policy.getEjectionMillis() * ejectionsSinceSuccess,
+            policy.getMaxEjectionMillis());
+        ejectedUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(ejectionMillis);
+        consecutiveFailures = 0;
+      }
+    }
+  }
+
+  /**
+   * One attempt sent to a replica. Exactly one of the outcome methods takes effect; later calls are ignored.
+   */
+  final class Lease {
+    private final Replica replica;
+    private final RestRequest request;
+    private final long startNanos = System.nanoTime();
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    private Lease(Replica replica, RestRequest request) {
+      this.replica = replica;
+      this.request = request;
+    }
+
+    /**
+     * The request addressed to the chosen replica.
+     */
+    RestRequest getRequest() {
+      return request;
+    }
+
+    void completed(int status) {
+      release(status >= 500);
+    }
+
+    void failed() {
+      release(true);
+    }
+
+    void cancelled() {
+      if (done.compareAndSet(false, true)) {
+        replica.inFlight.decrementAndGet();
+        replica.requests.decrement();
+      }
+    }
+
+    private void release(boolean failure) {
+      if (done.compareAndSet(false, true)) {
+        long now = System.nanoTime();
+        replica.inFlight.decrementAndGet();
+        replica.record(now - startNanos, failure, now);
+      }
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * How a {@link LoadBalancedTarget} picks a replica for each attempt, and when it stops sending to a failing one.
+ * A replica that answers {@code consecutiveFailures} times in a row with a connection failure or a 5xx status is
+ * ejected for {@code ejectionMillis}, longer each time it is ejected again, but never more than
+ * {@code maxEjectedRatio} of the replicas at once.
+ */
+public class LoadBalancerPolicy {
+
+  public enum Selection {
+    /**
+     * Two replicas are drawn at random and the one with the lower latency EWMA times outstanding requests wins.
+     */
+    POWER_OF_TWO_CHOICES,
+    /**
+     * The replica with the fewest outstanding requests wins, ties going to the lower latency EWMA.
+     */
+    LEAST_OUTSTANDING_REQUESTS
+  }
+
+  private Selection selection = Selection.POWER_OF_TWO_CHOICES;
+  private long ewmaDecayMillis = 10000;
+  private int consecutiveFailures = 5;
+  private long ejectionMillis = 30000;
+  private long maxEjectionMillis = 300000;
+  private double maxEjectedRatio = 0.5;
+
+  public static LoadBalancerPolicy newInstance() {
+    return new LoadBalancerPolicy();
+  }
+
+  public LoadBalancerPolicy selection(Selection selection) {
+    this.selection = Preconditions.checkNotNull(selection, "selection cannot be null");
+    return this;
+  }
+
+  /**
+   * Time constant of the latency EWMA: a sample this old weighs about a third of a fresh one.
+   */
+  public LoadBalancerPolicy ewmaDecayMillis(long ewmaDecayMillis) {
+    Preconditions.checkArgument(ewmaDecayMillis > 0, "ewmaDecayMillis must be positive");
+    this.ewmaDecayMillis = ewmaDecayMillis;
+    return this;
+  }
+
+  /**
+   * Failures in a row that eject a replica. Zero turns ejection off.
+   */
+  public LoadBalancerPolicy consecutiveFailures(int consecutiveFailures) {
+    Preconditions.checkArgument(consecutiveFailures >= 0, "consecutiveFailures cannot be negative");
+    this.consecutiveFailures = consecutiveFailures;
+    return this;
+  }
+
+  /**
+   * Ejection time of a first ejection, multiplied by the number of times the replica was ejected since it last
+   * answered successfully.
+   */
+  public LoadBalancerPolicy ejectionMillis(long ejectionMillis) {
+    Preconditions.checkArgument(ejectionMillis > 0, "ejectionMillis must be positive");
+    this.ejectionMillis = ejectionMillis;
+    return this;
+  }
+
+  public LoadBalancerPolicy maxEjectionMillis(long maxEjectionMillis) {
+    Preconditions.checkArgument(maxEjectionMillis > 0, "maxEjectionMillis must be positive");
+    this.maxEjectionMillis = maxEjectionMillis;
+    return this;
+  }
+
+  /**
+   * Largest share, between 0 and 1, of replicas that may be ejected at the same time.
+   */
+  public LoadBalancerPolicy maxEjectedRatio(double maxEjectedRatio) {
+    Preconditions.checkArgument(maxEjectedRatio >= 0 && maxEjectedRatio <= 1,
+        "maxEjectedRatio must be between 0 and 1");
+    this.maxEjectedRatio = maxEjectedRatio;
+    return this;
+  }
+
+  public Selection getSelection() {
+    return selection;
+  }
+
+  public long getEwmaDecayMillis() {
+    return ewmaDecayMillis;
+  }
+
+  public int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  public long getEjectionMillis() {
+    return ejectionMillis;
+  }
+
+  public long getMaxEjectionMillis() {
+    return maxEjectionMillis;
+  }
+
+  public double getMaxEjectedRatio() {
+    return maxEjectedRatio;
+  }
+
+  LoadBalancerPolicy copy() {
+    return newInstance().selection(selection).ewmaDecayMillis(ewmaDecayMillis)
+        .consecutiveFailures(consecutiveFailures).ejectionMillis(ejectionMillis)
+        .maxEjectionMillis(maxEjectionMillis).maxEjectedRatio(maxEjectedRatio);
+  }
+}
@@ -0,0 +1,138 @@
+package com.nnarendravijay;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point in time copy of the {@link ClientMetrics} of a client, grouped by host.
+ */
+public class MetricsSnapshot {
+
+  private final List<HostSnapshot> hosts;
+
+  MetricsSnapshot(List<HostSnapshot> hosts) {
+    this.hosts = Collections.unmodifiableList(hosts);
+  }
+
+  public List<HostSnapshot> getHosts() {
+    return hosts;
+  }
+
+  public HostSnapshot getHost(String host) {
+    for (HostSnapshot snapshot : hosts) {
+      if (snapshot.getHost().equals(host)) {
+        return snapshot;
+      }
+    }
+    return null;
+  }
+
+  public static class HostSnapshot {
+    private final String host;
+    private final long inFlight;
+    private final long bytesIn;
+    private final long bytesOut;
+    private final List<LatencySnapshot> latencies;
+
+    HostSnapshot(String host, long inFlight, long bytesIn, long bytesOut, List<LatencySnapshot> latencies) {
+      this.host = host;
+      this.inFlight = inFlight;
+      this.bytesIn = bytesIn;
+      this.bytesOut = bytesOut;
+      this.latencies = Collections.unmodifiableList(latencies);
+    }
+
+    public String getHost() {
+      return host;
+    }
+
+    public long getInFlight() {
+      return inFlight;
+    }
+
+    public long getBytesIn() {
+      return bytesIn;
+    }
+
+    public long getBytesOut() {
+      return bytesOut;
+    }
+
+    public List<LatencySnapshot> getLatencies() {
+      return latencies;
+    }
+
+    public LatencySnapshot getLatency(String method, int statusClass) {
+      for (LatencySnapshot latency : latencies) {
+        if (latency.getMethod().equals(method) && latency.getStatusClass() == statusClass) {
+          return latency;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Latency of one HTTP method and status class (2 for 2xx and so on, 0 for requests that got no response),
+   * in microseconds.
+   */
+  public static class LatencySnapshot {
+    private final String method;
+    private final int statusClass;
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    LatencySnapshot(String method, int statusClass, LatencyHistogram histogram) {
+      this.method = method;
+      this.statusClass = statusClass;
+      this.count = histogram.getCount();
+      this.mean = histogram.getMeanMicros();
+      this.p50 = histogram.getValueAtQuantile(0.5);
+      this.p99 = histogram.getValueAtQuantile(0.99);
+      this.p999 = histogram.getValueAtQuantile(0.999);
+      this.max = histogram.getMaxMicros();
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public int getStatusClass() {
+      return statusClass;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    public long getP50() {
+      return p50;
+    }
+
+    public long getP99() {
+      return p99;
+    }
+
+    public long getP999() {
+      return p999;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return method + " " + statusClass + "xx count=" + count + " p50=" + p50 + "us p99=" + p99 + "us p999=" + p999
+          + "us max=" + max + "us";
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A token bucket limiting the calls of a {@link RestClient} to a host or route, see
+ * {@link RestClientConfig#rateLimit(String, RateLimitPolicy)}. The bucket refills at {@code permitsPerSecond}
+ * and holds up to {@code burst} permits. A call that finds it empty waits for the next permit, for up to
+ * {@code maxWaitMillis}, or is rejected with a {@link RejectedRequestException} right away with
+ * {@link Mode#REJECT}. Calls sent asynchronously wait without holding a thread.
+ *
+ * <p>When {@code adaptive}, the default, the bucket also follows what the server says: it pauses for the
+ * {@code Retry-After} of a 429, and paces calls to the {@code RateLimit-Remaining} or
+ * {@code X-RateLimit-Remaining} permits left until {@code RateLimit-Reset} or {@code X-RateLimit-Reset}.
+ */
+public class RateLimitPolicy {
+
+  public enum Mode {
+    WAIT,
+    REJECT
+  }
+
+  private double permitsPerSecond = 10;
+  private int burst = -1;
+  private Mode mode = Mode.WAIT;
+  private long maxWaitMillis = 1000;
+  private boolean adaptive = true;
+
+  public static RateLimitPolicy newInstance() {
+    return new RateLimitPolicy();
+  }
+
+  public RateLimitPolicy permitsPerSecond(double permitsPerSecond) {
+    Preconditions.checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive");
+    this.permitsPerSecond = permitsPerSecond;
+    return this;
+  }
+
+  /**
+   * Permits that can be taken at once after the bucket has been idle. One second's worth by default.
+   */
+  public RateLimitPolicy burst(int burst) {
+    Preconditions.checkArgument(burst > 0, "burst must be positive");
+    this.burst = burst;
+    return this;
+  }
+
+  public RateLimitPolicy mode(Mode mode) {
+    this.mode = Preconditions.checkNotNull(mode, "mode cannot be null");
+    return this;
+  }
+
+  /**
+   * How long a call waits for a permit in {@link Mode#WAIT} before it is rejected instead.
+   */
+  public RateLimitPolicy maxWaitMillis(long maxWaitMillis) {
+    Preconditions.checkArgument(maxWaitMillis >= 0, "maxWaitMillis cannot be negative");
+    this.maxWaitMillis = maxWaitMillis;
+    return this;
+  }
+
+  public RateLimitPolicy adaptive(boolean adaptive) {
+    this.adaptive = adaptive;
+    return this;
+  }
+
+  public double getPermitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  public int getBurst() {
+    return burst > 0 ? burst : (int) Math.max(1, Math.ceil(permitsPerSecond));
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public long getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  RateLimitPolicy copy() {
+    RateLimitPolicy copy = newInstance().permitsPerSecond(permitsPerSecond).mode(mode).maxWaitMillis(maxWaitMillis)
+        .adaptive(adaptive);
+    copy.burst = burst;
+    return copy;
+  }
+}
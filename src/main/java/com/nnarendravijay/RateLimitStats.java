@@ -0,0 +1,76 @@
+package com.nnarendravijay;
+
+/**
+ * Point in time view of one rate limit of a {@link RestClient}, see {@link RateLimitPolicy}.
+ */
+public class RateLimitStats {
+
+  private final String name;
+  private final double permitsPerSecond;
+  private final long waitMillis;
+  private final long granted;
+  private final long delayed;
+  private final long rejected;
+  private final long throttled;
+
+  RateLimitStats(String name, double permitsPerSecond, long waitMillis, long granted, long delayed, long rejected,
+      long throttled) {
+    this.name = name;
+    this.permitsPerSecond = permitsPerSecond;
+    this.waitMillis = waitMillis;
+    this.granted = granted;
+    this.delayed = delayed;
+    this.rejected = rejected;
+    this.throttled = throttled;
+  }
+
+  /**
+   * The host, or the host followed by the path template, the limit was set for.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The current refill rate, lower than the configured one while the server asks for slower pacing.
+   */
+  public double getPermitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  /**
+   * How long a call made now would wait for its permit.
+   */
+  public long getWaitMillis() {
+    return waitMillis;
+  }
+
+  public long getGranted() {
+    return granted;
+  }
+
+  /**
+   * Granted calls that had to wait for their permit.
+   */
+  public long getDelayed() {
+    return delayed;
+  }
+
+  public long getRejected() {
+    return rejected;
+  }
+
+  /**
+   * Responses that paused the limit: 429, and 503 with a {@code Retry-After}.
+   */
+  public long getThrottled() {
+    return throttled;
+  }
+
+  @Override
+  public String toString() {
+    return "RateLimitStats{name=" + name + ", permitsPerSecond=" + String.format("%.2f", permitsPerSecond)
+        + ", waitMillis=" + waitMillis + ", granted=" + granted + ", delayed=" + delayed + ", rejected=" + rejected
+        + ", throttled=" + throttled + "}";
+  }
+}
@@ -0,0 +1,377 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per host and per route token buckets of a {@link RestClient}. Every attempt takes a permit from the bucket of
+ * its host and from the bucket of the first route it matches, if any, before it is sent.
+ *
+ * <p>A bucket is kept as the time its next permit is free, so taking a permit, or reserving one in the future,
+ * is a single CAS. Burst is the tolerance by which that time may run behind the clock.
+ */
+final class RateLimiter {
+
+  private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-client-rate-limit").build());
+  private static final String RETRY_AFTER = "Retry-After";
+  private static final long DEFAULT_PAUSE_MILLIS = 1000;
+  private static final long EPOCH_SECONDS_THRESHOLD = 1000000000L;
+
+  private final Map<String, Bucket> hosts = new HashMap<>();
+  private final List<Route> routes = new ArrayList<>();
+
+  RateLimiter(List<Rule> rules) {
+    for (Rule rule : rules) {
+      if (rule.pathTemplate == null) {
+        Preconditions.checkArgument(!hosts.containsKey(rule.host), "Rate limit for %s is set twice", rule.host);
+        hosts.put(rule.host, new Bucket(rule.host, rule.policy));
+      } else {
+        routes.add(new Route(rule.host, rule.pathTemplate, new Bucket(rule.host + rule.pathTemplate, rule.policy)));
+      }
+    }
+  }
+
+  /**
+   * Takes the permits for one attempt to {@code uri}, and returns how long the attempt has to wait for them,
+   * or null when no bucket applies.
+   *
+   * @throws RejectedRequestException when a permit is not free soon enough for its policy
+   */
+  Ticket reserve(URI uri) {
+    String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+    Bucket hostBucket = hosts.get(host + ":" + port(uri));
+    if (hostBucket == null) {
+      hostBucket = hosts.get(host);
+    }
+    Bucket routeBucket = null;
+    String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+    for (Route route : routes) {
+      if (route.matches(host, port(uri), path)) {
+        routeBucket = route.bucket;
+        break;
+      }
+    }
+    if (hostBucket == null && routeBucket == null) {
+      return null;
+    }
+
+    long now = System.nanoTime();
+    long delay = 0;
+    if (hostBucket != null) {
+      delay = hostBucket.reserve(now);
+    }
+    if (routeBucket != null) {
+      try {
+        delay = Math.max(delay, routeBucket.reserve(now));
+      } catch (RejectedRequestException e) {
+        if (hostBucket != null) {
+          hostBucket.refund(now);
+        }
+        throw e;
+      }
+    }
+    return new Ticket(hostBucket, routeBucket, delay);
+  }
+
+  List<RateLimitStats> getStats() {
+    List<RateLimitStats> stats = new ArrayList<>();
+    long now = System.nanoTime();
+    for (Bucket bucket : hosts.values()) {
+      stats.add(bucket.stats(now));
+    }
+    for (Route route : routes) {
+      stats.add(route.bucket.stats(now));
+    }
+    return stats;
+  }
+
+  static ScheduledFuture<?> schedule(Runnable task, long delayNanos) {
+    return TIMER.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private static int port(URI uri) {
+    return uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+  }
+
+  /**
+   * Reads an integer rate limit header, or -1 when it is missing or not a number.
+   */
+  private static long header(Response response, String name) {
+    String value = response.getHeaderString(name);
+    if (value == null) {
+      value = response.getHeaderString("X-" + name);
+    }
+    if (value == null) {
+      return -1;
+    }
+    try {
+      // the draft standard allows a quota policy after a semicolon
+      int end = value.indexOf(';');
+      return Math.max(0, (long) Double.parseDouble((end < 0 ? value : value.substring(0, end)).trim()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * A rate limit set with {@link RestClientConfig#rateLimit(String, RateLimitPolicy)} or
+   * {@link RestClientConfig#rateLimit(String, String, RateLimitPolicy)}.
+   */
+  static final class Rule {
+    private final String host;
+    private final String pathTemplate;
+    private final RateLimitPolicy policy;
+
+    Rule(String host, String pathTemplate, RateLimitPolicy policy) {
+      Preconditions.checkArgument(host != null && !host.trim().isEmpty(), "host cannot be blank");
+      Preconditions.checkArgument(pathTemplate == null || pathTemplate.startsWith("/"),
+          "pathTemplate must start with /, got %s", pathTemplate);
+      Preconditions.checkNotNull(policy, "policy cannot be null");
+      this.host = host.trim().toLowerCase(Locale.ROOT);
+      this.pathTemplate = pathTemplate;
+      this.policy = policy.copy();
+    }
+  }
+
+  private static final class Route {
+    private final String host;
+    private final Pattern path;
+    private final Bucket bucket;
+
+    private Route(String host, String pathTemplate, Bucket bucket) {
+      this.host = host;
+      this.path = compile(pathTemplate);
+      this.bucket = bucket;
+    }
+
+    boolean matches(String requestHost, int requestPort, String requestPath) {
+      return (host.equals(requestHost) || host.equals(requestHost + ":" + requestPort))
+          && path.matcher(requestPath).matches();
+    }
+
+    /**
+     * Turns a {@code buildUri} path template into a pattern matching the end of a request path, so the
+     * template matches whatever base path it is appended to. {@code {name}} matches one path segment and
+     * {@code {name: regex}} the given regex.
+     */
+    private static Pattern compile(String pathTemplate) {
+      int query = pathTemplate.indexOf('?');
+      String template = query < 0 ? pathTemplate : pathTemplate.substring(0, query);
+      StringBuilder regex = new StringBuilder(".*");
+      int literalStart = 0;
+      int i = 0;
+      while (i < template.length()) {
+        if (template.charAt(i) != '{') {
+          i++;
+          continue;
+        }
+        if (i > literalStart) {
+          regex.append(Pattern.quote(template.substring(literalStart, i)));
+        }
+        int depth = 1;
+        int end = i + 1;
+        while (end < template.length() && depth > 0) {
+          char c = template.charAt(end++);
+          depth += c == '{' ? 1 : c == '}' ? -1 : 0;
+        }
+        Preconditions.checkArgument(depth == 0, "Unbalanced braces in path template %s", pathTemplate);
+        String variable = template.substring(i + 1, end - 1);
+        int colon = variable.indexOf(':');
+        regex.append("(?:").append(colon < 0 ? "[^/]+" : variable.substring(colon + 1).trim()).append(')');
+        literalStart = end;
+        i = end;
+      }
+      if (literalStart < template.length()) {
+        regex.append(Pattern.quote(template.substring(literalStart)));
+      }
+      return Pattern.compile(regex.append("/?").toString());
+    }
+  }
+
+  private static final class Bucket {
+    private final String name;
+    private final RateLimitPolicy policy;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final long maxWaitNanos;
+    private final AtomicLong nextFreeNanos;
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private volatile Pace pace;
+
+    private Bucket(String name, RateLimitPolicy policy) {
+      this.name = name;
+      this.policy = policy;
+      this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / policy.getPermitsPerSecond()));
+      this.toleranceNanos = intervalNanos * (policy.getBurst() - 1);
+      this.maxWaitNanos = policy.getMode() == RateLimitPolicy.Mode.REJECT ? 0
+          : TimeUnit.MILLISECONDS.toNanos(policy.getMaxWaitMillis());
+      this.nextFreeNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @return nanoseconds until the permit taken is free
+     */
+    long reserve(long now) {
+      long interval = interval(now);
+      while (true) {
+        long current = nextFreeNanos.get();
+        long base = current - now > 0 ? current : now;
+        long wait = base - toleranceNanos - now;
+        if (wait > maxWaitNanos) {
+          rejected.increment();
+          throw new RejectedRequestException(name, RejectedRequestException.Reason.RATE_LIMITED);
+        }
+        if (nextFreeNanos.compareAndSet(current, base + interval)) {
+          granted.increment();
+          if (wait > 0) {
+            delayed.increment();
+          }
+          return Math.max(0, wait);
+        }
+      }
+    }
+
+    void refund(long now) {
+      nextFreeNanos.addAndGet(-interval(now));
+      granted.decrement();
+    }
+
+    void adapt(Response response) {
+      long now = System.nanoTime();
+      int status = response.getStatus();
+      if (status == 429 || status == Response.Status.SERVICE_UNAVAILABLE.getStatusCode()) {
+        long retryAfter = RetryingInvoker.retryAfterMillis(response.getHeaderString(RETRY_AFTER));
+        if (status == 429 || retryAfter >= 0) {
+          throttled.increment();
+          pauseUntil(now + TimeUnit.MILLISECONDS.toNanos(retryAfter >= 0 ? retryAfter : DEFAULT_PAUSE_MILLIS));
+        }
+        return;
+      }
+      long remaining = header(response, "RateLimit-Remaining");
+      long reset = header(response, "RateLimit-Reset");
+      if (remaining < 0 || reset < 0) {
+        return;
+      }
+      if (reset > EPOCH_SECONDS_THRESHOLD) {
+        reset = Math.max(0, reset - TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+      }
+      long resetNanos = TimeUnit.SECONDS.toNanos(reset);
+      if (remaining == 0) {
+        pauseUntil(now + resetNanos);
+      } else if (resetNanos / remaining > intervalNanos) {
+        pace = new Pace(resetNanos / remaining, now + resetNanos);
+      }
+    }
+
+    private long interval(long now) {
+      Pace current = pace;
+      return current != null && current.untilNanos - now > 0 ? current.intervalNanos : intervalNanos;
+    }
+
+    private void pauseUntil(long until) {
+      // the first permit after the pause is free at until, without a burst saved up during the pause
+      long resumed = until + toleranceNanos;
+      nextFreeNanos.accumulateAndGet(resumed, (current, next) -> next - current > 0 ? next : current);
+    }
+
+    RateLimitStats stats(long now) {
+      long interval = interval(now);
+      return new RateLimitStats(name, TimeUnit.SECONDS.toNanos(1) / (double) interval,
+          Math.max(0, nextFreeNanos.get() - toleranceNanos - now) / 1000000, granted.sum(), delayed.sum(),
+          rejected.sum(), throttled.sum());
+    }
+  }
+
+  private static final class Pace {
+    private final long intervalNanos;
+    private final long untilNanos;
+
+    private Pace(long intervalNanos, long untilNanos) {
+      this.intervalNanos = intervalNanos;
+      this.untilNanos = untilNanos;
+    }
+  }
+
+  /**
+   * The permits of one attempt: wait {@link #getDelayNanos()} before sending it, then report the response.
+   */
+  static final class Ticket {
+    private final Bucket hostBucket;
+    private final Bucket routeBucket;
+    private final long delayNanos;
+    private final AtomicBoolean refunded = new AtomicBoolean();
+
+    private Ticket(Bucket hostBucket, Bucket routeBucket, long delayNanos) {
+      this.hostBucket = hostBucket;
+      this.routeBucket = routeBucket;
+      this.delayNanos = delayNanos;
+    }
+
+    long getDelayNanos() {
+      return delayNanos;
+    }
+
+    /**
+     * Blocks until the permits are free.
+     *
+     * @throws RejectedRequestException when interrupted while waiting
+     */
+    void await() {
+      if (delayNanos <= 0) {
+        return;
+      }
+      try {
+        TimeUnit.NANOSECONDS.sleep(delayNanos);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        cancelled();
+        Bucket bucket = routeBucket != null ? routeBucket : hostBucket;
+        throw new RejectedRequestException(bucket.name, RejectedRequestException.Reason.RATE_LIMITED);
+      }
+    }
+
+    /**
+     * Gives the permits back, for a call given up before it was sent. Only the first call refunds.
+     */
+    void cancelled() {
+      if (refunded.compareAndSet(false, true)) {
+        long now = System.nanoTime();
+        if (hostBucket != null) {
+          hostBucket.refund(now);
+        }
+        if (routeBucket != null) {
+          routeBucket.refund(now);
+        }
+      }
+    }
+
+    void completed(Response response) {
+      if (hostBucket != null && hostBucket.policy.isAdaptive()) {
+        hostBucket.adapt(response);
+      }
+      if (routeBucket != null && routeBucket.policy.isAdaptive()) {
+        routeBucket.adapt(response);
+      }
+    }
+  }
+}
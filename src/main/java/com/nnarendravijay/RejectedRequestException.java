@@ -0,0 +1,49 @@
+package com.nnarendravijay;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Thrown, without sending anything, when a call is refused by the circuit breaker or the concurrency limit of
+ * its host, or by a rate limit.
+ */
+public class RejectedRequestException extends ProcessingException {
+
+  private static final long serialVersionUID = 1L;
+
+  public enum Reason {
+    CIRCUIT_OPEN,
+    CONCURRENCY_LIMIT,
+    RATE_LIMITED
+  }
+
+  private final String host;
+  private final Reason reason;
+
+  RejectedRequestException(String host, Reason reason) {
+    super(message(host, reason));
+    this.host = host;
+    this.reason = reason;
+  }
+
+  private static String message(String host, Reason reason) {
+    switch (reason) {
+      case CIRCUIT_OPEN:
+        return "Circuit breaker is open for " + host;
+      case CONCURRENCY_LIMIT:
+        return "Concurrency limit reached for " + host;
+      default:
+        return "Rate limit reached for " + host;
+    }
+  }
+
+  /**
+   * The host, or for {@link Reason#RATE_LIMITED} the name of the rate limit, that refused the call.
+   */
+  public String getHost() {
+    return host;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+}
@@ -0,0 +1,75 @@
+package com.nnarendravijay;
+
+import java.net.URI;
+
+/**
+ * Point in time view of one replica of a {@link LoadBalancedTarget}.
+ */
+public class ReplicaStats {
+
+  private final URI baseUri;
+  private final int inFlight;
+  private final double latencyEwmaMillis;
+  private final long requests;
+  private final long failures;
+  private final boolean ejected;
+  private final long ejections;
+
+  ReplicaStats(URI baseUri, int inFlight, double latencyEwmaMillis, long requests, long failures, boolean ejected,
+      long ejections) {
+    this.baseUri = baseUri;
+    this.inFlight = inFlight;
+    this.latencyEwmaMillis = latencyEwmaMillis;
+    this.requests = requests;
+    this.failures = failures;
+    this.ejected = ejected;
+    this.ejections = ejections;
+  }
+
+  public URI getBaseUri() {
+    return baseUri;
+  }
+
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Peak sensitive moving average of the time to the response headers; zero until the first response.
+   */
+  public double getLatencyEwmaMillis() {
+    return latencyEwmaMillis;
+  }
+
+  /**
+   * Attempts sent to the replica, including the ones that failed.
+   */
+  public long getRequests() {
+    return requests;
+  }
+
+  /**
+   * Attempts that failed without a response or answered with a 5xx status.
+   */
+  public long getFailures() {
+    return failures;
+  }
+
+  public boolean isEjected() {
+    return ejected;
+  }
+
+  /**
+   * Times the replica was ejected.
+   */
+  public long getEjections() {
+    return ejections;
+  }
+
+  @Override
+  public String toString() {
+    return "ReplicaStats{baseUri=" + baseUri + ", inFlight=" + inFlight + ", latencyEwmaMillis="
+        + String.format("%.2f", latencyEwmaMillis) + ", requests=" + requests + ", failures=" + failures
+        + ", ejected=" + ejected + ", ejections=" + ejections + "}";
+  }
+}
@@ -0,0 +1,140 @@
+package com.nnarendravijay;
+
+import javax.ws.rs.Priorities;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical GETs into one exchange. The first caller for a key sends the request and its
+ * buffered response is shared with every caller that arrived while it was in flight; each of them gets a
+ * response of its own, replayed through the filter chain from a copy of the leader's status, headers and
+ * entity, so reading or closing one never affects another. If the leader fails without a response, the waiting
+ * callers send their own requests.
+ */
+public class RequestCoalescer implements ClientRequestFilter {
+
+  /**
+   * Runs before {@link ResponseCache} and {@link ClientMetrics}, so replayed responses are neither cached
+   * again nor timed as network exchanges.
+   */
+  static final int PRIORITY = Priorities.HEADER_DECORATOR - 2;
+
+  static final String REPLAY_PROPERTY = RequestCoalescer.class.getName() + ".replay";
+
+  private final ConcurrentMap<String, CompletableFuture<Snapshot>> inFlight = new ConcurrentHashMap<>();
+  private final Predicate<String> decodedEncodings;
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder collapsed = new LongAdder();
+  private final LongAdder fallbacks = new LongAdder();
+
+  /**
+   * @param decodedEncodings the {@code Content-Encoding}s the client's reader interceptors decode, which are
+   *     dropped from shared responses as their entity is kept decoded
+   */
+  RequestCoalescer(Predicate<String> decodedEncodings) {
+    this.decodedEncodings = decodedEncodings;
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    Object replay = requestContext.getProperty(REPLAY_PROPERTY);
+    if (replay != null) {
+      requestContext.abortWith((Response) replay);
+    }
+  }
+
+  /**
+   * Runs {@code send} for the first caller of {@code key}, or waits for the caller already sending it and
+   * passes a copy of its response to {@code replay}. {@code send} must return a buffered response.
+   */
+  Response execute(String key, Supplier<Response> send, Function<Response, Response> replay) {
+    CompletableFuture<Snapshot> flight = new CompletableFuture<>();
+    CompletableFuture<Snapshot> leader = inFlight.putIfAbsent(key, flight);
+    if (leader == null) {
+      sent.increment();
+      Snapshot snapshot = null;
+      try {
+        Response response = send.get();
+        snapshot = snapshot(response);
+        return response;
+      } finally {
+        inFlight.remove(key, flight);
+        flight.complete(snapshot);
+      }
+    }
+    Snapshot snapshot = leader.join();
+    if (snapshot == null) {
+      fallbacks.increment();
+      return send.get();
+    }
+    collapsed.increment();
+    return replay.apply(snapshot.toResponse());
+  }
+
+  public CoalescingStats getStats() {
+    return new CoalescingStats(sent.sum(), collapsed.sum(), fallbacks.sum());
+  }
+
+  /**
+   * Copies a buffered response, or returns {@code null} when its entity cannot be read.
+   */
+  private Snapshot snapshot(Response response) {
+    byte[] body = null;
+    if (response.hasEntity()) {
+      try {
+        body = response.readEntity(byte[].class);
+      } catch (ProcessingException | IllegalStateException e) {
+        return null;
+      }
+    }
+    MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+    for (Map.Entry<String, List<String>> header : response.getStringHeaders().entrySet()) {
+      String name = header.getKey();
+      if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) && !(HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)
+          && body != null && decodedEncodings.test(response.getHeaderString(name)))) {
+        headers.put(name, header.getValue());
+      }
+    }
+    return new Snapshot(response.getStatus(), headers, body);
+  }
+
+  private static final class Snapshot {
+    private final int status;
+    private final MultivaluedMap<String, String> headers;
+    private final byte[] body;
+
+    private Snapshot(int status, MultivaluedMap<String, String> headers, byte[] body) {
+      this.status = status;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    Response toResponse() {
+      Response.ResponseBuilder builder = Response.status(status);
+      if (body != null) {
+        builder.entity(new ByteArrayInputStream(body));
+      }
+      for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+        for (String value : header.getValue()) {
+          builder.header(header.getKey(), value);
+        }
+      }
+      return builder.build();
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.nnarendravijay;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One logged call, see {@link RequestLoggingPolicy}. Headers are already redacted; bodies are kept as the raw
+ * bytes captured and turned into text only when asked for, on the logging thread.
+ */
+public final class RequestLogRecord {
+
+  private final long timestampMillis;
+  private final String method;
+  private final URI uri;
+  private final int status;
+  private final long latencyNanos;
+  private final Map<String, List<String>> requestHeaders;
+  private final Map<String, List<String>> responseHeaders;
+  private final RequestLogger.Body requestBody;
+  private final RequestLogger.Body responseBody;
+  private final Throwable failure;
+
+  RequestLogRecord(long timestampMillis, String method, URI uri, int status, long latencyNanos,
+      Map<String, List<String>> requestHeaders, Map<String, List<String>> responseHeaders,
+      RequestLogger.Body requestBody, RequestLogger.Body responseBody, Throwable failure) {
+    this.timestampMillis = timestampMillis;
+    this.method = method;
+    this.uri = uri;
+    this.status = status;
+    this.latencyNanos = latencyNanos;
+    this.requestHeaders = requestHeaders;
+    this.responseHeaders = responseHeaders;
+    this.requestBody = requestBody;
+    this.responseBody = responseBody;
+    this.failure = failure;
+  }
+
+  /**
+   * When the call was sent, in epoch milliseconds.
+   */
+  public long getTimestampMillis() {
+    return timestampMillis;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public URI getUri() {
+    return uri;
+  }
+
+  /**
+   * The response status, or 0 when the call failed without a response.
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * Time to the response headers, or to the failure.
+   */
+  public double getLatencyMillis() {
+    return latencyNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public Map<String, List<String>> getRequestHeaders() {
+    return requestHeaders;
+  }
+
+  /**
+   * Empty when the call failed without a response.
+   */
+  public Map<String, List<String>> getResponseHeaders() {
+    return responseHeaders == null ? Collections.emptyMap() : responseHeaders;
+  }
+
+  /**
+   * The start of the request body as text, or null when there was none or bodies are not logged.
+   */
+  public String getRequestBody() {
+    return requestBody == null ? null : requestBody.toString();
+  }
+
+  /**
+   * The start of the response body as text, as far as it was read, or null when there was none or bodies are not
+   * logged.
+   */
+  public String getResponseBody() {
+    return responseBody == null ? null : responseBody.toString();
+  }
+
+  public Throwable getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder line = new StringBuilder(256).append(method).append(' ').append(uri).append(" -> ");
+    if (failure != null) {
+      line.append(failure);
+    } else {
+      line.append(status);
+    }
+    line.append(" in ").append(String.format("%.1f", getLatencyMillis())).append(" ms, request ")
+        .append(requestHeaders);
+    if (requestBody != null) {
+      line.append(' ').append(requestBody);
+    }
+    if (responseHeaders != null) {
+      line.append(", response ").append(responseHeaders);
+    }
+    if (responseBody != null) {
+      line.append(' ').append(responseBody);
+    }
+    return line.toString();
+  }
+}
@@ -0,0 +1,22 @@
+package com.nnarendravijay;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives the records of {@link RequestLoggingPolicy}, one at a time on a background thread, so formatting and
+ * writing them never slows down the calls themselves.
+ */
+@FunctionalInterface
+public interface RequestLogSink {
+
+  void log(RequestLogRecord record);
+
+  /**
+   * Logs every record on one line at INFO, to the {@code com.nnarendravijay.RequestLog} logger.
+   */
+  static RequestLogSink slf4j() {
+    Logger logger = LoggerFactory.getLogger(RequestLogSink.class.getPackage().getName() + ".RequestLog");
+    return record -> logger.info("{}", record);
+  }
+}
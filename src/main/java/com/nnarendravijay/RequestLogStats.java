@@ -0,0 +1,33 @@
+package com.nnarendravijay;
+
+/**
+ * Counters of the request logging of a {@link RestClient}, see {@link RequestLoggingPolicy}.
+ */
+public class RequestLogStats {
+  private final long logged;
+  private final long dropped;
+
+  RequestLogStats(long logged, long dropped) {
+    this.logged = logged;
+    this.dropped = dropped;
+  }
+
+  /**
+   * Records handed to the sink.
+   */
+  public long getLogged() {
+    return logged;
+  }
+
+  /**
+   * Records lost because the buffer was full when they were published.
+   */
+  public long getDropped() {
+    return dropped;
+  }
+
+  @Override
+  public String toString() {
+    return "RequestLogStats{logged=" + logged + ", dropped=" + dropped + "}";
+  }
+}
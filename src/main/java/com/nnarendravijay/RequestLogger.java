@@ -0,0 +1,324 @@
+package com.nnarendravijay;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request and response logging of a {@link RestClient}, see {@link RequestLoggingPolicy}. The calling thread only
+ * decides whether a call is logged, copies its redacted headers and the first bytes of its bodies as they go by,
+ * and puts the record in a {@link RingBuffer}. Turning bodies into text and writing them happens on a background
+ * thread shared by all clients.
+ *
+ * <p>Registered after the other filters so it sees the headers as sent, and inside the request compression so it
+ * sees request bodies before they are compressed. Response bodies are captured as they are read, and the record
+ * is published once the body is read to the end or closed; encoded response bodies are not captured.
+ */
+final class RequestLogger implements ClientRequestFilter, ClientResponseFilter, WriterInterceptor {
+
+  static final int PRIORITY = Priorities.USER + 1000;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(RequestLogger.class);
+
+  private static final ScheduledExecutorService DRAINER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-client-request-log").build());
+  private static final long DRAIN_INTERVAL_MILLIS = 100;
+  private static final String CALL_PROPERTY = RequestLogger.class.getName() + ".call";
+  private static final List<String> REDACTED = Collections.singletonList("***");
+  private static final int INITIAL_BODY_BYTES = 256;
+
+  private final RequestLoggingPolicy policy;
+  private final long slowThresholdNanos;
+  private final RingBuffer<RequestLogRecord> records;
+  private final LongAdder logged = new LongAdder();
+  private final ScheduledFuture<?> draining;
+
+  RequestLogger(RequestLoggingPolicy policy) {
+    this.policy = policy.copy();
+    this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(policy.getSlowThresholdMillis());
+    this.records = new RingBuffer<>(policy.getBufferSize());
+    this.draining = DRAINER.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    boolean sampled = isSampled();
+    // calls not sampled up front may still turn out to be errors or slow
+    if (sampled || policy.isLogErrors() || slowThresholdNanos > 0) {
+      requestContext.setProperty(CALL_PROPERTY, new Call(sampled));
+    }
+  }
+
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+    Object call = context.getProperty(CALL_PROPERTY);
+    if (call != null && policy.getMaxBodyBytes() > 0) {
+      Body body = new Body(policy.getMaxBodyBytes(), context.getMediaType());
+      ((Call) call).requestBody = body;
+      context.setOutputStream(new CapturingOutputStream(context.getOutputStream(), body));
+    }
+    context.proceed();
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+    Object property = requestContext.getProperty(CALL_PROPERTY);
+    if (property == null) {
+      return;
+    }
+    requestContext.removeProperty(CALL_PROPERTY);
+    Call call = (Call) property;
+    long latency = System.nanoTime() - call.startNanos;
+    int status = responseContext.getStatus();
+    if (!call.sampled && !(policy.isLogErrors() && status >= 400)
+        && !(slowThresholdNanos > 0 && latency >= slowThresholdNanos)) {
+      return;
+    }
+    Map<String, List<String>> requestHeaders = redact(requestContext.getStringHeaders());
+    Map<String, List<String>> responseHeaders = redact(responseContext.getHeaders());
+    String encoding = responseContext.getHeaderString(HttpHeaders.CONTENT_ENCODING);
+    if (policy.getMaxBodyBytes() == 0 || !responseContext.hasEntity()
+        || encoding != null && !"identity".equalsIgnoreCase(encoding.trim())) {
+      publish(new RequestLogRecord(call.timestampMillis, requestContext.getMethod(), requestContext.getUri(),
+          status, latency, requestHeaders, responseHeaders, call.requestBody, null, null));
+      return;
+    }
+    Body responseBody = new Body(policy.getMaxBodyBytes(), responseContext.getMediaType());
+    RequestLogRecord record = new RequestLogRecord(call.timestampMillis, requestContext.getMethod(),
+        requestContext.getUri(), status, latency, requestHeaders, responseHeaders, call.requestBody, responseBody,
+        null);
+    responseContext.setEntityStream(
+        new CapturingInputStream(responseContext.getEntityStream(), responseBody, () -> publish(record)));
+  }
+
+  /**
+   * Logs a call that failed without a response, when errors are logged or the call is sampled.
+   */
+  void failed(URI uri, String method, long startNanos, Throwable failure) {
+    if (policy.isLogErrors() || isSampled()) {
+      long latency = System.nanoTime() - startNanos;
+      publish(new RequestLogRecord(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(latency), method,
+          uri, 0, latency, Collections.emptyMap(), null, null, null, failure));
+    }
+  }
+
+  RequestLogStats getStats() {
+    return new RequestLogStats(logged.sum(), records.getDropped());
+  }
+
+  /**
+   * Stops the periodic draining and hands what is left in the buffer to the sink.
+   */
+  void close() {
+    draining.cancel(false);
+    DRAINER.execute(this::drain);
+  }
+
+  private boolean isSampled() {
+    double rate = policy.getSampleRate();
+    return rate >= 1 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+  }
+
+  private void publish(RequestLogRecord record) {
+    records.offer(record);
+  }
+
+  private void drain() {
+    RequestLogRecord record;
+    while ((record = records.poll()) != null) {
+      try {
+        policy.getSink().log(record);
+        logged.increment();
+      } catch (RuntimeException e) {
+        // an exception would cancel the periodic drain
+        LOGGER.warn("Request log sink failed on {} {}", record.getMethod(), record.getUri(), e);
+      }
+    }
+  }
+
+  private Map<String, List<String>> redact(Map<String, List<String>> headers) {
+    Map<String, List<String>> copy = new LinkedHashMap<>();
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      copy.put(header.getKey(), policy.getRedactedHeaders().contains(header.getKey()) ? REDACTED
+          : Collections.unmodifiableList(new ArrayList<>(header.getValue())));
+    }
+    return Collections.unmodifiableMap(copy);
+  }
+
+  private static final class Call {
+    private final boolean sampled;
+    private final long timestampMillis = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private volatile Body requestBody;
+
+    private Call(boolean sampled) {
+      this.sampled = sampled;
+    }
+  }
+
+  /**
+   * The first bytes of a body and its total size. Only text bodies are kept; others are logged by size and type.
+   */
+  static final class Body {
+    private final int maxBytes;
+    private final MediaType mediaType;
+    private final boolean text;
+    private byte[] bytes = new byte[0];
+    private int length;
+    private long total;
+
+    private Body(int maxBytes, MediaType mediaType) {
+      this.maxBytes = maxBytes;
+      this.mediaType = mediaType;
+      this.text = isText(mediaType);
+    }
+
+    void write(byte[] b, int off, int len) {
+      total += len;
+      int kept = Math.min(len, maxBytes - length);
+      if (!text || kept <= 0) {
+        return;
+      }
+      if (length + kept > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.min(maxBytes, Math.max(INITIAL_BODY_BYTES, (length + kept) * 2)));
+      }
+      System.arraycopy(b, off, bytes, length, kept);
+      length += kept;
+    }
+
+    @Override
+    public String toString() {
+      if (!text) {
+        return "(" + total + " bytes of " + mediaType + ")";
+      }
+      String start = new String(bytes, 0, length, charset(mediaType));
+      return total > length ? start + "... (" + total + " bytes)" : start;
+    }
+
+    private static boolean isText(MediaType mediaType) {
+      if (mediaType == null || "text".equalsIgnoreCase(mediaType.getType())) {
+        return true;
+      }
+      String subtype = mediaType.getSubtype().toLowerCase(Locale.ROOT);
+      return "application".equalsIgnoreCase(mediaType.getType()) && (subtype.equals("json")
+          || subtype.equals("xml") || subtype.equals("x-www-form-urlencoded") || subtype.equals("javascript")
+          || subtype.endsWith("+json") || subtype.endsWith("+xml"));
+    }
+
+    private static Charset charset(MediaType mediaType) {
+      String charset = mediaType == null ? null : mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+      try {
+        return charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset);
+      } catch (IllegalArgumentException e) {
+        return StandardCharsets.UTF_8;
+      }
+    }
+  }
+
+  private static final class CapturingOutputStream extends FilterOutputStream {
+    private final Body body;
+    private final byte[] single = new byte[1];
+
+    private CapturingOutputStream(OutputStream out, Body body) {
+      super(out);
+      this.body = body;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      single[0] = (byte) b;
+      body.write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      body.write(b, off, len);
+    }
+  }
+
+  private static final class CapturingInputStream extends FilterInputStream {
+    private final Body body;
+    private final byte[] single = new byte[1];
+    private Runnable onDone;
+
+    private CapturingInputStream(InputStream in, Body body, Runnable onDone) {
+      super(in);
+      this.body = body;
+      this.onDone = onDone;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b == -1) {
+        done();
+      } else {
+        single[0] = (byte) b;
+        body.write(single, 0, 1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read == -1) {
+        done();
+      } else {
+        body.write(b, off, read);
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        done();
+      }
+    }
+
+    private void done() {
+      if (onDone != null) {
+        Runnable publish = onDone;
+        onDone = null;
+        publish.run();
+      }
+    }
+  }
+}
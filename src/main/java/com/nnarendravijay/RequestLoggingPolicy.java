@@ -0,0 +1,133 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Settings of the request and response logging of a {@link RestClient}, see
+ * {@link RestClientConfig#requestLogging(RequestLoggingPolicy)}. A call is logged when it is sampled at
+ * {@code sampleRate}, and regardless of sampling when {@code logErrors} is set and it failed or was answered with
+ * a 4xx or 5xx, or when it took at least {@code slowThresholdMillis}. Errors only logging, for instance, is
+ * {@code sampleRate(0).logErrors(true)}.
+ */
+public class RequestLoggingPolicy {
+
+  private double sampleRate = 1;
+  private boolean logErrors;
+  private long slowThresholdMillis;
+  private final Set<String> redactedHeaders = defaultRedactedHeaders();
+  private int maxBodyBytes = 4096;
+  private int bufferSize = 1024;
+  private RequestLogSink sink = RequestLogSink.slf4j();
+
+  public static RequestLoggingPolicy newInstance() {
+    return new RequestLoggingPolicy();
+  }
+
+  /**
+   * Share of all calls logged, between 0 and 1. All of them by default.
+   */
+  public RequestLoggingPolicy sampleRate(double sampleRate) {
+    Preconditions.checkArgument(sampleRate >= 0 && sampleRate <= 1, "sampleRate must be between 0 and 1");
+    this.sampleRate = sampleRate;
+    return this;
+  }
+
+  public RequestLoggingPolicy logErrors(boolean logErrors) {
+    this.logErrors = logErrors;
+    return this;
+  }
+
+  /**
+   * Logs every call whose response headers took at least this long. Zero, the default, turns it off.
+   */
+  public RequestLoggingPolicy slowThresholdMillis(long slowThresholdMillis) {
+    Preconditions.checkArgument(slowThresholdMillis >= 0, "slowThresholdMillis cannot be negative");
+    this.slowThresholdMillis = slowThresholdMillis;
+    return this;
+  }
+
+  /**
+   * Headers logged as {@code ***}, in addition to Authorization, Proxy-Authorization, Cookie and Set-Cookie.
+   */
+  public RequestLoggingPolicy redactHeaders(String... headers) {
+    for (String header : headers) {
+      Preconditions.checkArgument(header != null && !header.trim().isEmpty(), "header cannot be blank");
+      redactedHeaders.add(header.trim());
+    }
+    return this;
+  }
+
+  /**
+   * Bytes of each request and response body kept for the log; longer bodies are truncated. Zero leaves bodies
+   * out.
+   */
+  public RequestLoggingPolicy maxBodyBytes(int maxBodyBytes) {
+    Preconditions.checkArgument(maxBodyBytes >= 0, "maxBodyBytes cannot be negative");
+    this.maxBodyBytes = maxBodyBytes;
+    return this;
+  }
+
+  /**
+   * Records held until the background thread hands them to the sink, rounded up to a power of two. Records
+   * that do not fit are dropped and counted.
+   */
+  public RequestLoggingPolicy bufferSize(int bufferSize) {
+    Preconditions.checkArgument(bufferSize > 0 && bufferSize <= 1 << 20, "bufferSize must be between 1 and 2^20");
+    this.bufferSize = bufferSize;
+    return this;
+  }
+
+  /**
+   * Where records go, on the background thread. An SLF4J logger at INFO by default.
+   */
+  public RequestLoggingPolicy sink(RequestLogSink sink) {
+    this.sink = Preconditions.checkNotNull(sink, "sink cannot be null");
+    return this;
+  }
+
+  public double getSampleRate() {
+    return sampleRate;
+  }
+
+  public boolean isLogErrors() {
+    return logErrors;
+  }
+
+  public long getSlowThresholdMillis() {
+    return slowThresholdMillis;
+  }
+
+  public Set<String> getRedactedHeaders() {
+    return Collections.unmodifiableSet(redactedHeaders);
+  }
+
+  public int getMaxBodyBytes() {
+    return maxBodyBytes;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public RequestLogSink getSink() {
+    return sink;
+  }
+
+  private static Set<String> defaultRedactedHeaders() {
+    Set<String> headers = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    headers.addAll(Arrays.asList("Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie"));
+    return headers;
+  }
+
+  RequestLoggingPolicy copy() {
+    RequestLoggingPolicy copy = newInstance().sampleRate(sampleRate).logErrors(logErrors)
+        .slowThresholdMillis(slowThresholdMillis).maxBodyBytes(maxBodyBytes).bufferSize(bufferSize).sink(sink);
+    copy.redactedHeaders.addAll(redactedHeaders);
+    return copy;
+  }
+}
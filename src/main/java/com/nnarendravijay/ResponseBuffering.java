@@ -0,0 +1,15 @@
+package com.nnarendravijay;
+
+/**
+ * Whether a response entity is copied into memory before it is handed to the caller.
+ */
+public enum ResponseBuffering {
+  /**
+   * The entity is read fully with {@code bufferEntity()}, so it can be read more than once. This is the default.
+   */
+  BUFFERED,
+  /**
+   * The live entity stream is returned; the caller must read or close the response to release the connection.
+   */
+  STREAMING
+}
@@ -0,0 +1,334 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+import org.glassfish.jersey.message.internal.HeaderUtils;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Private HTTP cache for GET responses, bounded by the bytes it holds. Fresh entries, by {@code Cache-Control}
+ * max-age or {@code Expires}, are answered without touching the network; stale entries with an {@code ETag} or
+ * {@code Last-Modified} are revalidated with {@code If-None-Match} / {@code If-Modified-Since} and a 304 is
+ * answered from the stored body. Requests that already carry conditional headers or a range bypass the cache,
+ * so callers that manage validators by hand keep working as before. Entries are keyed by URI, {@code Accept},
+ * {@code Accept-Encoding} and {@code Authorization}, so one caller's responses are never served to another. An
+ * entry also remembers the request values of the headers its response {@code Vary}s on and is only reused for
+ * requests with the same values; responses with {@code Vary: *} are not stored.
+ */
+public class ResponseCache implements ClientRequestFilter, ClientResponseFilter {
+
+  /**
+   * Runs just before {@link ClientMetrics}, so cache hits are not timed as network exchanges.
+   */
+  static final int PRIORITY = Priorities.HEADER_DECORATOR - 1;
+
+  private static final String KEY_PROPERTY = ResponseCache.class.getName() + ".key";
+  private static final String ENTRY_PROPERTY = ResponseCache.class.getName() + ".entry";
+  private static final String HIT_PROPERTY = ResponseCache.class.getName() + ".hit";
+  private static final String RANGE = "Range";
+  private static final int MAX_ENTRY_FRACTION = 8;
+
+  private final Cache<String, Entry> entries;
+  private final long maxEntryBytes;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder revalidations = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder bytesSaved = new LongAdder();
+
+  public ResponseCache(long maxBytes) {
+    Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive");
+    this.maxEntryBytes = Math.max(1, maxBytes / MAX_ENTRY_FRACTION);
+    this.entries = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher((String key, Entry entry) -> entry.weight(key))
+        .build();
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext) {
+    if (!HttpMethod.GET.equals(requestContext.getMethod()) || hasValidators(requestContext.getHeaders())
+        || requestContext.getHeaders().containsKey(RANGE)
+        || isNoStore(requestContext.getHeaderString(HttpHeaders.CACHE_CONTROL))) {
+      return;
+    }
+    String key = key(requestContext);
+    Entry entry = entries.getIfPresent(key);
+    requestContext.setProperty(KEY_PROPERTY, key);
+    if (entry == null || !entry.matches(requestContext.getStringHeaders())) {
+      misses.increment();
+      return;
+    }
+    boolean noCache = isNoCache(requestContext.getHeaderString(HttpHeaders.CACHE_CONTROL));
+    if (entry.isFresh(System.currentTimeMillis()) && !noCache) {
+      hits.increment();
+      bytesSaved.add(entry.body.length);
+      requestContext.setProperty(HIT_PROPERTY, Boolean.TRUE);
+      requestContext.abortWith(entry.toResponse());
+      return;
+    }
+    requestContext.setProperty(ENTRY_PROPERTY, entry);
+    if (entry.etag != null) {
+      requestContext.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, entry.etag);
+    }
+    if (entry.lastModified != null) {
+      requestContext.getHeaders().putSingle(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+    }
+    if (entry.etag == null && entry.lastModified == null) {
+      misses.increment();
+    }
+  }
+
+  @Override
+  public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+    Object key = requestContext.getProperty(KEY_PROPERTY);
+    if (key == null || requestContext.getProperty(HIT_PROPERTY) != null) {
+      return;
+    }
+    int status = responseContext.getStatus();
+    Object entry = requestContext.getProperty(ENTRY_PROPERTY);
+    if (status == Response.Status.NOT_MODIFIED.getStatusCode() && entry != null) {
+      revalidated((String) key, (Entry) entry, requestContext, responseContext);
+    } else if (status == Response.Status.OK.getStatusCode()) {
+      store((String) key, requestContext, responseContext);
+    }
+  }
+
+  public ResponseCacheStats getStats() {
+    return new ResponseCacheStats(hits.sum(), revalidations.sum(), misses.sum(), bytesSaved.sum(), entries.size(),
+        weightedSize());
+  }
+
+  public void invalidateAll() {
+    entries.invalidateAll();
+  }
+
+  private void revalidated(String key, Entry entry, ClientRequestContext requestContext,
+      ClientResponseContext responseContext) throws IOException {
+    if (responseContext.hasEntity()) {
+      responseContext.getEntityStream().close();
+    }
+    MultivaluedMap<String, String> headers = HeaderUtils.createInbound();
+    headers.putAll(entry.headers);
+    for (Map.Entry<String, List<String>> header : responseContext.getHeaders().entrySet()) {
+      if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())) {
+        headers.put(header.getKey(), header.getValue());
+      }
+    }
+    Entry refreshed = isCacheable(headers)
+        ? Entry.create(headers, requestContext.getStringHeaders(), entry.body, System.currentTimeMillis()) : null;
+    if (refreshed == null) {
+      entries.invalidate(key);
+    } else {
+      entries.put(key, refreshed);
+    }
+    revalidations.increment();
+    bytesSaved.add(entry.body.length);
+
+    responseContext.setStatus(Response.Status.OK.getStatusCode());
+    responseContext.getHeaders().clear();
+    responseContext.getHeaders().putAll(headers);
+    responseContext.setEntityStream(new ByteArrayInputStream(entry.body));
+  }
+
+  private void store(String key, ClientRequestContext requestContext, ClientResponseContext responseContext)
+      throws IOException {
+    MultivaluedMap<String, String> headers = responseContext.getHeaders();
+    if (!isCacheable(headers) || !responseContext.hasEntity() || responseContext.getLength() > maxEntryBytes) {
+      entries.invalidate(key);
+      return;
+    }
+    InputStream in = responseContext.getEntityStream();
+    byte[] body = ByteStreams.toByteArray(ByteStreams.limit(in, maxEntryBytes + 1));
+    if (body.length > maxEntryBytes) {
+      responseContext.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(body), in));
+      entries.invalidate(key);
+      return;
+    }
+    in.close();
+    responseContext.setEntityStream(new ByteArrayInputStream(body));
+    MultivaluedMap<String, String> stored = HeaderUtils.createInbound();
+    stored.putAll(headers);
+    Entry entry = Entry.create(stored, requestContext.getStringHeaders(), body, System.currentTimeMillis());
+    if (entry != null) {
+      entries.put(key, entry);
+    }
+  }
+
+  private long weightedSize() {
+    long size = 0;
+    for (Map.Entry<String, Entry> entry : entries.asMap().entrySet()) {
+      size += entry.getValue().weight(entry.getKey());
+    }
+    return size;
+  }
+
+  private static String key(ClientRequestContext requestContext) {
+    return requestContext.getUri() + "\n" + nullToEmpty(requestContext.getHeaderString(HttpHeaders.ACCEPT)) + "\n"
+        + nullToEmpty(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING)) + "\n"
+        + nullToEmpty(requestContext.getHeaderString(HttpHeaders.AUTHORIZATION));
+  }
+
+  private static boolean hasValidators(MultivaluedMap<String, Object> headers) {
+    return headers.containsKey(HttpHeaders.IF_NONE_MATCH) || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+        || headers.containsKey(HttpHeaders.IF_MATCH);
+  }
+
+  private static boolean isCacheable(MultivaluedMap<String, String> headers) {
+    String vary = headers.getFirst(HttpHeaders.VARY);
+    return !isNoStore(headers.getFirst(HttpHeaders.CACHE_CONTROL)) && (vary == null || !vary.contains("*"));
+  }
+
+  private static boolean isNoStore(String cacheControl) {
+    return cacheControl != null && CacheControl.valueOf(cacheControl).isNoStore();
+  }
+
+  private static boolean isNoCache(String cacheControl) {
+    return cacheControl != null && CacheControl.valueOf(cacheControl).isNoCache();
+  }
+
+  private static String nullToEmpty(String value) {
+    return value == null ? "" : value;
+  }
+
+  private static final class Entry {
+    private final MultivaluedMap<String, String> headers;
+    private final byte[] body;
+    private final String etag;
+    private final String lastModified;
+    private final long expiresAtMillis;
+    private final Map<String, String> varying;
+
+    private Entry(MultivaluedMap<String, String> headers, Map<String, String> varying, byte[] body,
+        long expiresAtMillis) {
+      this.headers = headers;
+      this.varying = varying;
+      this.body = body;
+      this.etag = headers.getFirst(HttpHeaders.ETAG);
+      this.lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+      this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * Builds an entry from response headers and the headers of the request that got it, or returns {@code null}
+     * when the response can be neither reused nor revalidated.
+     */
+    static Entry create(MultivaluedMap<String, String> headers, MultivaluedMap<String, String> requestHeaders,
+        byte[] body, long nowMillis) {
+      long expiresAt = expiresAt(headers, nowMillis);
+      boolean hasValidator = headers.containsKey(HttpHeaders.ETAG) || headers.containsKey(HttpHeaders.LAST_MODIFIED);
+      return expiresAt > nowMillis || hasValidator
+          ? new Entry(headers, varying(headers, requestHeaders), body, expiresAt) : null;
+    }
+
+    /**
+     * The request values of every header named in the response's {@code Vary}.
+     */
+    private static Map<String, String> varying(MultivaluedMap<String, String> headers,
+        MultivaluedMap<String, String> requestHeaders) {
+      List<String> vary = headers.get(HttpHeaders.VARY);
+      if (vary == null) {
+        return Collections.emptyMap();
+      }
+      Map<String, String> varying = new HashMap<>();
+      for (String names : vary) {
+        for (String name : names.split(",")) {
+          if (!name.trim().isEmpty()) {
+            varying.put(name.trim().toLowerCase(Locale.ROOT), value(requestHeaders, name.trim()));
+          }
+        }
+      }
+      return varying;
+    }
+
+    private static String value(MultivaluedMap<String, String> requestHeaders, String name) {
+      List<String> values = requestHeaders.get(name);
+      return values == null ? "" : String.join(",", values);
+    }
+
+    /**
+     * Whether a request sends the same values as the one that got this entry, for every header it varies on.
+     */
+    boolean matches(MultivaluedMap<String, String> requestHeaders) {
+      for (Map.Entry<String, String> header : varying.entrySet()) {
+        if (!header.getValue().equals(value(requestHeaders, header.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static long expiresAt(MultivaluedMap<String, String> headers, long nowMillis) {
+      String cacheControl = headers.getFirst(HttpHeaders.CACHE_CONTROL);
+      if (cacheControl != null) {
+        CacheControl control = CacheControl.valueOf(cacheControl);
+        if (control.isNoCache() || control.isMustRevalidate() && control.getMaxAge() < 0) {
+          return nowMillis;
+        }
+        if (control.getMaxAge() >= 0) {
+          return nowMillis + control.getMaxAge() * 1000L;
+        }
+      }
+      String expires = headers.getFirst(HttpHeaders.EXPIRES);
+      if (expires != null) {
+        try {
+          long expiresMillis = ZonedDateTime.parse(expires, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+              .toEpochMilli();
+          String date = headers.getFirst(HttpHeaders.DATE);
+          long dateMillis = date == null ? nowMillis
+              : ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+          return nowMillis + (expiresMillis - dateMillis);
+        } catch (DateTimeParseException e) {
+          return nowMillis;
+        }
+      }
+      return nowMillis;
+    }
+
+    boolean isFresh(long nowMillis) {
+      return nowMillis < expiresAtMillis;
+    }
+
+    int weight(String key) {
+      int weight = body.length + key.length();
+      for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+        weight += header.getKey().length() + header.getValue().toString().length();
+      }
+      return weight;
+    }
+
+    Response toResponse() {
+      Response.ResponseBuilder builder = Response.ok(new ByteArrayInputStream(body));
+      for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+        for (String value : header.getValue()) {
+          builder.header(header.getKey(), value);
+        }
+      }
+      return builder.build();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.nnarendravijay;
+
+/**
+ * Point in time view of a {@link ResponseCache}. Hits were answered without a request, revalidations were
+ * answered from the cache after a 304 and misses went to the network.
+ */
+public class ResponseCacheStats {
+  private final long hits;
+  private final long revalidations;
+  private final long misses;
+  private final long bytesSaved;
+  private final long entries;
+  private final long sizeBytes;
+
+  ResponseCacheStats(long hits, long revalidations, long misses, long bytesSaved, long entries, long sizeBytes) {
+    this.hits = hits;
+    this.revalidations = revalidations;
+    this.misses = misses;
+    this.bytesSaved = bytesSaved;
+    this.entries = entries;
+    this.sizeBytes = sizeBytes;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getRevalidations() {
+    return revalidations;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Share of cacheable requests answered from the cache, with or without revalidation.
+   */
+  public double getHitRatio() {
+    long total = hits + revalidations + misses;
+    return total == 0 ? 0 : (double) (hits + revalidations) / total;
+  }
+
+  /**
+   * Body bytes served from the cache instead of being downloaded.
+   */
+  public long getBytesSaved() {
+    return bytesSaved;
+  }
+
+  public long getEntries() {
+    return entries;
+  }
+
+  public long getSizeBytes() {
+    return sizeBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "ResponseCacheStats{hits=" + hits + ", revalidations=" + revalidations + ", misses=" + misses
+        + ", bytesSaved=" + bytesSaved + ", entries=" + entries + ", sizeBytes=" + sizeBytes + "}";
+  }
+}
@@ -1,35 +1,48 @@
 package com.nnarendravijay;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.lang3.StringUtils;
 import org.glassfish.jersey.SslConfigurator;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+import org.glassfish.jersey.internal.util.collection.ImmutableMultivaluedMap;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
-import javax.ws.rs.core.UriBuilder;
-import javax.ws.rs.ext.ReaderInterceptor;
-import javax.ws.rs.ext.ReaderInterceptorContext;
 import javax.ws.rs.ext.WriterInterceptor;
 import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Path;
 import java.security.Key;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
@@ -40,9 +53,27 @@ import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.junit.Assert.assertEquals;
@@ -52,68 +83,843 @@ public class RestClient {
   private static final Logger LOGGER = LoggerFactory.getLogger(RestClient.class);
 
   private final Client client;
-  private final MultivaluedMap<String, Object> multivaluedMap = new MultivaluedHashMap<>();
+  private final ConnectionPool connectionPool;
+  private final Http2Transport http2Transport;
+  private final Executor asyncExecutor;
+  private final int asyncThreadPoolSize;
+  private final ResponseBuffering responseBuffering;
+  private final ClientMetrics metrics;
+  private final DecodingWriterInterceptor requestCompression;
+  private final ResponseCache responseCache;
+  private final RetryingInvoker retrying;
+  private final HostGuard hostGuard;
+  private final RequestCoalescer coalescer;
+  private final ContentDecodingInterceptor contentDecoding;
+  private final CredentialCache credentials;
+  private final RateLimiter rateLimiter;
+  private final RequestLogger requestLogger;
+  private final ConcurrentMap<String, LoadBalancedTarget> loadBalancedTargets = new ConcurrentHashMap<>();
+  private final Object headerLock = new Object();
+  private final ThreadLocal<AtomicReference<Response>> response = ThreadLocal.withInitial(AtomicReference::new);
 
-  private Response response;
+  private volatile MultivaluedMap<String, Object> multivaluedMap = ImmutableMultivaluedMap.empty();
 
   public RestClient() {
-    client = createClientBuilder().build();
+    this(RestClientConfig.newInstance());
+  }
+
+  public RestClient(RestClientConfig config) {
+    this(checkNotNull(config, "config cannot be null"), null);
   }
 
   public RestClient(String keyStore, String keyStorePasswd, String keyStoreAlias, String tlsVersion) {
+    this(keyStore, keyStorePasswd, keyStoreAlias, tlsVersion, RestClientConfig.newInstance());
+  }
+
+  public RestClient(String keyStore, String keyStorePasswd, String keyStoreAlias, String tlsVersion,
+      RestClientConfig config) {
+    this(checkNotNull(config, "config cannot be null"),
+        sslContext(keyStore, keyStorePasswd, keyStoreAlias, tlsVersion, config));
+  }
 
+  /**
+   * Wires every feature of {@code config} into the client, over TLS with {@code sslContext} when it is not null.
+   */
+  private RestClient(RestClientConfig config, SSLContext sslContext) {
+    Preconditions.checkArgument(!config.isPooled() || config.getHttp2Options() == null,
+        "pooledConnections cannot be combined with http2");
+    connectionPool = config.isPooled() ? new ConnectionPool(config, sslContext) : null;
+    http2Transport = config.getHttp2Options() == null ? null : new Http2Transport(config);
+    asyncExecutor = config.getAsyncExecutor();
+    asyncThreadPoolSize = config.getAsyncThreadPoolSize();
+    responseBuffering = config.getResponseBuffering();
+    metrics = config.isMetricsEnabled() ? new ClientMetrics() : null;
+    responseCache = config.getResponseCacheBytes() > 0 ? new ResponseCache(config.getResponseCacheBytes()) : null;
+    retrying = config.getRetryPolicy() == null && config.getHedgePolicy() == null ? null
+        : new RetryingInvoker(config.getRetryPolicy(), config.getHedgePolicy());
+    hostGuard = config.getCircuitBreakerPolicy() == null && config.getConcurrencyLimitPolicy() == null ? null
+        : new HostGuard(config.getCircuitBreakerPolicy(), config.getConcurrencyLimitPolicy());
+    contentDecoding = new ContentDecodingInterceptor(config.getContentDecoders());
+    coalescer = config.isRequestCoalescing() ? new RequestCoalescer(contentDecoding::decodes) : null;
+    credentials = config.getCredentialProvider() == null ? null
+        : new CredentialCache(config.getCredentialProvider(), config.getCredentialRefreshAheadMillis());
+    rateLimiter = config.getRateLimits().isEmpty() ? null : new RateLimiter(config.getRateLimits());
+    requestLogger = config.getRequestLoggingPolicy() == null ? null
+        : new RequestLogger(config.getRequestLoggingPolicy());
+    requestCompression = config.getRequestEncoding() == null ? null : new DecodingWriterInterceptor(
+        config.getRequestEncoding(), config.getRequestCompressionThreshold(), config.getUncompressedMediaTypes(),
+        connectionPool != null);
+    ClientBuilder builder = createClientBuilder();
+    if (sslContext != null) {
+      builder.sslContext(sslContext).hostnameVerifier((hostname, session) -> true);
+    }
+    client = builder.build();
+  }
+
+  private static SSLContext sslContext(String keyStore, String keyStorePasswd, String keyStoreAlias,
+      String tlsVersion, RestClientConfig config) {
     Preconditions.checkState(StringUtils.isNotBlank(keyStore), "Keystore cannot be null or blank");
     Preconditions.checkState(StringUtils.isNotBlank(keyStoreAlias), "keyStoreAlias cannot be null or blank");
     Preconditions.checkState(StringUtils.isNotBlank(tlsVersion), "tlsVersion cannot be null or blank");
     Preconditions.checkNotNull(keyStorePasswd, "KeystorePasswd cannot be null");
     Preconditions.checkNotNull(Resources.getResource(keyStore), "keyStore file does NOT exist");
 
-    client = createSSLClient(keyStore, keyStorePasswd, keyStoreAlias, tlsVersion);
+    // session settings go on the context as it is built, never on a context another client already shares
+    Supplier<SSLContext> loader = () -> configureSessionCache(
+        createSSLContext(keyStore, keyStorePasswd, keyStoreAlias, tlsVersion), config);
+    return config.isSslContextCaching()
+        ? SslContextCache.get(keyStore, keyStorePasswd, keyStoreAlias, tlsVersion, config.getSslSessionCacheSize(),
+            config.getSslSessionTimeoutSeconds(), loader)
+        : loader.get();
   }
 
   public MultivaluedMap<String, Object> getHeaders() {
     return multivaluedMap;
   }
 
+  public Response send(RestRequest request) {
+    if (coalescer != null && isCoalescable(request)) {
+      return coalescer.execute(coalescingKey(request), () -> complete(request, exchange(request)),
+          shared -> complete(request, invocation(request).property(RequestCoalescer.REPLAY_PROPERTY, shared).invoke()));
+    }
+    return complete(request, exchange(request));
+  }
+
+  public CompletableFuture<Response> sendAsync(RestRequest request) {
+    return retrying == null ? submit(request) : retrying.executeAsync(request, () -> submit(request));
+  }
+
+  public StreamingResponse sendStreaming(RestRequest request) {
+    // not kept as the thread's last response, where it would pin its connection
+    return new StreamingResponse(exchange(request));
+  }
+
+  /**
+   * Sends {@code request} without buffering and returns its JSON array or NDJSON body as a lazy stream of
+   * {@code elementType}. A response outside the 2xx range is closed and reported as a
+   * {@link WebApplicationException}. Close the stream, or read it to the end, to release the connection.
+   */
+  public <T> Stream<T> streamJson(RestRequest request, Class<T> elementType) {
+    checkNotNull(elementType, "elementType cannot be null");
+    StreamingResponse streaming = sendStreaming(request);
+    if (streaming.getResponse().getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+      streaming.close();
+      throw new WebApplicationException("Streaming " + request.getUri() + " failed with status "
+          + streaming.getStatus(), streaming.getResponse());
+    }
+    return streaming.readJsonElements(elementType).stream();
+  }
+
   public Response sendPostRequest(Object object, URI uri, MediaType mediaType) {
-    response = client.target(uri).request().headers(multivaluedMap)
-        .post(Entity.entity(object, mediaType));
-    response.bufferEntity();
-    return response;
+    return send(RestRequest.post(uri, object, mediaType).build());
   }
 
   public Response sendGetRequestWithEncoding(URI uri, MediaType mediaType, final String... encodings) {
-    response = client.target(uri).request(mediaType).headers(multivaluedMap)
-        .acceptEncoding("deflate", "gzip").get();
-    response.bufferEntity();
-    return response;
+    return send(RestRequest.get(uri).accept(mediaType)
+        .acceptEncoding(encodings.length > 0 ? encodings : contentDecoding.getEncodings()).build());
   }
 
   public Response sendGetRequest(URI uri, MediaType mediaType) {
-    response = client.target(uri).request(mediaType).headers(multivaluedMap).get();
-    response.bufferEntity();
-    return response;
+    return send(RestRequest.get(uri).accept(mediaType).build());
   }
 
   public Response sendPutRequest(Object object, URI uri, MediaType mediaType) {
-    response = client.target(uri).request().headers(multivaluedMap)
-        .put(Entity.entity(object, mediaType));
-    response.bufferEntity();
-    return response;
+    return send(RestRequest.put(uri, object, mediaType).build());
   }
 
   public Response sendDeleteRequest(URI uri) {
-    response = client.target(uri).request().headers(multivaluedMap).delete();
-    response.bufferEntity();
-    return response;
+    return send(RestRequest.delete(uri).build());
+  }
+
+  /**
+   * Posts a large entity, such as a {@link FileUpload} or a multipart body with file parts, with chunked
+   * transfer encoding. The response is not buffered, so close it once it has been read.
+   */
+  public Response sendUploadRequest(Object object, URI uri, MediaType mediaType) {
+    return send(RestRequest.post(uri, object, mediaType).chunked().buffering(ResponseBuffering.STREAMING).build());
+  }
+
+  public WarmUpReport warmUp(Collection<URI> targets) {
+    return warmUp(targets, 1);
+  }
+
+  /**
+   * Initializes the Jersey runtime and JSON binding, resolves the targets' hosts and opens
+   * {@code connectionsPerTarget} connections to each of them, so the first real calls see steady state latency.
+   * Failures are reported per target rather than thrown. A {@link LoadBalancedTarget} URI warms up every replica.
+   */
+  public WarmUpReport warmUp(Collection<URI> targets, int connectionsPerTarget) {
+    checkNotNull(targets, "targets cannot be null");
+    Preconditions.checkArgument(connectionsPerTarget > 0, "connectionsPerTarget must be positive");
+    List<URI> replicas = new ArrayList<>(targets.size());
+    for (URI target : targets) {
+      if (LoadBalancedTarget.SCHEME.equalsIgnoreCase(target.getScheme())) {
+        replicas.addAll(getLoadBalancedTarget(target.getHost()).resolveAll(target));
+      } else {
+        replicas.add(target);
+      }
+    }
+    int maxKeptAlive = http2Transport != null ? http2Transport.getMaxConnectionsPerHost()
+        : WarmUp.httpUrlConnectionKeptAlive();
+    return new WarmUp(client, connectionPool, maxKeptAlive).run(replicas, connectionsPerTarget);
+  }
+
+  public DownloadResult download(URI uri, Path target) throws IOException {
+    return download(uri, target, DownloadOptions.newInstance());
+  }
+
+  /**
+   * Streams the resource at {@code uri} into {@code target}, in parallel byte ranges when the server accepts
+   * them, resuming a download that failed earlier. The target is only replaced once the whole body arrived.
+   */
+  public DownloadResult download(URI uri, Path target, DownloadOptions options) throws IOException {
+    checkNotNull(uri, "uri cannot be null");
+    checkNotNull(target, "target cannot be null");
+    checkNotNull(options, "options cannot be null");
+    return new Downloader(this::send, asyncExecutor, uri, target, options).download();
+  }
+
+  public CompletableFuture<Response> sendPostRequestAsync(Object object, URI uri, MediaType mediaType) {
+    return sendAsync(RestRequest.post(uri, object, mediaType).build());
+  }
+
+  public CompletableFuture<Response> sendGetRequestAsync(URI uri, MediaType mediaType) {
+    return sendAsync(RestRequest.get(uri).accept(mediaType).build());
+  }
+
+  public CompletableFuture<Response> sendPutRequestAsync(Object object, URI uri, MediaType mediaType) {
+    return sendAsync(RestRequest.put(uri, object, mediaType).build());
+  }
+
+  public CompletableFuture<Response> sendDeleteRequestAsync(URI uri) {
+    return sendAsync(RestRequest.delete(uri).build());
+  }
+
+  /**
+   * Sends all requests with at most {@code parallelism} in flight and waits for them. Results are in the order
+   * of the requests and hold buffered responses, or the failure of requests that got no response.
+   */
+  public List<BatchResult> sendBatch(List<RestRequest> requests, int parallelism) {
+    return sendBatchAsync(requests, parallelism).join();
+  }
+
+  public CompletableFuture<List<BatchResult>> sendBatchAsync(List<RestRequest> requests, int parallelism) {
+    return batch(requests, parallelism).results();
+  }
+
+  /**
+   * Like {@link #sendBatch} but returns immediately with a stream of the results in completion order. Reading
+   * the stream blocks until the next request completes.
+   */
+  public Stream<BatchResult> streamBatch(List<RestRequest> requests, int parallelism) {
+    return batch(requests, parallelism).completions();
+  }
+
+  /**
+   * Responses are buffered on the async executor, or on a pool of the batch's own when there is none, rather than
+   * on the thread that completed the exchange.
+   */
+  private BatchExecution batch(List<RestRequest> requests, int parallelism) {
+    checkNotNull(requests, "requests cannot be null");
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+    ExecutorService pool = asyncExecutor == null ? Executors.newFixedThreadPool(
+        Math.max(1, Math.min(parallelism, requests.size())),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-client-batch-%d").build()) : null;
+    BatchExecution execution = BatchExecution.start(ImmutableList.copyOf(requests), parallelism,
+        request -> buffered(request, sendAsync(request), pool != null ? pool : asyncExecutor));
+    if (pool != null) {
+      execution.results().whenComplete((results, failure) -> pool.shutdown());
+    }
+    return execution;
+  }
+
+  /**
+   * Buffers the response of {@code sent} on {@code executor}, closing it when buffering fails.
+   */
+  private CompletableFuture<Response> buffered(RestRequest request, CompletableFuture<Response> sent,
+      Executor executor) {
+    CompletableFuture<Response> future = sent.thenApplyAsync(asyncResponse -> {
+      try {
+        buffer(request, asyncResponse);
+      } catch (RuntimeException e) {
+        asyncResponse.close();
+        throw e;
+      }
+      return asyncResponse;
+    }, executor);
+    future.whenComplete((r, t) -> {
+      if (future.isCancelled()) {
+        sent.cancel(true);
+        // a response that arrives anyway is never handed to the buffering step
+        sent.thenAccept(Response::close);
+      }
+    });
+    return future;
+  }
+
+  private Invocation invocation(RestRequest request) {
+    return invocation(request, null);
+  }
+
+  private Invocation invocation(RestRequest request, Credential credential) {
+    Invocation.Builder builder = client.target(request.getUri()).request(request.acceptedMediaTypes())
+        .headers(headersFor(request));
+    if (credential != null) {
+      builder.header(HttpHeaders.AUTHORIZATION, credential.getAuthorization());
+    }
+    if (request.acceptedEncodings().length > 0) {
+      builder.acceptEncoding(request.acceptedEncodings());
+    }
+    if (request.isChunked()) {
+      builder.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED);
+    }
+    return request.getEntity() == null ? builder.build(request.getMethod())
+        : builder.build(request.getMethod(), request.getEntity());
+  }
+
+  private Response exchange(RestRequest request) {
+    if (retrying == null) {
+      return invoke(request);
+    }
+    return retrying.execute(request, () -> invoke(request), () -> submit(request));
+  }
+
+  /**
+   * Sends one attempt of {@code request}, once more with a new credential when the current one is rejected.
+   */
+  private Response invoke(RestRequest request) {
+    Credential credential = credentialFor(request);
+    Response sent = invoke(request, credential);
+    if (!isRenewable(request, credential, sent)) {
+      return sent;
+    }
+    Credential renewed;
+    try {
+      renewed = credentials.renew(credential).join();
+    } catch (CompletionException e) {
+      // already logged by the cache, the 401 stands
+      return sent;
+    }
+    if (renewed.getAuthorization().equals(credential.getAuthorization())) {
+      return sent;
+    }
+    sent.close();
+    return invoke(request, renewed);
+  }
+
+  /**
+   * Sends one attempt of {@code request} once its rate limit permits are free.
+   */
+  private Response invoke(RestRequest request, Credential credential) {
+    RateLimiter.Ticket ticket = rateLimiter == null ? null : rateLimiter.reserve(request.getUri());
+    if (ticket != null) {
+      ticket.await();
+    }
+    Response sent = invokeAttempt(request, credential);
+    if (ticket != null) {
+      ticket.completed(sent);
+    }
+    return sent;
+  }
+
+  /**
+   * Sends one attempt of {@code request}, to the replica chosen for it when it is addressed to a
+   * {@link LoadBalancedTarget}.
+   */
+  private Response invokeAttempt(RestRequest request, Credential credential) {
+    LoadBalancedTarget.Lease lease = lease(request);
+    RestRequest attempt = lease == null ? request : lease.getRequest();
+    HostGuard.Permit permit;
+    try {
+      permit = hostGuard == null ? null : hostGuard.acquire(attempt.getUri());
+    } catch (RejectedRequestException e) {
+      if (lease != null) {
+        lease.cancelled();
+      }
+      throw e;
+    }
+    return invokeAttempt(attempt, credential, lease, permit);
+  }
+
+  /**
+   * Sends {@code attempt} on the calling thread once its replica and host permit are taken, and reports the
+   * outcome to both.
+   */
+  private Response invokeAttempt(RestRequest attempt, Credential credential, LoadBalancedTarget.Lease lease,
+      HostGuard.Permit permit) {
+    long start = System.nanoTime();
+    Invocation invocation = invocation(attempt, credential);
+    ClientMetrics.Attempt measured = metrics == null ? null : metrics.track(invocation);
+    try {
+      Response sent = invocation.invoke();
+      if (permit != null) {
+        permit.completed(sent.getStatus());
+      }
+      if (lease != null) {
+        lease.completed(sent.getStatus());
+      }
+      return sent;
+    } catch (ProcessingException e) {
+      if (metrics != null) {
+        metrics.failed(measured, attempt.getUri(), attempt.getMethod(), start);
+      }
+      if (requestLogger != null) {
+        requestLogger.failed(attempt.getUri(), attempt.getMethod(), start, e);
+      }
+      throw e;
+    } finally {
+      // no-ops when the call completed above
+      if (permit != null) {
+        permit.failed();
+      }
+      if (lease != null) {
+        lease.failed();
+      }
+    }
+  }
+
+  /**
+   * The credential to send {@code request} with, none when the request or the client headers set their own
+   * {@code Authorization}.
+   */
+  private Credential credentialFor(RestRequest request) {
+    return usesCredential(request) ? credentials.current() : null;
+  }
+
+  private boolean usesCredential(RestRequest request) {
+    return credentials != null && !request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)
+        && !multivaluedMap.containsKey(HttpHeaders.AUTHORIZATION);
+  }
+
+  private static boolean isRenewable(RestRequest request, Credential credential, Response sent) {
+    return credential != null && sent.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()
+        && RetryingInvoker.hasRepeatableEntity(request);
+  }
+
+  private LoadBalancedTarget.Lease lease(RestRequest request) {
+    if (!LoadBalancedTarget.SCHEME.equalsIgnoreCase(request.getUri().getScheme())) {
+      return null;
+    }
+    String serviceName = request.getUri().getHost();
+    LoadBalancedTarget target = serviceName == null ? null
+        : loadBalancedTargets.get(serviceName.toLowerCase(Locale.ROOT));
+    Preconditions.checkArgument(target != null, "No load balanced target is registered for %s", request.getUri());
+    return target.lease(request);
+  }
+
+  private MultivaluedMap<String, Object> headersFor(RestRequest request) {
+    MultivaluedMap<String, Object> shared = multivaluedMap;
+    if (request.getHeaders().isEmpty()) {
+      return shared;
+    }
+    MultivaluedMap<String, Object> merged = new MultivaluedHashMap<>(shared);
+    merged.putAll(request.getHeaders());
+    return merged;
+  }
+
+  private boolean isCoalescable(RestRequest request) {
+    ResponseBuffering buffering = request.getBuffering() == null ? responseBuffering : request.getBuffering();
+    return HttpMethod.GET.equals(request.getMethod()) && request.getEntity() == null
+        && buffering == ResponseBuffering.BUFFERED;
+  }
+
+  /**
+   * Identifies a coalescable request by its URI, accepted media types and encodings, and every header it would
+   * be sent with.
+   */
+  private String coalescingKey(RestRequest request) {
+    StringBuilder key = new StringBuilder(request.getUri().toString())
+        .append('\n').append(Arrays.toString(request.acceptedMediaTypes()))
+        .append('\n').append(Arrays.toString(request.acceptedEncodings()));
+    Map<String, List<Object>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    headers.putAll(headersFor(request));
+    for (Map.Entry<String, List<Object>> header : headers.entrySet()) {
+      key.append('\n').append(header.getKey()).append(':').append(header.getValue());
+    }
+    return key.toString();
+  }
+
+  private Response complete(RestRequest request, Response sent) {
+    buffer(request, sent);
+    AtomicReference<Response> slot = response.get();
+    Response tracked = new TrackedResponse(sent, slot);
+    slot.set(tracked);
+    return tracked;
+  }
+
+  private void buffer(RestRequest request, Response sent) {
+    ResponseBuffering buffering = request.getBuffering() == null ? responseBuffering : request.getBuffering();
+    if (buffering == ResponseBuffering.BUFFERED) {
+      sent.bufferEntity();
+    }
+  }
+
+  /**
+   * Sends one attempt of {@code request} like {@link #invoke(RestRequest)}, waiting for a credential being
+   * fetched without blocking.
+   */
+  private CompletableFuture<Response> submit(RestRequest request) {
+    if (!usesCredential(request)) {
+      return submitWith(request, null);
+    }
+    CompletableFuture<Credential> credential = credentials.currentAsync();
+    if (credential.isDone() && !credential.isCompletedExceptionally()) {
+      return submitWith(request, credential.join());
+    }
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    credential.whenComplete((fetched, failure) -> {
+      if (failure != null) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        future.completeExceptionally(new ProcessingException("Could not fetch a credential", cause));
+        return;
+      }
+      if (future.isCancelled()) {
+        return;
+      }
+      CompletableFuture<Response> sent = submitWith(request, fetched);
+      future.whenComplete((r, t) -> {
+        if (future.isCancelled()) {
+          sent.cancel(true);
+        }
+      });
+      sent.whenComplete((asyncResponse, throwable) -> {
+        if (throwable != null) {
+          future.completeExceptionally(throwable);
+        } else {
+          completeOrClose(future, asyncResponse);
+        }
+      });
+    });
+    return future;
+  }
+
+  private CompletableFuture<Response> submitWith(RestRequest request, Credential credential) {
+    CompletableFuture<Response> sent = submit(request, credential);
+    if (credential == null) {
+      return sent;
+    }
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    sent.whenComplete((asyncResponse, throwable) -> {
+      if (throwable != null) {
+        future.completeExceptionally(throwable);
+      } else if (!isRenewable(request, credential, asyncResponse)) {
+        completeOrClose(future, asyncResponse);
+      } else {
+        credentials.renew(credential).whenComplete((renewed, failure) -> {
+          if (failure != null || renewed.getAuthorization().equals(credential.getAuthorization())) {
+            completeOrClose(future, asyncResponse);
+            return;
+          }
+          asyncResponse.close();
+          submit(request, renewed).whenComplete((retried, retryFailure) -> {
+            if (retryFailure != null) {
+              future.completeExceptionally(retryFailure);
+            } else {
+              completeOrClose(future, retried);
+            }
+          });
+        });
+      }
+    });
+    future.whenComplete((r, t) -> {
+      if (future.isCancelled()) {
+        sent.cancel(true);
+      }
+    });
+    return future;
+  }
+
+  private static void completeOrClose(CompletableFuture<Response> future, Response asyncResponse) {
+    if (!future.complete(asyncResponse)) {
+      asyncResponse.close();
+    }
+  }
+
+  /**
+   * Sends one attempt of {@code request} once its rate limit permits are free, without blocking while it waits.
+   */
+  private CompletableFuture<Response> submit(RestRequest request, Credential credential) {
+    RateLimiter.Ticket ticket;
+    try {
+      ticket = rateLimiter == null ? null : rateLimiter.reserve(request.getUri());
+    } catch (RejectedRequestException e) {
+      CompletableFuture<Response> rejected = new CompletableFuture<>();
+      rejected.completeExceptionally(e);
+      return rejected;
+    }
+    if (ticket == null) {
+      return dispatch(request, credential);
+    }
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    AtomicReference<Future<?>> pending = new AtomicReference<>();
+    Runnable send = () -> {
+      if (future.isDone()) {
+        ticket.cancelled();
+        return;
+      }
+      CompletableFuture<Response> sent = dispatch(request, credential);
+      pending.set(sent);
+      sent.whenComplete((asyncResponse, throwable) -> {
+        if (throwable != null) {
+          future.completeExceptionally(throwable);
+        } else {
+          ticket.completed(asyncResponse);
+          completeOrClose(future, asyncResponse);
+        }
+      });
+      if (future.isCancelled()) {
+        sent.cancel(true);
+      }
+    };
+    Future<?> delayed = ticket.getDelayNanos() > 0 ? RateLimiter.schedule(send, ticket.getDelayNanos()) : null;
+    if (delayed == null) {
+      send.run();
+    }
+    future.whenComplete((r, t) -> {
+      if (!future.isCancelled()) {
+        return;
+      }
+      if (delayed != null && delayed.cancel(false)) {
+        // never sent, so its permits go back to the bucket
+        ticket.cancelled();
+      }
+      Future<?> inFlight = pending.get();
+      if (inFlight != null) {
+        inFlight.cancel(true);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Sends one attempt of {@code request} once its host permit is free, without blocking while it is queued for
+   * one: on the async executor when there is one, where the response is also buffered, or else through Jersey's
+   * async invokers.
+   */
+  private CompletableFuture<Response> dispatch(RestRequest request, Credential credential) {
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    LoadBalancedTarget.Lease lease;
+    try {
+      lease = lease(request);
+    } catch (IllegalArgumentException e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+    RestRequest attempt = lease == null ? request : lease.getRequest();
+    CompletableFuture<HostGuard.Permit> acquired = hostGuard == null ? CompletableFuture.completedFuture(null)
+        : hostGuard.acquireAsync(attempt.getUri());
+    acquired.whenComplete((permit, failure) -> {
+      if (failure != null) {
+        if (lease != null) {
+          lease.cancelled();
+        }
+        future.completeExceptionally(failure);
+      } else if (future.isDone()) {
+        // cancelled while it was queued for the permit
+        cancelled(lease, permit);
+      } else if (asyncExecutor != null) {
+        execute(attempt, credential, lease, permit, future);
+      } else {
+        submit(attempt, credential, lease, permit, future);
+      }
+    });
+    future.whenComplete((r, t) -> {
+      if (future.isCancelled()) {
+        acquired.cancel(false);
+      }
+    });
+    return future;
+  }
+
+  private void execute(RestRequest attempt, Credential credential, LoadBalancedTarget.Lease lease,
+      HostGuard.Permit permit, CompletableFuture<Response> future) {
+    try {
+      asyncExecutor.execute(() -> {
+        if (future.isDone()) {
+          cancelled(lease, permit);
+          return;
+        }
+        try {
+          Response asyncResponse = invokeAttempt(attempt, credential, lease, permit);
+          try {
+            buffer(attempt, asyncResponse);
+          } catch (RuntimeException e) {
+            asyncResponse.close();
+            throw e;
+          }
+          completeOrClose(future, asyncResponse);
+        } catch (RuntimeException e) {
+          future.completeExceptionally(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      cancelled(lease, permit);
+      future.completeExceptionally(e);
+    }
+  }
+
+  private void submit(RestRequest attempt, Credential credential, LoadBalancedTarget.Lease lease,
+      HostGuard.Permit permit, CompletableFuture<Response> future) {
+    long start = System.nanoTime();
+    Invocation invocation = invocation(attempt, credential);
+    ClientMetrics.Attempt measured = metrics == null ? null : metrics.track(invocation);
+    Future<Response> inFlight = invocation.submit(new InvocationCallback<Response>() {
+      @Override
+      public void completed(Response asyncResponse) {
+        if (permit != null) {
+          permit.completed(asyncResponse.getStatus());
+        }
+        if (lease != null) {
+          lease.completed(asyncResponse.getStatus());
+        }
+        if (!future.complete(asyncResponse)) {
+          asyncResponse.close();
+        }
+      }
+
+      @Override
+      public void failed(Throwable throwable) {
+        if (metrics != null) {
+          metrics.failed(measured, attempt.getUri(), attempt.getMethod(), start);
+        }
+        if (requestLogger != null) {
+          requestLogger.failed(attempt.getUri(), attempt.getMethod(), start, throwable);
+        }
+        if (permit != null) {
+          permit.failed();
+        }
+        if (lease != null) {
+          lease.failed();
+        }
+        future.completeExceptionally(throwable);
+      }
+    });
+    future.whenComplete((r, t) -> {
+      if (future.isCancelled()) {
+        inFlight.cancel(true);
+        if (measured != null) {
+          metrics.cancelled(measured);
+        }
+        cancelled(lease, permit);
+      }
+    });
+  }
+
+  private static void cancelled(LoadBalancedTarget.Lease lease, HostGuard.Permit permit) {
+    if (permit != null) {
+      permit.cancelled();
+    }
+    if (lease != null) {
+      lease.cancelled();
+    }
   }
 
   public void updateClientProperty(String property, boolean enabled) {
     client.property(property, enabled);
   }
 
+  public boolean isPooled() {
+    return connectionPool != null;
+  }
+
+  public ConnectionPoolStats getConnectionPoolStats() {
+    Preconditions.checkState(connectionPool != null, "RestClient is not using a pooled connector");
+    return connectionPool.getStats();
+  }
+
+  public ConnectionPoolStats getConnectionPoolStats(URI route) {
+    Preconditions.checkState(connectionPool != null, "RestClient is not using a pooled connector");
+    return connectionPool.getStats(route);
+  }
+
+  public ClientMetrics getMetrics() {
+    Preconditions.checkState(metrics != null, "Metrics are not enabled for this RestClient");
+    return metrics;
+  }
+
+  public RetryStats getRetryStats() {
+    Preconditions.checkState(retrying != null, "Retries and hedging are not enabled for this RestClient");
+    return retrying.getStats();
+  }
+
+  /**
+   * Circuit breaker state and concurrency limit of every host this client has called.
+   */
+  public List<HostProtectionStats> getHostProtectionStats() {
+    Preconditions.checkState(hostGuard != null, "Host protection is not enabled for this RestClient");
+    return hostGuard.getStats();
+  }
+
+  public CoalescingStats getCoalescingStats() {
+    Preconditions.checkState(coalescer != null, "Request coalescing is not enabled for this RestClient");
+    return coalescer.getStats();
+  }
+
+  /**
+   * Registers a logical service served by {@code replicaBaseUris} and returns it. Requests addressed to
+   * {@code lb://<serviceName>/...} are then sent to one of the replicas, see {@link LoadBalancedTarget}.
+   */
+  public LoadBalancedTarget loadBalancedTarget(String serviceName, Collection<URI> replicaBaseUris) {
+    return loadBalancedTarget(serviceName, replicaBaseUris, LoadBalancerPolicy.newInstance());
+  }
+
+  public LoadBalancedTarget loadBalancedTarget(String serviceName, Collection<URI> replicaBaseUris,
+      LoadBalancerPolicy policy) {
+    LoadBalancedTarget target = new LoadBalancedTarget(serviceName, replicaBaseUris, policy);
+    Preconditions.checkArgument(loadBalancedTargets.putIfAbsent(serviceName.toLowerCase(Locale.ROOT), target) == null,
+        "A load balanced target named %s is already registered", serviceName);
+    return target;
+  }
+
+  public LoadBalancedTarget getLoadBalancedTarget(String serviceName) {
+    checkNotNull(serviceName, "serviceName cannot be null");
+    LoadBalancedTarget target = loadBalancedTargets.get(serviceName.toLowerCase(Locale.ROOT));
+    Preconditions.checkState(target != null, "No load balanced target named %s", serviceName);
+    return target;
+  }
+
+  public List<RateLimitStats> getRateLimitStats() {
+    Preconditions.checkState(rateLimiter != null, "Rate limiting is not enabled for this RestClient");
+    return rateLimiter.getStats();
+  }
+
+  public RequestLogStats getRequestLogStats() {
+    Preconditions.checkState(requestLogger != null, "Request logging is not enabled for this RestClient");
+    return requestLogger.getStats();
+  }
+
+  public ResponseCache getResponseCache() {
+    Preconditions.checkState(responseCache != null, "Response caching is not enabled for this RestClient");
+    return responseCache;
+  }
+
+  public void close() {
+    client.close();
+    if (connectionPool != null) {
+      connectionPool.close();
+    }
+    if (credentials != null) {
+      credentials.close();
+    }
+    if (requestLogger != null) {
+      requestLogger.close();
+    }
+  }
+
+  private static SSLContext configureSessionCache(SSLContext sslContext, RestClientConfig config) {
+    SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+    if (config.getSslSessionCacheSize() >= 0) {
+      sessionContext.setSessionCacheSize(config.getSslSessionCacheSize());
+    }
+    if (config.getSslSessionTimeoutSeconds() >= 0) {
+      sessionContext.setSessionTimeout(config.getSslSessionTimeoutSeconds());
+    }
+    return sslContext;
+  }
+
   @SuppressWarnings("PMD.CyclomaticComplexity")
-  private Client createSSLClient(String keyStoreFile, String keyStorePasswd, String httpsAlias, String tlsVersion) {
+  private static SSLContext createSSLContext(String keyStoreFile, String keyStorePasswd, String httpsAlias,
+      String tlsVersion) {
     try {
       URL keyStoreFileURL = Resources.getResource(keyStoreFile);
       SslConfigurator sslConfig = SslConfigurator.newInstance().keyStoreFile(keyStoreFileURL.getFile())
@@ -169,106 +975,239 @@ public class RestClient {
         SSLContext sslContext = sslConfig.createSSLContext().getInstance(tlsVersion);
         sslContext.init(keyManagerFactory.getKeyManagers(), trustAllCerts, new SecureRandom());
 
-        return createClientBuilder().sslContext(sslContext).hostnameVerifier((hostname, session) -> true).build();
+        return sslContext;
       }
 
     } catch (NoSuchAlgorithmException | KeyStoreException | IOException | CertificateException |
         UnrecoverableKeyException | KeyManagementException e) {
-      e.printStackTrace();
+      LOGGER.error("Could not create an SSL context from {} with alias {}", keyStoreFile, httpsAlias, e);
       throw new RuntimeException(e);
     }
   }
 
   public ClientBuilder createClientBuilder() {
-    return ClientBuilder.newBuilder().register(MultiPartFeature.class)
-        .register(new GZIPReaderInterceptor()); //.register(new DecodingWriterInterceptor());
+    ClientBuilder builder = ClientBuilder.newBuilder();
+    if (connectionPool != null) {
+      builder.withConfig(connectionPool.clientConfig());
+    }
+    if (http2Transport != null) {
+      builder.withConfig(http2Transport.clientConfig());
+    }
+    if (asyncThreadPoolSize > 0) {
+      builder.property(ClientProperties.ASYNC_THREADPOOL_SIZE, asyncThreadPoolSize);
+    }
+    if (coalescer != null) {
+      builder.register(coalescer, RequestCoalescer.PRIORITY);
+    }
+    if (responseCache != null) {
+      builder.register(responseCache, ResponseCache.PRIORITY);
+    }
+    if (metrics != null) {
+      builder.register(metrics, Priorities.HEADER_DECORATOR);
+    }
+    if (requestCompression != null) {
+      builder.register(requestCompression, Priorities.ENTITY_CODER);
+    }
+    if (requestLogger != null) {
+      builder.register(requestLogger, RequestLogger.PRIORITY);
+    }
+    return builder.register(MultiPartFeature.class)
+        .register(new FileUploadWriter())
+        .register(new JsonStreamBodyWriter())
+        .register(contentDecoding);
   }
 
-  public static class DecodingWriterInterceptor implements WriterInterceptor {
-    @Override
-    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+  /**
+   * Compresses request bodies with a pooled {@link java.util.zip.Deflater}. With the default connector the first
+   * {@code threshold} bytes are held back so small bodies go out as they are. Connectors that send the headers
+   * before the body, such as the pooled Apache connector, cannot take a late {@code Content-Encoding}, so there
+   * the decision is made up front by the request filter from the entity size when it is known.
+   */
+  public static class DecodingWriterInterceptor implements ClientRequestFilter, WriterInterceptor {
+
+    public static final Set<MediaType> DEFAULT_UNCOMPRESSED_TYPES = ImmutableSet.of(
+        MediaType.MULTIPART_FORM_DATA_TYPE, MediaType.APPLICATION_OCTET_STREAM_TYPE,
+        new MediaType("multipart", MediaType.MEDIA_TYPE_WILDCARD),
+        new MediaType("image", MediaType.MEDIA_TYPE_WILDCARD),
+        new MediaType("audio", MediaType.MEDIA_TYPE_WILDCARD),
+        new MediaType("video", MediaType.MEDIA_TYPE_WILDCARD),
+        new MediaType("application", "zip"), new MediaType("application", "gzip"));
+
+    private static final String COMPRESS_PROPERTY = DecodingWriterInterceptor.class.getName() + ".compress";
+
+    private final String encoding;
+    private final int threshold;
+    private final Set<MediaType> uncompressedTypes;
+    private final boolean headersSentFirst;
 
-      LOGGER.debug("In the writer interceptor");
+    public DecodingWriterInterceptor() {
+      this("gzip", 1024);
     }
-  }
 
-  public static class GZIPReaderInterceptor implements ReaderInterceptor {
+    public DecodingWriterInterceptor(String encoding, int threshold) {
+      this(encoding, threshold, DEFAULT_UNCOMPRESSED_TYPES);
+    }
+
+    public DecodingWriterInterceptor(String encoding, int threshold, Set<MediaType> uncompressedTypes) {
+      this(encoding, threshold, uncompressedTypes, false);
+    }
+
+    DecodingWriterInterceptor(String encoding, int threshold, Set<MediaType> uncompressedTypes,
+        boolean headersSentFirst) {
+      Preconditions.checkArgument(CompressingOutputStream.GZIP.equalsIgnoreCase(encoding)
+          || CompressingOutputStream.DEFLATE.equalsIgnoreCase(encoding), "Unsupported request encoding %s", encoding);
+      Preconditions.checkArgument(threshold >= 0, "threshold cannot be negative");
+      this.encoding = encoding.toLowerCase();
+      this.threshold = threshold;
+      this.uncompressedTypes = ImmutableSet.copyOf(uncompressedTypes);
+      this.headersSentFirst = headersSentFirst;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+
+      if (!headersSentFirst || !requestContext.hasEntity()
+          || requestContext.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)
+          || isUncompressed(requestContext.getMediaType())) {
+        return;
+      }
+      long size = knownSize(requestContext.getEntity());
+      if (size >= 0 && size <= threshold) {
+        return;
+      }
+      requestContext.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+      requestContext.setProperty(COMPRESS_PROPERTY, Boolean.TRUE);
+    }
 
     @Override
-    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException, WebApplicationException {
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+
+      boolean decided = context.getProperty(COMPRESS_PROPERTY) != null;
+      if (!decided && (headersSentFirst || context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)
+          || isUncompressed(context.getMediaType()))) {
+        context.proceed();
+        return;
+      }
+      LOGGER.debug("Compressing request bodies over {} bytes with {}", threshold, encoding);
+      CompressingOutputStream compressingStream = new CompressingOutputStream(context.getOutputStream(),
+          context.getHeaders(), encoding, threshold);
+      if (decided) {
+        compressingStream.start();
+      }
+      context.setOutputStream(compressingStream);
+      try {
+        context.proceed();
+        compressingStream.finish();
+      } finally {
+        compressingStream.release();
+      }
+    }
+
+    private static long knownSize(Object entity) {
+      if (entity instanceof byte[]) {
+        return ((byte[]) entity).length;
+      } else if (entity instanceof String) {
+        return ((String) entity).length();
+      } else if (entity instanceof File) {
+        return ((File) entity).length();
+      }
+      return -1;
+    }
 
-      MultivaluedMap<String, String> headers = context.getHeaders();
-      if (headers.containsKey(HttpHeaders.CONTENT_ENCODING) &&
-          headers.getFirst(HttpHeaders.CONTENT_ENCODING).equalsIgnoreCase("GZip")) {
-          LOGGER.debug("Content-Encoding is set to GZip in the response, unzipping first");
-          final InputStream originalInputStream = context.getInputStream();
-          context.setInputStream(new GZIPInputStream(originalInputStream));
+    private boolean isUncompressed(MediaType mediaType) {
+      if (mediaType == null || mediaType.isWildcardType()) {
+        return false;
+      }
+      for (MediaType uncompressed : uncompressedTypes) {
+        if (uncompressed.isCompatible(mediaType)) {
+          return true;
+        }
       }
-      return context.proceed();
+      return false;
     }
   }
 
+  /**
+   * Decodes gzip responses, along with every other coding {@link ContentDecodingInterceptor} handles.
+   *
+   * @deprecated use {@link ContentDecodingInterceptor}
+   */
+  @Deprecated
+  public static class GZIPReaderInterceptor extends ContentDecodingInterceptor {
+  }
+
+  /**
+   * Joins {@code baseUri} and {@code pathTemplate}, fills the path variables and appends the query parameters.
+   * The joined template is compiled once and cached, see {@link CompiledUriTemplate}.
+   */
   @SuppressWarnings("PMD.AvoidReassigningParameters")
   public URI buildUri(String baseUri, String pathTemplate, Map<String, String> queryParams, Object... pathParams) {
 
     if (!baseUri.endsWith("/") && !pathTemplate.startsWith("/")) {
       baseUri += "/";
     }
-    UriBuilder builder = UriBuilder.fromUri(baseUri + pathTemplate);
-
-    if (queryParams != null && !queryParams.isEmpty()) {
-      queryParams.entrySet().stream().forEach(e -> {
-        builder.queryParam(e.getKey(), e.getValue());
-      });
-    }
-
-    return builder.build(pathParams, true);
+    return CompiledUriTemplate.compile(baseUri + pathTemplate).expand(queryParams, pathParams);
   }
 
   public void addHeader(String header, String value) {
-    multivaluedMap.putSingle(header, value);
+    updateHeaders(headers -> headers.putSingle(header, value));
   }
 
   public void addHeader(String header, List<Object> value) {
-    multivaluedMap.put(header, value);
+    updateHeaders(headers -> headers.put(header, new ArrayList<>(value)));
   }
 
   public void addHeaders(Map<String, String> headers) {
-    for (Map.Entry<String, String> entry : headers.entrySet()) {
-      multivaluedMap.putSingle(entry.getKey(), entry.getValue());
-    }
+    updateHeaders(current -> {
+      for (Map.Entry<String, String> entry : headers.entrySet()) {
+        current.putSingle(entry.getKey(), entry.getValue());
+      }
+    });
   }
 
   public void removeHeader(String header) {
-    multivaluedMap.remove(header);
+    updateHeaders(headers -> headers.remove(header));
   }
 
   public void removeEtagRelatedHeaders() {
-    multivaluedMap.remove(HttpHeaders.IF_MATCH);
-    multivaluedMap.remove(HttpHeaders.IF_NONE_MATCH);
-    multivaluedMap.remove(HttpHeaders.IF_MODIFIED_SINCE);
+    updateHeaders(headers -> {
+      headers.remove(HttpHeaders.IF_MATCH);
+      headers.remove(HttpHeaders.IF_NONE_MATCH);
+      headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+    });
   }
 
   public void removeAuthHeader() {
-    multivaluedMap.remove(HttpHeaders.AUTHORIZATION);
+    updateHeaders(headers -> headers.remove(HttpHeaders.AUTHORIZATION));
   }
 
   public void addAuthHeader(String assertion) {
-    multivaluedMap.putSingle(HttpHeaders.AUTHORIZATION, "SAML2 assertion=" + assertion);
+    updateHeaders(headers -> headers.putSingle(HttpHeaders.AUTHORIZATION, "SAML2 assertion=" + assertion));
   }
 
   private void clearAllHeaders() {
-    if (multivaluedMap != null) {
-      multivaluedMap.clear();
+    updateHeaders(MultivaluedMap::clear);
+  }
+
+  private void updateHeaders(Consumer<MultivaluedMap<String, Object>> update) {
+    synchronized (headerLock) {
+      MultivaluedMap<String, Object> copy = new MultivaluedHashMap<>(multivaluedMap);
+      update.accept(copy);
+      multivaluedMap = new ImmutableMultivaluedMap<>(copy);
     }
   }
 
   public Response getResponse() {
-    checkNotNull(response);
-    return response;
+    Response last = response.get().get();
+    checkNotNull(last);
+    return last;
   }
 
   public boolean validateHttpResponseCode(int status) {
+    return validateHttpResponseCode(response.get().get(), status);
+  }
+
+  public boolean validateHttpResponseCode(Response response, int status) {
     checkNotNull(response);
     assertEquals(status, response.getStatus());
     return status == response.getStatus();
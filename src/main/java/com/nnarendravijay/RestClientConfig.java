@@ -0,0 +1,448 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import javax.ws.rs.core.MediaType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Construction time settings for a {@link RestClient}. Instances are mutable and fluent, in the same way as
+ * Jersey's {@code SslConfigurator}; a client copies what it needs when it is built.
+ */
+public class RestClientConfig {
+
+  private boolean pooled;
+  private int maxTotalConnections = 200;
+  private int maxConnectionsPerRoute = 20;
+  private final Map<URI, Integer> routeConnectionLimits = new HashMap<>();
+  private long connectionTimeToLiveMillis = -1;
+  private long idleConnectionTimeoutMillis = 60000;
+  private long idleEvictionIntervalMillis = 5000;
+  private int connectionLeaseTimeoutMillis = -1;
+  private Executor asyncExecutor;
+  private int asyncThreadPoolSize;
+  private ResponseBuffering responseBuffering = ResponseBuffering.BUFFERED;
+  private boolean sslContextCaching = true;
+  private int sslSessionCacheSize = -1;
+  private int sslSessionTimeoutSeconds = -1;
+  private boolean metricsEnabled;
+  private String requestEncoding;
+  private int requestCompressionThreshold;
+  private Set<MediaType> uncompressedMediaTypes = RestClient.DecodingWriterInterceptor.DEFAULT_UNCOMPRESSED_TYPES;
+  private long responseCacheBytes;
+  private RetryPolicy retryPolicy;
+  private HedgePolicy hedgePolicy;
+  private CircuitBreakerPolicy circuitBreakerPolicy;
+  private ConcurrencyLimitPolicy concurrencyLimitPolicy;
+  private Http2Options http2Options;
+  private boolean requestCoalescing;
+  private final Map<String, ContentDecoder> contentDecoders = new LinkedHashMap<>();
+  private CredentialProvider credentialProvider;
+  private long credentialRefreshAheadMillis = 60000;
+  private final List<RateLimiter.Rule> rateLimits = new ArrayList<>();
+  private RequestLoggingPolicy requestLoggingPolicy;
+
+  public static RestClientConfig newInstance() {
+    return new RestClientConfig();
+  }
+
+  /**
+   * Switches the client from Jersey's default HttpUrlConnection connector to a pooled, keep-alive Apache
+   * connector governed by the connection limits of this config.
+   */
+  public RestClientConfig pooledConnections(boolean pooled) {
+    this.pooled = pooled;
+    return this;
+  }
+
+  public RestClientConfig maxTotalConnections(int maxTotalConnections) {
+    Preconditions.checkArgument(maxTotalConnections > 0, "maxTotalConnections must be positive");
+    this.maxTotalConnections = maxTotalConnections;
+    return this;
+  }
+
+  public RestClientConfig maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    Preconditions.checkArgument(maxConnectionsPerRoute > 0, "maxConnectionsPerRoute must be positive");
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    return this;
+  }
+
+  /**
+   * Overrides the per route limit for the scheme, host and port of the given URI.
+   */
+  public RestClientConfig maxConnectionsPerRoute(URI route, int maxConnections) {
+    Preconditions.checkNotNull(route, "route cannot be null");
+    Preconditions.checkArgument(maxConnections > 0, "maxConnections must be positive");
+    routeConnectionLimits.put(route, maxConnections);
+    return this;
+  }
+
+  /**
+   * Maximum lifetime of a pooled connection, regardless of activity. A negative value means no limit.
+   */
+  public RestClientConfig connectionTimeToLiveMillis(long connectionTimeToLiveMillis) {
+    this.connectionTimeToLiveMillis = connectionTimeToLiveMillis;
+    return this;
+  }
+
+  /**
+   * Connections idle for longer than this are closed by the background evictor. Zero or less disables it.
+   */
+  public RestClientConfig idleConnectionTimeoutMillis(long idleConnectionTimeoutMillis) {
+    this.idleConnectionTimeoutMillis = idleConnectionTimeoutMillis;
+    return this;
+  }
+
+  public RestClientConfig idleEvictionIntervalMillis(long idleEvictionIntervalMillis) {
+    Preconditions.checkArgument(idleEvictionIntervalMillis > 0, "idleEvictionIntervalMillis must be positive");
+    this.idleEvictionIntervalMillis = idleEvictionIntervalMillis;
+    return this;
+  }
+
+  /**
+   * How long a request waits to lease a connection from an exhausted pool. A negative value keeps the
+   * connector default.
+   */
+  public RestClientConfig connectionLeaseTimeoutMillis(int connectionLeaseTimeoutMillis) {
+    this.connectionLeaseTimeoutMillis = connectionLeaseTimeoutMillis;
+    return this;
+  }
+
+  /**
+   * Executor that runs the blocking exchange behind the {@code send*RequestAsync} methods; buffered responses
+   * are read on that executor before the future completes. Pass a virtual thread per task executor on runtimes
+   * that support it. When no executor is set the async methods use Jersey's async invokers instead and complete
+   * with the unbuffered response, so the body is read by whoever consumes the future.
+   */
+  public RestClientConfig asyncExecutor(Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+    return this;
+  }
+
+  /**
+   * Size of Jersey's async invoker thread pool. Zero or less keeps the Jersey default.
+   */
+  public RestClientConfig asyncThreadPoolSize(int asyncThreadPoolSize) {
+    this.asyncThreadPoolSize = asyncThreadPoolSize;
+    return this;
+  }
+
+  /**
+   * Default buffering for responses; individual calls can override it on their {@link RestRequest}.
+   */
+  public RestClientConfig responseBuffering(ResponseBuffering responseBuffering) {
+    this.responseBuffering = Preconditions.checkNotNull(responseBuffering, "responseBuffering cannot be null");
+    return this;
+  }
+
+  /**
+   * Whether SSL clients share a process wide {@link SslContextCache} entry for their keystore, alias and TLS
+   * version instead of reloading the keystore. Enabled by default.
+   */
+  public RestClientConfig sslContextCaching(boolean sslContextCaching) {
+    this.sslContextCaching = sslContextCaching;
+    return this;
+  }
+
+  /**
+   * Number of TLS sessions kept for resumption by the client session cache; zero means unlimited and a negative
+   * value keeps the JSSE default.
+   */
+  public RestClientConfig sslSessionCacheSize(int sslSessionCacheSize) {
+    this.sslSessionCacheSize = sslSessionCacheSize;
+    return this;
+  }
+
+  /**
+   * How long a cached TLS session can be resumed; zero means no limit and a negative value keeps the JSSE
+   * default.
+   */
+  public RestClientConfig sslSessionTimeoutSeconds(int sslSessionTimeoutSeconds) {
+    this.sslSessionTimeoutSeconds = sslSessionTimeoutSeconds;
+    return this;
+  }
+
+  /**
+   * Records per host latency histograms, in-flight requests and bytes in and out, readable through
+   * {@link RestClient#getMetrics()}.
+   */
+  public RestClientConfig metrics(boolean metricsEnabled) {
+    this.metricsEnabled = metricsEnabled;
+    return this;
+  }
+
+  /**
+   * Compresses request bodies larger than {@code thresholdBytes} with {@code gzip} or {@code deflate} and sets
+   * {@code Content-Encoding} accordingly. Bodies of the {@link #uncompressedMediaTypes} are sent as they are.
+   */
+  public RestClientConfig requestCompression(String encoding, int thresholdBytes) {
+    Preconditions.checkArgument("gzip".equalsIgnoreCase(encoding) || "deflate".equalsIgnoreCase(encoding),
+        "Unsupported request encoding %s", encoding);
+    Preconditions.checkArgument(thresholdBytes >= 0, "thresholdBytes cannot be negative");
+    this.requestEncoding = encoding;
+    this.requestCompressionThreshold = thresholdBytes;
+    return this;
+  }
+
+  /**
+   * Media types that are already compressed and so are never request compressed. Defaults to multipart, octet
+   * streams, archives, images, audio and video.
+   */
+  public RestClientConfig uncompressedMediaTypes(MediaType... mediaTypes) {
+    this.uncompressedMediaTypes = ImmutableSet.copyOf(mediaTypes);
+    return this;
+  }
+
+  /**
+   * Caches GET responses in memory, up to {@code maxBytes} in total, and revalidates them with their
+   * {@code ETag} or {@code Last-Modified}. Zero, the default, disables the cache.
+   */
+  public RestClientConfig responseCache(long maxBytes) {
+    Preconditions.checkArgument(maxBytes >= 0, "maxBytes cannot be negative");
+    this.responseCacheBytes = maxBytes;
+    return this;
+  }
+
+  /**
+   * Retries idempotent calls, synchronous and asynchronous. No retries by default.
+   */
+  public RestClientConfig retryPolicy(RetryPolicy retryPolicy) {
+    this.retryPolicy = retryPolicy;
+    return this;
+  }
+
+  /**
+   * Hedges GET calls, synchronous and asynchronous. No hedging by default.
+   */
+  public RestClientConfig hedgePolicy(HedgePolicy hedgePolicy) {
+    this.hedgePolicy = hedgePolicy;
+    return this;
+  }
+
+  /**
+   * Gives every host called by the client its own circuit breaker. None by default.
+   */
+  public RestClientConfig circuitBreaker(CircuitBreakerPolicy circuitBreakerPolicy) {
+    this.circuitBreakerPolicy = circuitBreakerPolicy;
+    return this;
+  }
+
+  /**
+   * Gives every host called by the client its own adaptive concurrency limit. None by default.
+   */
+  public RestClientConfig concurrencyLimit(ConcurrencyLimitPolicy concurrencyLimitPolicy) {
+    this.concurrencyLimitPolicy = concurrencyLimitPolicy;
+    return this;
+  }
+
+  /**
+   * Sends every call over multiplexed HTTP/2 connections instead of HTTP/1.1, with {@code h2} negotiated by ALPN
+   * for {@code https} and cleartext {@code h2c} for {@code http}. Cannot be combined with
+   * {@link #pooledConnections(boolean)}; the idle connection timeout applies to HTTP/2 connections too.
+   */
+  public RestClientConfig http2(Http2Options http2Options) {
+    this.http2Options = http2Options;
+    return this;
+  }
+
+  /**
+   * Lets concurrent identical GETs sent through {@link RestClient#send(RestRequest)} share one exchange, see
+   * {@link RequestCoalescer}. Off by default.
+   */
+  public RestClientConfig requestCoalescing(boolean requestCoalescing) {
+    this.requestCoalescing = requestCoalescing;
+    return this;
+  }
+
+  /**
+   * Decodes responses sent with {@code Content-Encoding: encoding} with {@code decoder}. gzip and deflate are
+   * decoded out of the box, as are br and zstd when their codecs are on the classpath, see
+   * {@link ContentDecodingInterceptor}. Registered encodings are also advertised by
+   * {@link RestClient#sendGetRequestWithEncoding(URI, MediaType, String...)}.
+   */
+  public RestClientConfig contentDecoder(String encoding, ContentDecoder decoder) {
+    Preconditions.checkArgument(encoding != null && !encoding.trim().isEmpty(), "encoding cannot be blank");
+    Preconditions.checkNotNull(decoder, "decoder cannot be null");
+    contentDecoders.put(encoding.trim(), decoder);
+    return this;
+  }
+
+  /**
+   * Sends every request with the {@code Authorization} of the credential from {@code credentialProvider}, unless
+   * the request or the client headers carry their own. The credential is cached, fetched again in the background
+   * ahead of its expiry, and a request answered with 401 is sent once more with a new one when it can be replayed.
+   */
+  public RestClientConfig credentialProvider(CredentialProvider credentialProvider) {
+    this.credentialProvider = credentialProvider;
+    return this;
+  }
+
+  /**
+   * How long before its expiry a credential is fetched again, at most half of its lifetime. 60 seconds by default.
+   */
+  public RestClientConfig credentialRefreshAheadMillis(long credentialRefreshAheadMillis) {
+    Preconditions.checkArgument(credentialRefreshAheadMillis >= 0, "credentialRefreshAheadMillis cannot be negative");
+    this.credentialRefreshAheadMillis = credentialRefreshAheadMillis;
+    return this;
+  }
+
+  /**
+   * Limits the calls to {@code host}, given as {@code name} for every port or as {@code name:port}, to the token
+   * bucket of {@code policy}. For a {@link LoadBalancedTarget} the host is its service name, so the limit is
+   * shared by its replicas.
+   */
+  public RestClientConfig rateLimit(String host, RateLimitPolicy policy) {
+    rateLimits.add(new RateLimiter.Rule(host, null, policy));
+    return this;
+  }
+
+  /**
+   * Limits the calls to the route {@code pathTemplate} of {@code host} to a token bucket of their own, on top of
+   * any limit of the host. The template is written as for {@link RestClient#buildUri}, for instance
+   * {@code /orders/{id}}, and matches the end of the request path. A call counts against the first route it
+   * matches.
+   */
+  public RestClientConfig rateLimit(String host, String pathTemplate, RateLimitPolicy policy) {
+    Preconditions.checkNotNull(pathTemplate, "pathTemplate cannot be null");
+    rateLimits.add(new RateLimiter.Rule(host, pathTemplate, policy));
+    return this;
+  }
+
+  /**
+   * Logs sampled calls with their redacted headers and truncated bodies from a background thread, see
+   * {@link RequestLoggingPolicy}. Off by default.
+   */
+  public RestClientConfig requestLogging(RequestLoggingPolicy requestLoggingPolicy) {
+    this.requestLoggingPolicy = requestLoggingPolicy;
+    return this;
+  }
+
+  public boolean isPooled() {
+    return pooled;
+  }
+
+  public int getMaxTotalConnections() {
+    return maxTotalConnections;
+  }
+
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  public Map<URI, Integer> getRouteConnectionLimits() {
+    return Collections.unmodifiableMap(routeConnectionLimits);
+  }
+
+  public long getConnectionTimeToLiveMillis() {
+    return connectionTimeToLiveMillis;
+  }
+
+  public long getIdleConnectionTimeoutMillis() {
+    return idleConnectionTimeoutMillis;
+  }
+
+  public long getIdleEvictionIntervalMillis() {
+    return idleEvictionIntervalMillis;
+  }
+
+  public int getConnectionLeaseTimeoutMillis() {
+    return connectionLeaseTimeoutMillis;
+  }
+
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  public int getAsyncThreadPoolSize() {
+    return asyncThreadPoolSize;
+  }
+
+  public ResponseBuffering getResponseBuffering() {
+    return responseBuffering;
+  }
+
+  public boolean isSslContextCaching() {
+    return sslContextCaching;
+  }
+
+  public int getSslSessionCacheSize() {
+    return sslSessionCacheSize;
+  }
+
+  public int getSslSessionTimeoutSeconds() {
+    return sslSessionTimeoutSeconds;
+  }
+
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  public String getRequestEncoding() {
+    return requestEncoding;
+  }
+
+  public int getRequestCompressionThreshold() {
+    return requestCompressionThreshold;
+  }
+
+  public Set<MediaType> getUncompressedMediaTypes() {
+    return uncompressedMediaTypes;
+  }
+
+  public long getResponseCacheBytes() {
+    return responseCacheBytes;
+  }
+
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  public HedgePolicy getHedgePolicy() {
+    return hedgePolicy;
+  }
+
+  public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+    return circuitBreakerPolicy;
+  }
+
+  public ConcurrencyLimitPolicy getConcurrencyLimitPolicy() {
+    return concurrencyLimitPolicy;
+  }
+
+  public Http2Options getHttp2Options() {
+    return http2Options;
+  }
+
+  public boolean isRequestCoalescing() {
+    return requestCoalescing;
+  }
+
+  public Map<String, ContentDecoder> getContentDecoders() {
+    return Collections.unmodifiableMap(contentDecoders);
+  }
+
+  public CredentialProvider getCredentialProvider() {
+    return credentialProvider;
+  }
+
+  public long getCredentialRefreshAheadMillis() {
+    return credentialRefreshAheadMillis;
+  }
+
+  public RequestLoggingPolicy getRequestLoggingPolicy() {
+    return requestLoggingPolicy;
+  }
+
+  List<RateLimiter.Rule> getRateLimits() {
+    return Collections.unmodifiableList(rateLimits);
+  }
+}
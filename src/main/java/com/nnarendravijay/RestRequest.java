@@ -0,0 +1,190 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import org.glassfish.jersey.internal.util.collection.ImmutableMultivaluedMap;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Immutable description of a single call made through {@link RestClient#send(RestRequest)}. Headers added
+ * here apply to this call only and are layered over the client wide headers, so one client can be shared by
+ * many threads that each need their own extra headers.
+ */
+public final class RestRequest {
+
+  private static final String[] NO_ENCODINGS = new String[0];
+
+  private final String method;
+  private final URI uri;
+  private final MediaType[] acceptedMediaTypes;
+  private final Entity<?> entity;
+  private final MultivaluedMap<String, Object> headers;
+  private final String[] acceptedEncodings;
+  private final ResponseBuffering buffering;
+  private final boolean chunked;
+
+  private RestRequest(Builder builder) {
+    this.method = builder.method;
+    this.uri = builder.uri;
+    this.acceptedMediaTypes = builder.acceptedMediaTypes;
+    this.entity = builder.entity;
+    this.headers = builder.headers.isEmpty() ? ImmutableMultivaluedMap.<String, Object>empty()
+        : new ImmutableMultivaluedMap<>(new MultivaluedHashMap<>(builder.headers));
+    this.acceptedEncodings = builder.acceptedEncodings;
+    this.buffering = builder.buffering;
+    this.chunked = builder.chunked || entity != null
+        && (entity.getEntity() instanceof FileUpload || entity.getEntity() instanceof JsonStreamBody);
+  }
+
+  private RestRequest(RestRequest request, URI uri) {
+    this.method = request.method;
+    this.uri = uri;
+    this.acceptedMediaTypes = request.acceptedMediaTypes;
+    this.entity = request.entity;
+    this.headers = request.headers;
+    this.acceptedEncodings = request.acceptedEncodings;
+    this.buffering = request.buffering;
+    this.chunked = request.chunked;
+  }
+
+  public static Builder get(URI uri) {
+    return new Builder(HttpMethod.GET, uri);
+  }
+
+  public static Builder post(URI uri, Object object, MediaType mediaType) {
+    return new Builder(HttpMethod.POST, uri).entity(object, mediaType);
+  }
+
+  public static Builder put(URI uri, Object object, MediaType mediaType) {
+    return new Builder(HttpMethod.PUT, uri).entity(object, mediaType);
+  }
+
+  public static Builder delete(URI uri) {
+    return new Builder(HttpMethod.DELETE, uri);
+  }
+
+  public static Builder method(String method, URI uri) {
+    return new Builder(method, uri);
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public URI getUri() {
+    return uri;
+  }
+
+  public MediaType[] getAcceptedMediaTypes() {
+    return acceptedMediaTypes.clone();
+  }
+
+  public Entity<?> getEntity() {
+    return entity;
+  }
+
+  public MultivaluedMap<String, Object> getHeaders() {
+    return headers;
+  }
+
+  public String[] getAcceptedEncodings() {
+    return acceptedEncodings.clone();
+  }
+
+  /**
+   * The buffering requested for this call, or {@code null} to use the client default.
+   */
+  public ResponseBuffering getBuffering() {
+    return buffering;
+  }
+
+  /**
+   * Whether the entity is streamed with chunked transfer encoding instead of being buffered to compute its
+   * length. Always true for {@link FileUpload} and {@link JsonStreamBody} entities.
+   */
+  public boolean isChunked() {
+    return chunked;
+  }
+
+  /**
+   * The same call addressed to {@code uri}.
+   */
+  RestRequest withUri(URI uri) {
+    return new RestRequest(this, uri);
+  }
+
+  MediaType[] acceptedMediaTypes() {
+    return acceptedMediaTypes;
+  }
+
+  String[] acceptedEncodings() {
+    return acceptedEncodings;
+  }
+
+  public static final class Builder {
+    private final String method;
+    private final URI uri;
+    private MediaType[] acceptedMediaTypes = new MediaType[0];
+    private Entity<?> entity;
+    private final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    private String[] acceptedEncodings = NO_ENCODINGS;
+    private ResponseBuffering buffering;
+    private boolean chunked;
+
+    private Builder(String method, URI uri) {
+      this.method = Preconditions.checkNotNull(method, "method cannot be null");
+      this.uri = Preconditions.checkNotNull(uri, "uri cannot be null");
+    }
+
+    public Builder accept(MediaType... mediaTypes) {
+      this.acceptedMediaTypes = mediaTypes.clone();
+      return this;
+    }
+
+    public Builder entity(Object object, MediaType mediaType) {
+      this.entity = Entity.entity(object, mediaType);
+      return this;
+    }
+
+    public Builder header(String header, Object value) {
+      headers.add(header, value);
+      return this;
+    }
+
+    public Builder headers(Map<String, String> extraHeaders) {
+      for (Map.Entry<String, String> entry : extraHeaders.entrySet()) {
+        headers.putSingle(entry.getKey(), entry.getValue());
+      }
+      return this;
+    }
+
+    public Builder acceptEncoding(String... encodings) {
+      this.acceptedEncodings = encodings.clone();
+      return this;
+    }
+
+    public Builder buffering(ResponseBuffering buffering) {
+      this.buffering = buffering;
+      return this;
+    }
+
+    /**
+     * Streams the entity with chunked transfer encoding, for instance a multipart body with {@link FileUpload}
+     * parts, so it is never held in memory as a whole.
+     */
+    public Builder chunked() {
+      this.chunked = true;
+      return this;
+    }
+
+    public RestRequest build() {
+      return new RestRequest(this);
+    }
+  }
+}
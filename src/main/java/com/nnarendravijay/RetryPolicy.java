@@ -0,0 +1,96 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * When and how often {@link RestClient} retries idempotent requests (GET, HEAD, OPTIONS, PUT and DELETE). A
+ * request is retried when it fails without a response or gets one of the retryable status codes, after an
+ * exponential backoff with full jitter, or after the server's {@code Retry-After} when it sends one.
+ */
+public class RetryPolicy {
+
+  private int maxAttempts = 3;
+  private long initialBackoffMillis = 50;
+  private long maxBackoffMillis = 2000;
+  private long maxRetryAfterMillis = 10000;
+  private Set<Integer> retryableStatuses = ImmutableSet.of(502, 503, 504);
+  private boolean retryConnectionFailures = true;
+
+  public static RetryPolicy newInstance() {
+    return new RetryPolicy();
+  }
+
+  /**
+   * Total number of attempts, including the first one.
+   */
+  public RetryPolicy maxAttempts(int maxAttempts) {
+    Preconditions.checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+    this.maxAttempts = maxAttempts;
+    return this;
+  }
+
+  public RetryPolicy initialBackoffMillis(long initialBackoffMillis) {
+    Preconditions.checkArgument(initialBackoffMillis >= 0, "initialBackoffMillis cannot be negative");
+    this.initialBackoffMillis = initialBackoffMillis;
+    return this;
+  }
+
+  public RetryPolicy maxBackoffMillis(long maxBackoffMillis) {
+    Preconditions.checkArgument(maxBackoffMillis >= 0, "maxBackoffMillis cannot be negative");
+    this.maxBackoffMillis = maxBackoffMillis;
+    return this;
+  }
+
+  /**
+   * Longest {@code Retry-After} that is waited for; a response asking for more is returned to the caller.
+   */
+  public RetryPolicy maxRetryAfterMillis(long maxRetryAfterMillis) {
+    Preconditions.checkArgument(maxRetryAfterMillis >= 0, "maxRetryAfterMillis cannot be negative");
+    this.maxRetryAfterMillis = maxRetryAfterMillis;
+    return this;
+  }
+
+  public RetryPolicy retryableStatuses(Integer... statuses) {
+    this.retryableStatuses = ImmutableSet.copyOf(statuses);
+    return this;
+  }
+
+  public RetryPolicy retryConnectionFailures(boolean retryConnectionFailures) {
+    this.retryConnectionFailures = retryConnectionFailures;
+    return this;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getInitialBackoffMillis() {
+    return initialBackoffMillis;
+  }
+
+  public long getMaxBackoffMillis() {
+    return maxBackoffMillis;
+  }
+
+  public long getMaxRetryAfterMillis() {
+    return maxRetryAfterMillis;
+  }
+
+  public Set<Integer> getRetryableStatuses() {
+    return retryableStatuses;
+  }
+
+  public boolean isRetryConnectionFailures() {
+    return retryConnectionFailures;
+  }
+
+  RetryPolicy copy() {
+    return newInstance().maxAttempts(maxAttempts).initialBackoffMillis(initialBackoffMillis)
+        .maxBackoffMillis(maxBackoffMillis).maxRetryAfterMillis(maxRetryAfterMillis)
+        .retryableStatuses(retryableStatuses.toArray(new Integer[retryableStatuses.size()]))
+        .retryConnectionFailures(retryConnectionFailures);
+  }
+}
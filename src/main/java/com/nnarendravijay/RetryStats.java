@@ -0,0 +1,51 @@
+package com.nnarendravijay;
+
+/**
+ * Counters of a {@link RestClient} with a {@link RetryPolicy} or {@link HedgePolicy}, to keep an eye on how
+ * many extra requests they cost.
+ */
+public class RetryStats {
+  private final long calls;
+  private final long retries;
+  private final long hedges;
+  private final long hedgeWins;
+
+  RetryStats(long calls, long retries, long hedges, long hedgeWins) {
+    this.calls = calls;
+    this.retries = retries;
+    this.hedges = hedges;
+    this.hedgeWins = hedgeWins;
+  }
+
+  public long getCalls() {
+    return calls;
+  }
+
+  public long getRetries() {
+    return retries;
+  }
+
+  public long getHedges() {
+    return hedges;
+  }
+
+  /**
+   * Hedged requests that answered before the first attempt.
+   */
+  public long getHedgeWins() {
+    return hedgeWins;
+  }
+
+  /**
+   * Requests sent per call, where 1.0 means no retries or hedges at all.
+   */
+  public double getAmplification() {
+    return calls == 0 ? 1 : (double) (calls + retries + hedges) / calls;
+  }
+
+  @Override
+  public String toString() {
+    return "RetryStats{calls=" + calls + ", retries=" + retries + ", hedges=" + hedges + ", hedgeWins=" + hedgeWins
+        + "}";
+  }
+}
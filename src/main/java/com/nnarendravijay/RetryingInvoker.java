@@ -0,0 +1,379 @@
+package com.nnarendravijay;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Applies the {@link RetryPolicy} and {@link HedgePolicy} of a client around a single call. Synchronous calls
+ * sleep between attempts; asynchronous calls wait for their backoff and hedge delay on a shared timer thread.
+ */
+final class RetryingInvoker {
+
+  private static final Set<String> IDEMPOTENT_METHODS = ImmutableSet.of(HttpMethod.GET, HttpMethod.HEAD,
+      HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE);
+  private static final Set<String> HEDGED_METHODS = ImmutableSet.of(HttpMethod.GET, HttpMethod.HEAD);
+  private static final String RETRY_AFTER = "Retry-After";
+  private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rest-client-retry").build());
+
+  private final RetryPolicy retryPolicy;
+  private final HedgePolicy hedgePolicy;
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder hedges = new LongAdder();
+  private final LongAdder hedgeWins = new LongAdder();
+
+  RetryingInvoker(RetryPolicy retryPolicy, HedgePolicy hedgePolicy) {
+    this.retryPolicy = retryPolicy == null ? null : retryPolicy.copy();
+    this.hedgePolicy = hedgePolicy == null ? null : hedgePolicy.copy();
+  }
+
+  /**
+   * Runs {@code attempt} until it returns a response that need not be retried, or the policy gives up. Hedged
+   * methods go through {@code asyncAttempt} instead so a second copy can race the first.
+   */
+  Response execute(RestRequest request, Supplier<Response> attempt,
+      Supplier<CompletableFuture<Response>> asyncAttempt) {
+    calls.increment();
+    boolean retryable = retryPolicy != null && isReplayable(request);
+    boolean hedged = hedgePolicy != null && HEDGED_METHODS.contains(request.getMethod());
+    for (int attempts = 1;; attempts++) {
+      boolean lastAttempt = !retryable || attempts >= retryPolicy.getMaxAttempts();
+      long delay;
+      try {
+        Response response = hedged ? hedged(asyncAttempt) : timed(attempt);
+        if (lastAttempt || !retryPolicy.getRetryableStatuses().contains(response.getStatus())) {
+          return response;
+        }
+        delay = retryAfterMillis(response.getHeaderString(RETRY_AFTER));
+        if (delay > retryPolicy.getMaxRetryAfterMillis()) {
+          return response;
+        }
+        if (delay < 0) {
+          delay = backoffMillis(attempts);
+        }
+        response.close();
+      } catch (ProcessingException e) {
+        if (lastAttempt || !retryPolicy.isRetryConnectionFailures() || e instanceof RejectedRequestException) {
+          throw e;
+        }
+        delay = backoffMillis(attempts);
+      }
+      retries.increment();
+      sleep(delay);
+    }
+  }
+
+  /**
+   * Like {@link #execute} without blocking: the returned future completes with the response that need not be
+   * retried, or the last failure. Cancelling it cancels the attempt in flight or the pending retry.
+   */
+  CompletableFuture<Response> executeAsync(RestRequest request, Supplier<CompletableFuture<Response>> asyncAttempt) {
+    calls.increment();
+    AsyncExecution execution = new AsyncExecution(asyncAttempt, retryPolicy != null && isReplayable(request),
+        hedgePolicy != null && HEDGED_METHODS.contains(request.getMethod()));
+    execution.attempt(1);
+    return execution.future;
+  }
+
+  RetryStats getStats() {
+    return new RetryStats(calls.sum(), retries.sum(), hedges.sum(), hedgeWins.sum());
+  }
+
+  private Response timed(Supplier<Response> attempt) {
+    long start = System.nanoTime();
+    Response response = attempt.get();
+    latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    return response;
+  }
+
+  private Response hedged(Supplier<CompletableFuture<Response>> asyncAttempt) {
+    long start = System.nanoTime();
+    CompletableFuture<Response> primary = asyncAttempt.get();
+    Response response;
+    if (hedges.sum() >= hedgePolicy.getMaxHedgeRatio() * calls.sum()) {
+      response = await(primary);
+    } else {
+      try {
+        response = primary.get(hedgeDelayMillis(), TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        hedges.increment();
+        CompletableFuture<Response> hedge = asyncAttempt.get();
+        response = await(first(primary, hedge));
+        if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == response) {
+          hedgeWins.increment();
+        }
+        primary.cancel(true);
+        hedge.cancel(true);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        primary.cancel(true);
+        throw new ProcessingException("Interrupted while waiting for a response", e);
+      } catch (ExecutionException e) {
+        // rethrows the failure of the first attempt
+        response = await(primary);
+      }
+    }
+    latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    return response;
+  }
+
+  private CompletableFuture<Response> timedAsync(Supplier<CompletableFuture<Response>> asyncAttempt) {
+    long start = System.nanoTime();
+    CompletableFuture<Response> sent = asyncAttempt.get();
+    sent.thenRun(() -> latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+    return sent;
+  }
+
+  /**
+   * Starts a second copy of the attempt on the timer when the first did not complete within the hedge delay.
+   */
+  private CompletableFuture<Response> hedgedAsync(Supplier<CompletableFuture<Response>> asyncAttempt) {
+    long start = System.nanoTime();
+    CompletableFuture<Response> primary = asyncAttempt.get();
+    CompletableFuture<Response> response = new CompletableFuture<>();
+    if (hedges.sum() >= hedgePolicy.getMaxHedgeRatio() * calls.sum()) {
+      primary.whenComplete((sent, failure) -> complete(response, sent, failure));
+    } else {
+      AtomicReference<CompletableFuture<Response>> hedge = new AtomicReference<>();
+      ScheduledFuture<?> hedging = TIMER.schedule(() -> {
+        if (primary.isDone() || response.isDone()) {
+          primary.whenComplete((sent, failure) -> complete(response, sent, failure));
+          return;
+        }
+        hedges.increment();
+        hedge.set(asyncAttempt.get());
+        first(primary, hedge.get()).whenComplete((winner, failure) -> {
+          if (failure == null && hedge.get().isDone() && !hedge.get().isCompletedExceptionally()
+              && hedge.get().join() == winner) {
+            hedgeWins.increment();
+          }
+          primary.cancel(true);
+          hedge.get().cancel(true);
+          complete(response, winner, failure);
+        });
+      }, hedgeDelayMillis(), TimeUnit.MILLISECONDS);
+      primary.whenComplete((sent, failure) -> {
+        if (hedging.cancel(false)) {
+          complete(response, sent, failure);
+        }
+      });
+      response.whenComplete((sent, failure) -> {
+        if (response.isCancelled()) {
+          hedging.cancel(false);
+          primary.cancel(true);
+          if (hedge.get() != null) {
+            hedge.get().cancel(true);
+          }
+        }
+      });
+    }
+    response.thenRun(() -> latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+    return response;
+  }
+
+  /**
+   * Completes {@code future} with a response or failure, closing the response when the future was cancelled.
+   */
+  private static void complete(CompletableFuture<Response> future, Response response, Throwable failure) {
+    if (failure != null) {
+      future.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+          ? failure.getCause() : failure);
+    } else if (!future.complete(response)) {
+      response.close();
+    }
+  }
+
+  /**
+   * Completes with the first response of either attempt, or fails once both failed. A response that loses the
+   * race is closed.
+   */
+  private static CompletableFuture<Response> first(CompletableFuture<Response> primary,
+      CompletableFuture<Response> hedge) {
+    CompletableFuture<Response> winner = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    BiConsumer<Response, Throwable> race = (response, failure) -> {
+      if (failure == null) {
+        if (!winner.complete(response)) {
+          response.close();
+        }
+      } else if (failures.incrementAndGet() == 2) {
+        winner.completeExceptionally(failure);
+      }
+    };
+    primary.whenComplete(race);
+    hedge.whenComplete(race);
+    return winner;
+  }
+
+  private long hedgeDelayMillis() {
+    if (latencies.getCount() < hedgePolicy.getMinSamples()) {
+      return hedgePolicy.getInitialDelayMillis();
+    }
+    long percentileMillis = TimeUnit.MICROSECONDS.toMillis(latencies.getValueAtQuantile(hedgePolicy.getPercentile()));
+    return Math.max(hedgePolicy.getMinDelayMillis(), percentileMillis);
+  }
+
+  private long backoffMillis(int attempts) {
+    long ceiling = Math.min(retryPolicy.getMaxBackoffMillis(),
+        retryPolicy.getInitialBackoffMillis() << Math.min(attempts - 1, 30));
+    return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  private static boolean isReplayable(RestRequest request) {
+    return IDEMPOTENT_METHODS.contains(request.getMethod()) && hasRepeatableEntity(request);
+  }
+
+  /**
+   * Whether the entity of {@code request}, if any, can be written more than once.
+   */
+  static boolean hasRepeatableEntity(RestRequest request) {
+    Object entity = request.getEntity() == null ? null : request.getEntity().getEntity();
+    return !(entity instanceof InputStream)
+        && !(entity instanceof JsonStreamBody && !((JsonStreamBody) entity).isRepeatable());
+  }
+
+  /**
+   * Milliseconds to wait according to a {@code Retry-After} header in seconds or as an HTTP date, or -1 when
+   * there is no usable header.
+   */
+  static long retryAfterMillis(String retryAfter) {
+    if (retryAfter == null || retryAfter.trim().isEmpty()) {
+      return -1;
+    }
+    String value = retryAfter.trim();
+    try {
+      return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+    } catch (NumberFormatException e) {
+      try {
+        long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        return Math.max(0, at - System.currentTimeMillis());
+      } catch (DateTimeParseException ignored) {
+        return -1;
+      }
+    }
+  }
+
+  private static Response await(CompletableFuture<Response> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      throw new ProcessingException("Interrupted while waiting for a response", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ProcessingException(e.getCause());
+    }
+  }
+
+  /**
+   * One asynchronous call: each attempt that ends in a retryable status or failure schedules the next one on the
+   * timer after its backoff.
+   */
+  private final class AsyncExecution {
+    private final Supplier<CompletableFuture<Response>> asyncAttempt;
+    private final boolean retryable;
+    private final boolean hedged;
+    private final CompletableFuture<Response> future = new CompletableFuture<>();
+    private final AtomicReference<Future<?>> pending = new AtomicReference<>();
+
+    private AsyncExecution(Supplier<CompletableFuture<Response>> asyncAttempt, boolean retryable, boolean hedged) {
+      this.asyncAttempt = asyncAttempt;
+      this.retryable = retryable;
+      this.hedged = hedged;
+      future.whenComplete((response, failure) -> {
+        Future<?> inFlight = pending.get();
+        if (future.isCancelled() && inFlight != null) {
+          inFlight.cancel(true);
+        }
+      });
+    }
+
+    private void attempt(int attempts) {
+      if (future.isDone()) {
+        return;
+      }
+      boolean lastAttempt = !retryable || attempts >= retryPolicy.getMaxAttempts();
+      CompletableFuture<Response> sent;
+      try {
+        sent = hedged ? hedgedAsync(asyncAttempt) : timedAsync(asyncAttempt);
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+        return;
+      }
+      pending.set(sent);
+      if (future.isCancelled()) {
+        sent.cancel(true);
+      }
+      sent.whenComplete((response, failure) -> {
+        long delay;
+        if (failure == null) {
+          if (lastAttempt || !retryPolicy.getRetryableStatuses().contains(response.getStatus())) {
+            complete(future, response, null);
+            return;
+          }
+          delay = retryAfterMillis(response.getHeaderString(RETRY_AFTER));
+          if (delay > retryPolicy.getMaxRetryAfterMillis()) {
+            complete(future, response, null);
+            return;
+          }
+          if (delay < 0) {
+            delay = backoffMillis(attempts);
+          }
+          response.close();
+        } else {
+          Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+              ? failure.getCause() : failure;
+          if (lastAttempt || !retryPolicy.isRetryConnectionFailures() || !(cause instanceof ProcessingException)
+              || cause instanceof RejectedRequestException) {
+            future.completeExceptionally(cause);
+            return;
+          }
+          delay = backoffMillis(attempts);
+        }
+        retries.increment();
+        pending.set(TIMER.schedule(() -> attempt(attempts + 1), delay, TimeUnit.MILLISECONDS));
+        if (future.isCancelled()) {
+          pending.get().cancel(false);
+        }
+      });
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessingException("Interrupted while waiting to retry", e);
+    }
+  }
+}
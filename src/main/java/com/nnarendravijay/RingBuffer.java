@@ -0,0 +1,64 @@
+package com.nnarendravijay;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Producers claim a slot with a CAS on the
+ * tail and never wait: when the buffer is full the element is dropped and counted instead.
+ */
+final class RingBuffer<E> {
+
+  private final AtomicReferenceArray<E> slots;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+  private final LongAdder dropped = new LongAdder();
+
+  RingBuffer(int capacity) {
+    Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30, "capacity must be between 1 and 2^30");
+    int size = Integer.highestOneBit(capacity);
+    size = size < capacity ? size << 1 : size;
+    this.slots = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+  }
+
+  boolean offer(E element) {
+    while (true) {
+      long claimed = tail.get();
+      // a stale head only makes the buffer look fuller than it is
+      if (claimed - head.get() > mask) {
+        dropped.increment();
+        return false;
+      }
+      if (tail.compareAndSet(claimed, claimed + 1)) {
+        slots.lazySet((int) claimed & mask, element);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * The oldest element, or null when there is none or its producer has not finished publishing it. Only one
+   * thread at a time may poll.
+   */
+  E poll() {
+    long next = head.get();
+    int index = (int) next & mask;
+    E element = slots.get(index);
+    if (element == null) {
+      return null;
+    }
+    // empty the slot before handing it back to producers
+    slots.lazySet(index, null);
+    head.lazySet(next + 1);
+    return element;
+  }
+
+  long getDropped() {
+    return dropped.sum();
+  }
+}
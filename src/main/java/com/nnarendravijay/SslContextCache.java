@@ -0,0 +1,80 @@
+package com.nnarendravijay;
+
+import com.google.common.hash.Hashing;
+
+import javax.net.ssl.SSLContext;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Process wide cache of the {@link SSLContext} built for a keystore, alias, TLS version and session cache
+ * settings, so RestClient instances that use the same key material share one context and its client session
+ * cache. The session settings are part of the key because they are applied to the shared session cache itself.
+ */
+public final class SslContextCache {
+
+  private static final ConcurrentMap<Key, SSLContext> CONTEXTS = new ConcurrentHashMap<>();
+
+  private SslContextCache() {
+  }
+
+  static SSLContext get(String keyStore, String keyStorePasswd, String keyStoreAlias, String tlsVersion,
+      int sessionCacheSize, int sessionTimeoutSeconds, Supplier<SSLContext> loader) {
+    return CONTEXTS.computeIfAbsent(
+        new Key(keyStore, keyStorePasswd, keyStoreAlias, tlsVersion, sessionCacheSize, sessionTimeoutSeconds),
+        key -> loader.get());
+  }
+
+  public static int size() {
+    return CONTEXTS.size();
+  }
+
+  /**
+   * Drops every cached context, for example after a keystore has been rotated on disk.
+   */
+  public static void clear() {
+    CONTEXTS.clear();
+  }
+
+  private static final class Key {
+    private final String keyStore;
+    private final String passwordDigest;
+    private final String keyStoreAlias;
+    private final String tlsVersion;
+    private final int sessionCacheSize;
+    private final int sessionTimeoutSeconds;
+
+    private Key(String keyStore, String keyStorePasswd, String keyStoreAlias, String tlsVersion,
+        int sessionCacheSize, int sessionTimeoutSeconds) {
+      this.keyStore = keyStore;
+      this.passwordDigest = Hashing.sha256().hashString(keyStorePasswd, StandardCharsets.UTF_8).toString();
+      this.keyStoreAlias = keyStoreAlias;
+      this.tlsVersion = tlsVersion;
+      this.sessionCacheSize = sessionCacheSize;
+      this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return keyStore.equals(other.keyStore) && passwordDigest.equals(other.passwordDigest)
+          && keyStoreAlias.equals(other.keyStoreAlias) && tlsVersion.equals(other.tlsVersion)
+          && sessionCacheSize == other.sessionCacheSize && sessionTimeoutSeconds == other.sessionTimeoutSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(keyStore, passwordDigest, keyStoreAlias, tlsVersion, sessionCacheSize,
+          sessionTimeoutSeconds);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.nnarendravijay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Handle on an unbuffered response returned by {@link RestClient#sendStreaming(RestRequest)}. The entity is
+ * read straight from the connection, after any reader interceptors such as gzip decoding, and the handle must
+ * be closed to release the connection.
+ */
+public class StreamingResponse implements Closeable {
+
+  private final Response response;
+
+  StreamingResponse(Response response) {
+    this.response = response;
+  }
+
+  public Response getResponse() {
+    return response;
+  }
+
+  public int getStatus() {
+    return response.getStatus();
+  }
+
+  public MultivaluedMap<String, String> getHeaders() {
+    return response.getStringHeaders();
+  }
+
+  public long getLength() {
+    return response.getLength();
+  }
+
+  public InputStream getInputStream() {
+    return response.readEntity(InputStream.class);
+  }
+
+  public <T> T readEntity(Class<T> entityType) {
+    return response.readEntity(entityType);
+  }
+
+  /**
+   * Iterates the elements of a JSON array or NDJSON entity one at a time, through the same reader interceptors
+   * as {@link #getInputStream()}. The response is closed when the iterator is exhausted or closed.
+   */
+  public <T> JsonIterator<T> readJsonElements(Class<T> elementType) {
+    return readJsonElements(elementType, null);
+  }
+
+  /**
+   * Like {@link #readJsonElements(Class)}, binding elements with the given {@code mapper}.
+   */
+  public <T> JsonIterator<T> readJsonElements(Class<T> elementType, ObjectMapper mapper) {
+    Preconditions.checkNotNull(elementType, "elementType cannot be null");
+    return JsonIterator.of(getInputStream(), elementType, mapper, this);
+  }
+
+  /**
+   * Reads the remaining entity into memory up to {@code maxInMemoryBytes}, spilling anything larger to a
+   * temporary file.
+   */
+  public BufferedBody buffer(long maxInMemoryBytes) throws IOException {
+    Preconditions.checkArgument(maxInMemoryBytes >= 0, "maxInMemoryBytes cannot be negative");
+    try (InputStream in = getInputStream()) {
+      return BufferedBody.read(in, maxInMemoryBytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    response.close();
+  }
+}
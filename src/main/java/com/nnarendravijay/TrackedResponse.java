@@ -0,0 +1,167 @@
+package com.nnarendravijay;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NewCookie;
+import javax.ws.rs.core.Response;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A response that is the last one received on some thread, see {@link RestClient#getResponse()}. Closing it,
+ * from any thread, takes it out of that thread's slot so the slot does not keep its body alive.
+ */
+final class TrackedResponse extends Response {
+
+  private final Response response;
+  private final AtomicReference<Response> slot;
+
+  TrackedResponse(Response response, AtomicReference<Response> slot) {
+    this.response = response;
+    this.slot = slot;
+  }
+
+  @Override
+  public void close() {
+    slot.compareAndSet(this, null);
+    response.close();
+  }
+
+  @Override
+  public int getStatus() {
+    return response.getStatus();
+  }
+
+  @Override
+  public StatusType getStatusInfo() {
+    return response.getStatusInfo();
+  }
+
+  @Override
+  public Object getEntity() {
+    return response.getEntity();
+  }
+
+  @Override
+  public <T> T readEntity(Class<T> entityType) {
+    return response.readEntity(entityType);
+  }
+
+  @Override
+  public <T> T readEntity(GenericType<T> entityType) {
+    return response.readEntity(entityType);
+  }
+
+  @Override
+  public <T> T readEntity(Class<T> entityType, Annotation[] annotations) {
+    return response.readEntity(entityType, annotations);
+  }
+
+  @Override
+  public <T> T readEntity(GenericType<T> entityType, Annotation[] annotations) {
+    return response.readEntity(entityType, annotations);
+  }
+
+  @Override
+  public boolean hasEntity() {
+    return response.hasEntity();
+  }
+
+  @Override
+  public boolean bufferEntity() {
+    return response.bufferEntity();
+  }
+
+  @Override
+  public MediaType getMediaType() {
+    return response.getMediaType();
+  }
+
+  @Override
+  public Locale getLanguage() {
+    return response.getLanguage();
+  }
+
+  @Override
+  public int getLength() {
+    return response.getLength();
+  }
+
+  @Override
+  public Set<String> getAllowedMethods() {
+    return response.getAllowedMethods();
+  }
+
+  @Override
+  public Map<String, NewCookie> getCookies() {
+    return response.getCookies();
+  }
+
+  @Override
+  public EntityTag getEntityTag() {
+    return response.getEntityTag();
+  }
+
+  @Override
+  public Date getDate() {
+    return response.getDate();
+  }
+
+  @Override
+  public Date getLastModified() {
+    return response.getLastModified();
+  }
+
+  @Override
+  public URI getLocation() {
+    return response.getLocation();
+  }
+
+  @Override
+  public Set<Link> getLinks() {
+    return response.getLinks();
+  }
+
+  @Override
+  public boolean hasLink(String relation) {
+    return response.hasLink(relation);
+  }
+
+  @Override
+  public Link getLink(String relation) {
+    return response.getLink(relation);
+  }
+
+  @Override
+  public Link.Builder getLinkBuilder(String relation) {
+    return response.getLinkBuilder(relation);
+  }
+
+  @Override
+  public MultivaluedMap<String, Object> getMetadata() {
+    return response.getMetadata();
+  }
+
+  @Override
+  public MultivaluedMap<String, String> getStringHeaders() {
+    return response.getStringHeaders();
+  }
+
+  @Override
+  public String getHeaderString(String name) {
+    return response.getHeaderString(name);
+  }
+
+  @Override
+  public String toString() {
+    return response.toString();
+  }
+}
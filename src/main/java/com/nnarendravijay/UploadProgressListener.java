@@ -0,0 +1,11 @@
+package com.nnarendravijay;
+
+/**
+ * Told about the progress of a {@link FileUpload} after every chunk written to the connection. Called on the
+ * thread writing the request; an exception thrown from here aborts the upload.
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+
+  void onProgress(long bytesSent, long totalBytes);
+}
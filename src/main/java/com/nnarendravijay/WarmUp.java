@@ -0,0 +1,142 @@
+package com.nnarendravijay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.Initializable;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Prepares a {@link RestClient} for its first calls: builds the Jersey runtime, exercises Jackson, resolves the
+ * targets' host names, which the JVM then caches, and opens connections to them. A pooled client opens and pools
+ * its connections without sending anything; other connectors send concurrent {@code HEAD} requests, whose
+ * connections the connector keeps alive.
+ */
+final class WarmUp {
+
+  private final Client client;
+  private final ConnectionPool connectionPool;
+  private final int maxKeptAlive;
+
+  /**
+   * @param maxKeptAlive connections the connector keeps per target after concurrent requests, which caps the
+   * connections a warm-up can leave open when there is no pool
+   */
+  WarmUp(Client client, ConnectionPool connectionPool, int maxKeptAlive) {
+    this.client = client;
+    this.connectionPool = connectionPool;
+    this.maxKeptAlive = maxKeptAlive;
+  }
+
+  /**
+   * Connections HttpURLConnection keeps alive per destination, by its {@code http.keepAlive} and
+   * {@code http.maxConnections} system properties.
+   */
+  static int httpUrlConnectionKeptAlive() {
+    return Boolean.parseBoolean(System.getProperty("http.keepAlive", "true"))
+        ? Integer.getInteger("http.maxConnections", 5) : 0;
+  }
+
+  WarmUpReport run(Collection<URI> targets, int connectionsPerTarget) {
+    long start = System.nanoTime();
+    if (client instanceof Initializable) {
+      ((Initializable<?>) client).preInitialize();
+    }
+    long runtimeDone = System.nanoTime();
+    warmJson();
+    long jsonDone = System.nanoTime();
+
+    ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+        .setNameFormat("rest-client-warm-up-%d").build());
+    try {
+      List<CompletableFuture<WarmUpReport.Target>> warming = new ArrayList<>();
+      for (URI target : targets) {
+        warming.add(CompletableFuture.supplyAsync(() -> warm(target, connectionsPerTarget, executor), executor));
+      }
+      List<WarmUpReport.Target> reports = new ArrayList<>();
+      for (CompletableFuture<WarmUpReport.Target> future : warming) {
+        reports.add(future.join());
+      }
+      return new WarmUpReport(millis(runtimeDone - start), millis(jsonDone - runtimeDone),
+          millis(System.nanoTime() - start), reports);
+    } finally {
+      MoreExecutors.shutdownAndAwaitTermination(executor, 1, TimeUnit.SECONDS);
+    }
+  }
+
+  private static void warmJson() {
+    ObjectMapper mapper = new ObjectMapper();
+    try {
+      mapper.readTree(mapper.writeValueAsBytes(ImmutableMap.of("warmUp", true)));
+    } catch (IOException e) {
+      throw new IllegalStateException("Jackson failed to bind a trivial document", e);
+    }
+  }
+
+  private WarmUpReport.Target warm(URI target, int connections, ExecutorService executor) {
+    long start = System.nanoTime();
+    try {
+      InetAddress.getAllByName(target.getHost());
+    } catch (IOException e) {
+      return new WarmUpReport.Target(target, millis(System.nanoTime() - start), 0, 0, e);
+    }
+    long resolved = System.nanoTime();
+    int opened = 0;
+    Throwable failure = null;
+    try {
+      opened = connectionPool != null ? connectionPool.open(target, connections, connectTimeoutMillis())
+          : sendHeads(target, connections, executor);
+    } catch (ExecutionException e) {
+      failure = e.getCause();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure = e;
+    } catch (IOException | TimeoutException | RuntimeException e) {
+      failure = e;
+    }
+    return new WarmUpReport.Target(target, millis(resolved - start), millis(System.nanoTime() - resolved), opened,
+        failure);
+  }
+
+  /**
+   * Sends the requests at the same time, so each needs a connection of its own. Any response counts: the point
+   * is the connection, not the status. Returns the connections the connector actually keeps afterwards.
+   */
+  private int sendHeads(URI target, int connections, ExecutorService executor) throws ExecutionException,
+      InterruptedException {
+    List<CompletableFuture<Void>> heads = new ArrayList<>();
+    for (int i = 0; i < connections; i++) {
+      heads.add(CompletableFuture.runAsync(() -> {
+        Response response = client.target(target).request().head();
+        response.close();
+      }, executor));
+    }
+    CompletableFuture.allOf(heads.toArray(new CompletableFuture<?>[heads.size()])).get();
+    return Math.min(connections, maxKeptAlive);
+  }
+
+  private int connectTimeoutMillis() {
+    Object timeout = client.getConfiguration().getProperty(ClientProperties.CONNECT_TIMEOUT);
+    return timeout instanceof Integer ? (Integer) timeout : 0;
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+}
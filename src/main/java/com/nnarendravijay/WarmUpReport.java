@@ -0,0 +1,117 @@
+package com.nnarendravijay;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of {@link RestClient#warmUp}: how long the Jersey runtime and the JSON binding took to initialize, and
+ * for every target how long DNS resolution and opening connections took. Failed targets carry their failure
+ * instead of failing the warm-up.
+ */
+public class WarmUpReport {
+  private final long runtimeMillis;
+  private final long jsonMillis;
+  private final long totalMillis;
+  private final List<Target> targets;
+
+  WarmUpReport(long runtimeMillis, long jsonMillis, long totalMillis, List<Target> targets) {
+    this.runtimeMillis = runtimeMillis;
+    this.jsonMillis = jsonMillis;
+    this.totalMillis = totalMillis;
+    this.targets = Collections.unmodifiableList(targets);
+  }
+
+  /**
+   * Time to build the Jersey client runtime, including provider discovery and features such as multipart.
+   */
+  public long getRuntimeMillis() {
+    return runtimeMillis;
+  }
+
+  /**
+   * Time to load and exercise Jackson data binding.
+   */
+  public long getJsonMillis() {
+    return jsonMillis;
+  }
+
+  public long getTotalMillis() {
+    return totalMillis;
+  }
+
+  public List<Target> getTargets() {
+    return targets;
+  }
+
+  /**
+   * Whether every target was resolved and connected to.
+   */
+  public boolean isSuccessful() {
+    for (Target target : targets) {
+      if (target.getFailure() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "WarmUpReport{runtimeMillis=" + runtimeMillis + ", jsonMillis=" + jsonMillis + ", totalMillis="
+        + totalMillis + ", targets=" + targets + "}";
+  }
+
+  /**
+   * Warm-up of a single target URI.
+   */
+  public static class Target {
+    private final URI uri;
+    private final long dnsMillis;
+    private final long connectMillis;
+    private final int connections;
+    private final Throwable failure;
+
+    Target(URI uri, long dnsMillis, long connectMillis, int connections, Throwable failure) {
+      this.uri = uri;
+      this.dnsMillis = dnsMillis;
+      this.connectMillis = connectMillis;
+      this.connections = connections;
+      this.failure = failure;
+    }
+
+    public URI getUri() {
+      return uri;
+    }
+
+    public long getDnsMillis() {
+      return dnsMillis;
+    }
+
+    /**
+     * Time to open the connections, including TLS handshakes, or to send the warm-up requests that opened them.
+     */
+    public long getConnectMillis() {
+      return connectMillis;
+    }
+
+    /**
+     * Connections held ready for the target: those opened by the pool, or else those the connector keeps alive
+     * after the warm-up requests, which is at most {@code http.maxConnections} for the default connector and
+     * {@code maxConnectionsPerHost} for HTTP/2.
+     */
+    public int getConnections() {
+      return connections;
+    }
+
+    public Throwable getFailure() {
+      return failure;
+    }
+
+    @Override
+    public String toString() {
+      return "Target{uri=" + uri + ", dnsMillis=" + dnsMillis + ", connectMillis=" + connectMillis
+          + ", connections=" + connections + (failure == null ? "" : ", failure=" + failure) + "}";
+    }
+  }
+}
@@ -4,8 +4,19 @@ import com.nnarendravijay.securerestclienttest.ResourceA;
 import com.nnarendravijay.securerestclienttest.TestUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
 import com.google.common.io.Resources;
+import com.google.common.primitives.Bytes;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.glassfish.jersey.media.multipart.FormDataBodyPart;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.junit.AfterClass;
@@ -13,29 +24,53 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mockserver.client.server.MockServerClient;
 import org.mockserver.integration.ClientAndServer;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.Delay;
 import org.mockserver.model.Header;
 import org.mockserver.model.Parameter;
 import org.mockserver.model.ParameterBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Form;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class SecureRestClientTest {
 
@@ -133,6 +168,39 @@ public class SecureRestClientTest {
     assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
   }
 
+  @Test
+  public void testCompressedPost() throws JsonProcessingException {
+
+    // MockServer decodes gzip bodies before matching, so the bytes on the wire are checked through the metrics
+    String largeJson = "[" + Strings.repeat(json + ",", 64) + json + "]";
+    stubMockServerBehavior("POST", "/ResourceA/Compressed", largeJson, null, null, 201, null, null);
+    stubMockServerBehavior("POST", "/ResourceA/Uncompressed", json, null, null, 201, null, null);
+
+    RestClient compressingClient = new RestClient(RestClientConfig.newInstance().metrics(true)
+        .requestCompression("gzip", 16));
+    RestClient pooledClient = new RestClient(RestClientConfig.newInstance().metrics(true).pooledConnections(true)
+        .requestCompression("gzip", 16));
+    RestClient thresholdClient = new RestClient(RestClientConfig.newInstance().metrics(true)
+        .requestCompression("gzip", 1024));
+    try {
+      for (RestClient client : new RestClient[] {compressingClient, pooledClient}) {
+        Response response = client.sendPostRequest(largeJson,
+            URI.create("http://localhost:1080/ResourceA/Compressed"), MediaType.APPLICATION_JSON_TYPE);
+        assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+        assertTrue(client.getMetrics().snapshot().getHost("localhost").getBytesOut() < largeJson.length());
+      }
+
+      Response response = thresholdClient.sendPostRequest(resourceA,
+          URI.create("http://localhost:1080/ResourceA/Uncompressed"), MediaType.APPLICATION_JSON_TYPE);
+      assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+      assertEquals(json.length(), thresholdClient.getMetrics().snapshot().getHost("localhost").getBytesOut());
+    } finally {
+      compressingClient.close();
+      pooledClient.close();
+      thresholdClient.close();
+    }
+  }
+
   @Test
   public void testFormDataMultiPartPost() throws InterruptedException {
 
@@ -156,6 +224,229 @@ public class SecureRestClientTest {
     assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
   }
 
+  @Test
+  public void testStreamingUpload() throws IOException {
+
+    new MockServerClient("localhost", 1080)
+        .when(request()
+            .withMethod("POST")
+            .withPath("/StreamingUpload"))
+        .respond(response()
+                .withStatusCode(201)
+        );
+
+    Path path = Paths.get(Resources.getResource("keyStore.jks").getFile());
+    List<Long> progress = new ArrayList<>();
+    FileUpload upload = FileUpload.of(path).withChunkSize(512)
+        .withProgressListener((sent, total) -> progress.add(sent));
+
+    Response response = client.sendUploadRequest(upload, URI.create("http://localhost:1080/StreamingUpload"),
+        MediaType.APPLICATION_OCTET_STREAM_TYPE);
+    assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+    response.close();
+    assertTrue(progress.size() > 1);
+    assertEquals(Files.size(path), (long) progress.get(progress.size() - 1));
+
+    FormDataMultiPart multiPart = new FormDataMultiPart();
+    multiPart.bodyPart(new FormDataBodyPart("file1", FileUpload.of(path), MediaType.APPLICATION_OCTET_STREAM_TYPE));
+    multiPart.bodyPart(new FormDataBodyPart("file2", FileUpload.of(path), MediaType.APPLICATION_OCTET_STREAM_TYPE));
+    response = client.sendUploadRequest(multiPart, URI.create("http://localhost:1080/StreamingUpload"),
+        MediaType.MULTIPART_FORM_DATA_TYPE);
+    assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+    response.close();
+  }
+
+  @Test
+  public void testDownload() throws IOException {
+
+    String body = "0123456789abcdefghijABCDEFGHIJ0123456789";
+    new MockServerClient("localhost", 1080)
+        .when(request().withMethod("GET").withPath("/Download/Ranged").withHeader(new Header("Range", "bytes=0-0")))
+        .respond(response().withStatusCode(206).withBody("0").withHeaders(
+            new Header("Content-Range", "bytes 0-0/40"), new Header("ETag", "\"d1\"")));
+    new MockServerClient("localhost", 1080)
+        .when(request().withMethod("GET").withPath("/Download/Ranged").withHeader(new Header("Range", "bytes=30-39")),
+            Times.exactly(1))
+        .respond(response().withStatusCode(500));
+    for (int first = 0; first < 40; first += 10) {
+      new MockServerClient("localhost", 1080)
+          .when(request().withMethod("GET").withPath("/Download/Ranged")
+              .withHeader(new Header("Range", "bytes=" + first + "-" + (first + 9))))
+          .respond(response().withStatusCode(206).withBody(body.substring(first, first + 10)));
+    }
+    stubMockServerBehavior("GET", "/Download/Plain", null, null, null, 200, body, null);
+
+    Path directory = Files.createTempDirectory("download");
+    Path target = directory.resolve("ranged.txt");
+    String sha256 = Hashing.sha256().hashString(body, StandardCharsets.UTF_8).toString();
+    DownloadOptions options = DownloadOptions.newInstance().segments(4).minSegmentBytes(10).checksum("SHA-256", sha256);
+    try {
+      client.download(URI.create("http://localhost:1080/Download/Ranged"), target, options);
+      fail("Expected the last segment to fail");
+    } catch (IOException e) {
+      assertFalse(Files.exists(target));
+    }
+
+    DownloadResult result = client.download(URI.create("http://localhost:1080/Download/Ranged"), target, options);
+    assertEquals(4, result.getSegments());
+    assertEquals(30, result.getResumedBytes());
+    assertEquals(sha256, result.getChecksum());
+    assertEquals(body, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+
+    Path plain = directory.resolve("plain.txt");
+    result = client.download(URI.create("http://localhost:1080/Download/Plain"), plain);
+    assertEquals(1, result.getSegments());
+    assertEquals(body, new String(Files.readAllBytes(plain), StandardCharsets.UTF_8));
+    assertEquals(2, directory.toFile().list().length);
+  }
+
+  @Test
+  public void testStreamJson() throws JsonProcessingException {
+
+    StringBuilder array = new StringBuilder("[");
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      String element = "{\"param1\":\"value" + i + "\",\"param2\":\"value2\"}";
+      array.append(i == 0 ? "" : ",").append(element);
+      ndjson.append(element).append('\n');
+    }
+    array.append(']');
+    stubMockServerBehavior("GET", "/ResourceA/Stream/Array", null, null, null, 200, array.toString(),
+        ImmutableMap.of("Content-Type", "application/json"));
+    stubMockServerBehavior("GET", "/ResourceA/Stream/Lines", null, null, null, 200, ndjson.toString(),
+        ImmutableMap.of("Content-Type", "application/x-ndjson"));
+    stubMockServerBehavior("GET", "/ResourceA/Stream/Missing", null, null, null, 404, null, null);
+
+    List<ResourceA> elements = client.streamJson(RestRequest.get(URI.create(
+        "http://localhost:1080/ResourceA/Stream/Array")).build(), ResourceA.class).collect(Collectors.toList());
+    assertEquals(100, elements.size());
+    assertEquals("value99", elements.get(99).getParam1());
+
+    JsonIterator<ResourceA> lines = client.sendStreaming(RestRequest.get(URI.create(
+        "http://localhost:1080/ResourceA/Stream/Lines")).build()).readJsonElements(ResourceA.class);
+    int count = 0;
+    while (lines.hasNext()) {
+      assertEquals("value" + count++, lines.next().getParam1());
+    }
+    assertEquals(100, count);
+
+    try {
+      client.streamJson(RestRequest.get(URI.create("http://localhost:1080/ResourceA/Stream/Missing")).build(),
+          ResourceA.class);
+      fail("Expected the 404 to be reported");
+    } catch (WebApplicationException e) {
+      assertEquals(404, e.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  public void testStreamingJsonPost() throws JsonProcessingException {
+
+    List<ResourceA> elements = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ResourceA element = new ResourceA();
+      element.setParam1("value" + i);
+      element.setParam2("value2");
+      elements.add(element);
+    }
+    ObjectMapper mapper = new ObjectMapper();
+    String array = mapper.writeValueAsString(elements);
+    StringBuilder ndjson = new StringBuilder();
+    for (ResourceA element : elements) {
+      ndjson.append(mapper.writeValueAsString(element)).append('\n');
+    }
+    stubMockServerBehavior("POST", "/ResourceA/Bulk/Array", array, null, null, 201, null, null);
+    stubMockServerBehavior("POST", "/ResourceA/Bulk/Lines", ndjson.toString(), null, null, 201, null, null);
+
+    Response response = client.sendPostRequest(JsonStreamBody.of(elements).elementType(ResourceA.class),
+        URI.create("http://localhost:1080/ResourceA/Bulk/Array"), MediaType.APPLICATION_JSON_TYPE);
+    assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+
+    JsonStreamBody lines = JsonStreamBody.of(elements.stream()).asNdjson();
+    assertFalse(lines.isRepeatable());
+    response = client.sendPostRequest(lines, URI.create("http://localhost:1080/ResourceA/Bulk/Lines"),
+        MediaType.valueOf("application/x-ndjson"));
+    assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+  }
+
+  @Test
+  public void testHttp2() throws Exception {
+
+    Server server = new Server();
+    ServerConnector connector = new ServerConnector(server, new HTTP2CServerConnectionFactory(new HttpConfiguration()));
+    server.addConnector(connector);
+    server.setHandler(new AbstractHandler() {
+      @Override
+      public void handle(String target, org.eclipse.jetty.server.Request baseRequest, HttpServletRequest request,
+          HttpServletResponse response) throws IOException {
+        response.setStatus("POST".equals(request.getMethod()) ? 201 : 200);
+        response.setHeader("X-Protocol", request.getProtocol());
+        response.setContentType(MediaType.APPLICATION_JSON);
+        ByteStreams.copy(request.getInputStream(), response.getOutputStream());
+        baseRequest.setHandled(true);
+      }
+    });
+    server.start();
+    RestClient http2Client = new RestClient(RestClientConfig.newInstance()
+        .http2(Http2Options.newInstance().maxConnectionsPerHost(1).maxConcurrentStreams(8)));
+    try {
+      URI uri = URI.create("http://localhost:" + connector.getLocalPort() + "/ResourceA");
+      Response response = http2Client.sendPostRequest(resourceA, uri, MediaType.APPLICATION_JSON_TYPE);
+      assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+      assertEquals("HTTP/2.0", response.getHeaderString("X-Protocol"));
+      assertEquals(resourceA.getParam1(), response.readEntity(ResourceA.class).getParam1());
+
+      response = http2Client.sendPostRequest(JsonStreamBody.of(Arrays.asList(resourceA, resourceA)), uri,
+          MediaType.APPLICATION_JSON_TYPE);
+      assertEquals(2, response.readEntity(ResourceA[].class).length);
+
+      response = http2Client.sendPostRequestAsync(resourceA, uri, MediaType.APPLICATION_JSON_TYPE).join();
+      assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+      assertEquals(resourceA.getParam1(), response.readEntity(ResourceA.class).getParam1());
+
+      List<RestRequest> requests = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        requests.add(RestRequest.get(uri).build());
+      }
+      for (BatchResult result : http2Client.sendBatch(requests, 16)) {
+        assertEquals(Response.Status.OK.getStatusCode(), result.getResponse().getStatus());
+      }
+      assertEquals(1, connector.getConnectedEndPoints().size());
+    } finally {
+      http2Client.close();
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testWarmUp() {
+
+    URI target = URI.create("http://localhost:1080/WarmUp");
+    RestClient pooledClient = new RestClient(RestClientConfig.newInstance().pooledConnections(true));
+    try {
+      WarmUpReport report = pooledClient.warmUp(Arrays.asList(target, URI.create("http://warm-up.invalid/")), 3);
+      assertFalse(report.isSuccessful());
+      assertEquals(3, report.getTargets().get(0).getConnections());
+      assertEquals(3, pooledClient.getConnectionPoolStats(target).getIdle());
+      assertTrue(report.getTargets().get(1).getFailure() != null);
+    } finally {
+      pooledClient.close();
+    }
+
+    RestClient plainClient = new RestClient();
+    try {
+      WarmUpReport report = plainClient.warmUp(Arrays.asList(target), 2);
+      assertTrue(report.isSuccessful());
+      assertEquals(2, report.getTargets().get(0).getConnections());
+      // HttpURLConnection keeps no more than http.maxConnections alive per destination
+      report = plainClient.warmUp(Arrays.asList(target), 8);
+      assertEquals(Math.min(8, Integer.getInteger("http.maxConnections", 5)),
+          report.getTargets().get(0).getConnections());
+    } finally {
+      plainClient.close();
+    }
+  }
+
   @Test
   public void testGet() throws InterruptedException, IOException {
 
@@ -189,7 +480,8 @@ public class SecureRestClientTest {
         .when(request()
             .withMethod("GET")
             .withPath("/ResourceA/Encoding/1")
-            .withHeader("Accept-Encoding", "deflate,gzip"))
+            // brotli or zstd on the classpath add to the advertised encodings
+            .withHeader("Accept-Encoding", "deflate,gzip(,.*)?"))
         .respond(response()
                 .withStatusCode(200)
                 .withBody(TestUtils.compress(json))
@@ -205,6 +497,45 @@ public class SecureRestClientTest {
     assertEquals(this.resourceA.getParam2(), resourceA.getParam2());
   }
 
+  @Test
+  public void testContentDecoding() throws IOException {
+
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    byte[] twoMembers = Bytes.concat(TestUtils.compress(json.substring(0, 10)),
+        TestUtils.compress(json.substring(10)));
+    stubEncoded("/ResourceA/Encoding/Deflate", "deflate", "deflate", TestUtils.deflate(body, false));
+    stubEncoded("/ResourceA/Encoding/RawDeflate", "deflate", "deflate", TestUtils.deflate(body, true));
+    stubEncoded("/ResourceA/Encoding/Members", "gzip", "gzip", twoMembers);
+    stubEncoded("/ResourceA/Encoding/Stacked", "gzip,deflate,base64", "gzip, base64",
+        Base64.getEncoder().encode(TestUtils.compress(json)));
+
+    RestClient decodingClient = new RestClient(RestClientConfig.newInstance()
+        .contentDecoder("base64", encoded -> Base64.getDecoder().wrap(encoded)));
+    try {
+      for (String path : Arrays.asList("Deflate", "RawDeflate", "Members")) {
+        Response response = decodingClient.sendGetRequestWithEncoding(
+            URI.create("http://localhost:1080/ResourceA/Encoding/" + path), MediaType.APPLICATION_JSON_TYPE,
+            "Members".equals(path) ? "gzip" : "deflate");
+        assertEquals(path, Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(path, json, response.readEntity(String.class));
+      }
+      Response response = decodingClient.sendGetRequestWithEncoding(
+          URI.create("http://localhost:1080/ResourceA/Encoding/Stacked"), MediaType.APPLICATION_JSON_TYPE,
+          "gzip", "deflate", "base64");
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      assertEquals(json, response.readEntity(String.class));
+    } finally {
+      decodingClient.close();
+    }
+  }
+
+  private void stubEncoded(String path, String acceptEncoding, String contentEncoding, byte[] body) {
+    new MockServerClient("localhost", 1080)
+        .when(request().withMethod("GET").withPath(path).withHeader("Accept-Encoding", acceptEncoding))
+        .respond(response().withStatusCode(200).withBody(body).withHeader("Content-Type", "application/json")
+            .withHeader("Content-Encoding", contentEncoding));
+  }
+
   @Test
   public void testGetWithQueryParams() throws InterruptedException, IOException {
 
@@ -268,6 +599,103 @@ public class SecureRestClientTest {
     assertEquals(Response.Status.NO_CONTENT.getStatusCode(), response.getStatus());
   }
 
+  @Test
+  public void testPooledGet() throws JsonProcessingException {
+
+    stubMockServerBehavior("GET", "/ResourceA/Pooled/1", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+
+    RestClient pooledClient = new RestClient(RestClientConfig.newInstance().pooledConnections(true)
+        .maxTotalConnections(10).maxConnectionsPerRoute(5));
+    try {
+      for (int i = 0; i < 3; i++) {
+        Response response = pooledClient.sendGetRequest(URI.create("http://localhost:1080/ResourceA/Pooled/1"),
+            MediaType.APPLICATION_JSON_TYPE);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(this.resourceA.getParam1(), response.readEntity(ResourceA.class).getParam1());
+      }
+      ConnectionPoolStats stats = pooledClient.getConnectionPoolStats(URI.create("http://localhost:1080"));
+      assertEquals(0, stats.getLeased());
+      assertEquals(1, stats.getIdle());
+      assertEquals(5, stats.getMax());
+      assertEquals(10, pooledClient.getConnectionPoolStats().getMax());
+    } finally {
+      pooledClient.close();
+    }
+  }
+
+  @Test
+  public void testSecurePooledGet() throws JsonProcessingException {
+
+    stubMockServerBehavior("GET", "/ResourceA/Pooled/1", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+
+    RestClient pooledClient = new RestClient("keyStore.jks", "testing", "sampleAlias", "TLSv1.2",
+        RestClientConfig.newInstance().pooledConnections(true));
+    try {
+      Response response = pooledClient.sendGetRequest(URI.create("https://localhost:1080/ResourceA/Pooled/1"),
+          MediaType.APPLICATION_JSON_TYPE);
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      assertEquals(1, pooledClient.getConnectionPoolStats(URI.create("https://localhost:1080")).getIdle());
+    } finally {
+      pooledClient.close();
+    }
+  }
+
+  @Test
+  public void testSecureClientsShareSslContext() throws JsonProcessingException {
+
+    stubMockServerBehavior("GET", "/ResourceA/SharedSsl", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+
+    int cachedContexts = SslContextCache.size();
+    RestClient anotherSecureClient = new RestClient("keyStore.jks", "testing", "sampleAlias", "TLSv1.2");
+    RestClient tunedSecureClient = new RestClient("keyStore.jks", "testing", "sampleAlias", "TLSv1.2",
+        RestClientConfig.newInstance().sslSessionCacheSize(100).sslSessionTimeoutSeconds(3600));
+    try {
+      // other session settings get a context of their own instead of retuning the shared one
+      assertEquals(cachedContexts + 1, SslContextCache.size());
+      for (RestClient sslClient : Arrays.asList(anotherSecureClient, tunedSecureClient)) {
+        Response response = sslClient.sendGetRequest(URI.create("https://localhost:1080/ResourceA/SharedSsl"),
+            MediaType.APPLICATION_JSON_TYPE);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      }
+    } finally {
+      anotherSecureClient.close();
+      tunedSecureClient.close();
+    }
+  }
+
+  @Test
+  public void testGetAsync() throws Exception {
+
+    stubMockServerBehavior("GET", "/ResourceA/Async/1", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+
+    Response response = client.sendGetRequestAsync(URI.create("http://localhost:1080/ResourceA/Async/1"),
+        MediaType.APPLICATION_JSON_TYPE).get(10, TimeUnit.SECONDS);
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    assertEquals(this.resourceA.getParam2(), response.readEntity(ResourceA.class).getParam2());
+  }
+
+  @Test
+  public void testPostAsyncOnExecutor() throws Exception {
+
+    stubMockServerBehavior("POST", "/ResourceA/Async", json, null, null, 201, null,
+        ImmutableMap.of("Location", "https://www.mock-server.com"));
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    RestClient asyncClient = new RestClient(RestClientConfig.newInstance().asyncExecutor(executor));
+    try {
+      Response response = asyncClient.sendPostRequestAsync(resourceA, URI.create("http://localhost:1080/ResourceA/Async"),
+          MediaType.APPLICATION_JSON_TYPE).get(10, TimeUnit.SECONDS);
+      assertEquals(Response.Status.CREATED.getStatusCode(), response.getStatus());
+    } finally {
+      asyncClient.close();
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void testHeaderManagement() throws JsonProcessingException {
 
@@ -286,6 +714,622 @@ public class SecureRestClientTest {
     assertEquals(2, client.getHeaders().size());
   }
 
+  @Test
+  public void testStreamingGet() throws IOException {
+
+    stubMockServerBehavior("GET", "/ResourceA/Streaming/1", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+
+    URI uri = URI.create("http://localhost:1080/ResourceA/Streaming/1");
+    try (StreamingResponse streamingResponse = client.sendStreaming(RestRequest.get(uri).build())) {
+      assertEquals(Response.Status.OK.getStatusCode(), streamingResponse.getStatus());
+      try (BufferedBody body = streamingResponse.buffer(8)) {
+        assertFalse(body.isInMemory());
+        assertEquals(json.length(), body.size());
+        assertEquals(json, CharStreams.toString(new InputStreamReader(body.openStream(), StandardCharsets.UTF_8)));
+      }
+    }
+
+    try (StreamingResponse streamingResponse = client.sendStreaming(RestRequest.get(uri).build())) {
+      try (BufferedBody body = streamingResponse.buffer(1024)) {
+        assertTrue(body.isInMemory());
+        assertEquals(json.length(), body.size());
+      }
+    }
+  }
+
+  @Test
+  public void testMetrics() throws JsonProcessingException {
+
+    stubMockServerBehavior("GET", "/ResourceA/Metrics/1", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+    stubMockServerBehavior("POST", "/ResourceA/Metrics", json, null, null, 201, null, null);
+
+    RestClient meteredClient = new RestClient(RestClientConfig.newInstance().metrics(true));
+    try {
+      meteredClient.sendGetRequest(URI.create("http://localhost:1080/ResourceA/Metrics/1"), MediaType.APPLICATION_JSON_TYPE);
+      meteredClient.sendGetRequest(URI.create("http://localhost:1080/ResourceA/Metrics/2"), MediaType.APPLICATION_JSON_TYPE);
+      meteredClient.sendPostRequest(resourceA, URI.create("http://localhost:1080/ResourceA/Metrics"),
+          MediaType.APPLICATION_JSON_TYPE);
+      try {
+        meteredClient.sendGetRequest(URI.create("http://127.0.0.1:1/ResourceA"), MediaType.APPLICATION_JSON_TYPE);
+      } catch (ProcessingException e) {
+        LOGGER.debug("Expected connection failure", e);
+      }
+
+      MetricsSnapshot snapshot = meteredClient.getMetrics().snapshot();
+      MetricsSnapshot.HostSnapshot localhost = snapshot.getHost("localhost");
+      assertEquals(0, localhost.getInFlight());
+      assertEquals(1, localhost.getLatency("GET", 2).getCount());
+      assertEquals(1, localhost.getLatency("GET", 4).getCount());
+      assertEquals(1, localhost.getLatency("POST", 2).getCount());
+      assertEquals(json.length(), localhost.getBytesIn());
+      assertEquals(json.length(), localhost.getBytesOut());
+      assertTrue(localhost.getLatency("GET", 2).getP99() <= localhost.getLatency("GET", 2).getMax());
+      assertEquals(1, snapshot.getHost("127.0.0.1").getLatency("GET", 0).getCount());
+      assertEquals(0, snapshot.getHost("127.0.0.1").getInFlight());
+    } finally {
+      meteredClient.close();
+    }
+  }
+
+  @Test
+  public void testResponseCache() throws JsonProcessingException {
+
+    stubMockServerBehavior("GET", "/ResourceA/Cached/Fresh", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json", "Cache-Control", "max-age=60"));
+    stubMockServerBehavior("GET", "/ResourceA/Cached/ETag", null, ImmutableMap.of("If-None-Match", "\"v1\""), null,
+        304, null, ImmutableMap.of("ETag", "\"v1\""));
+    stubMockServerBehavior("GET", "/ResourceA/Cached/ETag", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json", "ETag", "\"v1\"", "Cache-Control", "no-cache"));
+
+    RestClient cachingClient = new RestClient(RestClientConfig.newInstance().responseCache(1024 * 1024));
+    try {
+      for (String path : new String[] {"Fresh", "Fresh", "ETag", "ETag"}) {
+        Response response = cachingClient.sendGetRequest(URI.create("http://localhost:1080/ResourceA/Cached/" + path),
+            MediaType.APPLICATION_JSON_TYPE);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(resourceA.getParam1(), response.readEntity(ResourceA.class).getParam1());
+      }
+
+      ResponseCacheStats stats = cachingClient.getResponseCache().getStats();
+      assertEquals(1, stats.getHits());
+      assertEquals(1, stats.getRevalidations());
+      assertEquals(2, stats.getMisses());
+      assertEquals(2 * json.length(), stats.getBytesSaved());
+      assertEquals(0.5, stats.getHitRatio(), 0.001);
+    } finally {
+      cachingClient.close();
+    }
+  }
+
+  @Test
+  public void testResponseCacheKeepsCallersApart() throws JsonProcessingException {
+
+    ResourceA other = new ResourceA();
+    other.setParam1("other");
+    String otherJson = new ObjectMapper().writeValueAsString(other);
+    stubMockServerBehavior("GET", "/ResourceA/Cached/Private", null, ImmutableMap.of("Authorization", "Bearer one"),
+        null, 200, json, ImmutableMap.of("Content-Type", "application/json", "Cache-Control", "max-age=60"));
+    stubMockServerBehavior("GET", "/ResourceA/Cached/Private", null, ImmutableMap.of("Authorization", "Bearer two"),
+        null, 200, otherJson, ImmutableMap.of("Content-Type", "application/json", "Cache-Control", "max-age=60"));
+    stubMockServerBehavior("GET", "/ResourceA/Cached/Varying", null, ImmutableMap.of("X-Tenant", "one"), null, 200,
+        json, ImmutableMap.of("Content-Type", "application/json", "Cache-Control", "max-age=60", "Vary", "X-Tenant"));
+    stubMockServerBehavior("GET", "/ResourceA/Cached/Varying", null, ImmutableMap.of("X-Tenant", "two"), null, 200,
+        otherJson,
+        ImmutableMap.of("Content-Type", "application/json", "Cache-Control", "max-age=60", "Vary", "X-Tenant"));
+
+    RestClient cachingClient = new RestClient(RestClientConfig.newInstance().responseCache(1024 * 1024));
+    try {
+      String[][] calls = {{"Private", "Authorization", "Bearer one"}, {"Private", "Authorization", "Bearer two"},
+          {"Private", "Authorization", "Bearer one"}, {"Varying", "X-Tenant", "one"}, {"Varying", "X-Tenant", "two"}};
+      String[] expected = {resourceA.getParam1(), "other", resourceA.getParam1(), resourceA.getParam1(), "other"};
+      for (int i = 0; i < calls.length; i++) {
+        Response response = cachingClient.send(
+            RestRequest.get(URI.create("http://localhost:1080/ResourceA/Cached/" + calls[i][0]))
+                .accept(MediaType.APPLICATION_JSON_TYPE).header(calls[i][1], calls[i][2]).build());
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(expected[i], response.readEntity(ResourceA.class).getParam1());
+      }
+      assertEquals(1, cachingClient.getResponseCache().getStats().getHits());
+    } finally {
+      cachingClient.close();
+    }
+  }
+
+  @Test
+  public void testBatch() throws JsonProcessingException {
+
+    stubMockServerBehavior("GET", "/ResourceA/Batch/1", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+    stubMockServerBehavior("PUT", "/ResourceA/Batch/2", json, null, null, 204, null, null);
+
+    List<RestRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      requests.add(RestRequest.get(URI.create("http://localhost:1080/ResourceA/Batch/1"))
+          .accept(MediaType.APPLICATION_JSON_TYPE).build());
+      requests.add(RestRequest.put(URI.create("http://localhost:1080/ResourceA/Batch/2"), resourceA,
+          MediaType.APPLICATION_JSON_TYPE).build());
+    }
+    requests.add(RestRequest.get(URI.create("http://localhost:1/ResourceA/Batch/1")).build());
+    requests.add(RestRequest.get(URI.create("http://localhost:1080/ResourceA/Batch/3")).build());
+
+    List<BatchResult> results = client.sendBatch(requests, 4);
+    assertEquals(requests.size(), results.size());
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i, results.get(i).getIndex());
+      assertTrue(results.get(i).isSuccess());
+    }
+    for (int i = 0; i < 20; i += 2) {
+      assertEquals(Response.Status.OK.getStatusCode(), results.get(i).getResponse().getStatus());
+      assertEquals(resourceA.getParam1(), results.get(i).getResponse().readEntity(ResourceA.class).getParam1());
+      assertEquals(Response.Status.NO_CONTENT.getStatusCode(), results.get(i + 1).getResponse().getStatus());
+    }
+    assertFalse(results.get(20).isSuccess());
+    assertTrue(results.get(20).getFailure() instanceof ProcessingException);
+    assertEquals(Response.Status.NOT_FOUND.getStatusCode(), results.get(21).getResponse().getStatus());
+
+    assertEquals(requests.size(), client.streamBatch(requests, 4).count());
+  }
+
+  @Test
+  public void testRetryAndHedge() throws JsonProcessingException {
+
+    for (String path : new String[] {"/ResourceA/Retry", "/ResourceA/RetryAsync"}) {
+      new MockServerClient("localhost", 1080)
+          .when(request().withMethod("GET").withPath(path), Times.exactly(2))
+          .respond(response().withStatusCode(503).withHeader(new Header("Retry-After", "0")));
+      stubMockServerBehavior("GET", path, null, null, null, 200, json,
+          ImmutableMap.of("Content-Type", "application/json"));
+    }
+    for (String path : new String[] {"/ResourceA/Hedge", "/ResourceA/HedgeAsync"}) {
+      new MockServerClient("localhost", 1080)
+          .when(request().withMethod("GET").withPath(path), Times.exactly(1))
+          .respond(response().withStatusCode(200).withBody(json).withDelay(new Delay(TimeUnit.SECONDS, 2)));
+      stubMockServerBehavior("GET", path, null, null, null, 200, json,
+          ImmutableMap.of("Content-Type", "application/json"));
+    }
+
+    RestClient retryingClient = new RestClient(RestClientConfig.newInstance()
+        .retryPolicy(RetryPolicy.newInstance().maxAttempts(3).initialBackoffMillis(1)));
+    RestClient hedgingClient = new RestClient(RestClientConfig.newInstance()
+        .hedgePolicy(HedgePolicy.newInstance().initialDelayMillis(50).maxHedgeRatio(1)));
+    try {
+      Response response = retryingClient.sendGetRequest(URI.create("http://localhost:1080/ResourceA/Retry"),
+          MediaType.APPLICATION_JSON_TYPE);
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      assertEquals(1, retryingClient.getRetryStats().getCalls());
+      assertEquals(2, retryingClient.getRetryStats().getRetries());
+
+      response = retryingClient.sendGetRequestAsync(URI.create("http://localhost:1080/ResourceA/RetryAsync"),
+          MediaType.APPLICATION_JSON_TYPE).join();
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      assertEquals(2, retryingClient.getRetryStats().getCalls());
+      assertEquals(4, retryingClient.getRetryStats().getRetries());
+
+      response = hedgingClient.sendGetRequest(URI.create("http://localhost:1080/ResourceA/Hedge"),
+          MediaType.APPLICATION_JSON_TYPE);
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      // MockServer may hold the hedge behind the delayed response, so only check that it was sent
+      assertEquals(1, hedgingClient.getRetryStats().getHedges());
+
+      response = hedgingClient.sendGetRequestAsync(URI.create("http://localhost:1080/ResourceA/HedgeAsync"),
+          MediaType.APPLICATION_JSON_TYPE).join();
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      assertEquals(2, hedgingClient.getRetryStats().getHedges());
+    } finally {
+      retryingClient.close();
+      hedgingClient.close();
+    }
+  }
+
+  @Test
+  public void testHostProtection() throws Exception {
+
+    stubMockServerBehavior("GET", "/ResourceA/Breaker", null, null, null, 503, null, null);
+    new MockServerClient("localhost", 1080)
+        .when(request().withMethod("GET").withPath("/ResourceA/Limited"))
+        .respond(response().withStatusCode(200).withBody(json).withDelay(new Delay(TimeUnit.MILLISECONDS, 500)));
+
+    RestClient protectedClient = new RestClient(RestClientConfig.newInstance()
+        .circuitBreaker(CircuitBreakerPolicy.newInstance().windowSize(2).minimumCalls(2).openMillis(60000))
+        .concurrencyLimit(ConcurrencyLimitPolicy.newInstance().initialLimit(1).minLimit(1).maxLimit(1)));
+    try {
+      URI breaker = URI.create("http://localhost:1080/ResourceA/Breaker");
+      assertEquals(503, protectedClient.sendGetRequest(breaker, MediaType.APPLICATION_JSON_TYPE).getStatus());
+      assertEquals(503, protectedClient.sendGetRequest(breaker, MediaType.APPLICATION_JSON_TYPE).getStatus());
+      try {
+        protectedClient.sendGetRequest(breaker, MediaType.APPLICATION_JSON_TYPE);
+        fail("Expected the circuit breaker to be open");
+      } catch (RejectedRequestException e) {
+        assertEquals(RejectedRequestException.Reason.CIRCUIT_OPEN, e.getReason());
+      }
+      assertEquals(HostProtectionStats.CircuitState.OPEN,
+          protectedClient.getHostProtectionStats().get(0).getCircuitState());
+    } finally {
+      protectedClient.close();
+    }
+
+    RestClient limitedClient = new RestClient(RestClientConfig.newInstance()
+        .concurrencyLimit(ConcurrencyLimitPolicy.newInstance().initialLimit(1).minLimit(1).maxLimit(1)));
+    try {
+      URI limited = URI.create("http://localhost:1080/ResourceA/Limited");
+      Future<Response> first = limitedClient.sendGetRequestAsync(limited, MediaType.APPLICATION_JSON_TYPE);
+      Future<Response> second = limitedClient.sendGetRequestAsync(limited, MediaType.APPLICATION_JSON_TYPE);
+      try {
+        second.get(5, TimeUnit.SECONDS);
+        fail("Expected the concurrency limit to reject the second call");
+      } catch (ExecutionException e) {
+        assertEquals(RejectedRequestException.Reason.CONCURRENCY_LIMIT,
+            ((RejectedRequestException) e.getCause()).getReason());
+      }
+      assertEquals(Response.Status.OK.getStatusCode(), first.get(5, TimeUnit.SECONDS).getStatus());
+      assertEquals(1, limitedClient.getHostProtectionStats().get(0).getRejected());
+    } finally {
+      limitedClient.close();
+    }
+
+    // an async call queued for a slot waits on its future, not on the calling thread
+    RestClient queueingClient = new RestClient(RestClientConfig.newInstance()
+        .concurrencyLimit(ConcurrencyLimitPolicy.newInstance().initialLimit(1).minLimit(1).maxLimit(1)
+            .maxQueueWaitMillis(5000)));
+    try {
+      URI limited = URI.create("http://localhost:1080/ResourceA/Limited");
+      Future<Response> first = queueingClient.sendGetRequestAsync(limited, MediaType.APPLICATION_JSON_TYPE);
+      long start = System.nanoTime();
+      Future<Response> second = queueingClient.sendGetRequestAsync(limited, MediaType.APPLICATION_JSON_TYPE);
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250);
+      assertFalse(second.isDone());
+      assertEquals(Response.Status.OK.getStatusCode(), first.get(5, TimeUnit.SECONDS).getStatus());
+      assertEquals(Response.Status.OK.getStatusCode(), second.get(5, TimeUnit.SECONDS).getStatus());
+      assertEquals(0, queueingClient.getHostProtectionStats().get(0).getRejected());
+      assertEquals(0, queueingClient.getHostProtectionStats().get(0).getInFlight());
+    } finally {
+      queueingClient.close();
+    }
+  }
+
+  @Test
+  public void testSharedClientWithPerRequestHeaders() throws Exception {
+
+    stubMockServerBehavior("GET", "/ResourceA/Shared", null, ImmutableMap.of("Tenant", "t1"), null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+
+    RestClient sharedClient = new RestClient();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Integer>> statuses = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        final String tenant = i % 2 == 0 ? "t1" : "t2";
+        statuses.add(executor.submit(() -> {
+          Response response = sharedClient.send(RestRequest.get(URI.create("http://localhost:1080/ResourceA/Shared"))
+              .accept(MediaType.APPLICATION_JSON_TYPE).header("Tenant", tenant).build());
+          assertEquals(response, sharedClient.getResponse());
+          int status = response.getStatus();
+          response.close();
+          try {
+            sharedClient.getResponse();
+            fail("Expected a closed response to be forgotten");
+          } catch (NullPointerException expected) {
+            // nothing received on this thread since
+          }
+          return status;
+        }));
+      }
+      for (int i = 0; i < statuses.size(); i++) {
+        int expected = i % 2 == 0 ? Response.Status.OK.getStatusCode() : Response.Status.NOT_FOUND.getStatusCode();
+        assertEquals(expected, statuses.get(i).get(10, TimeUnit.SECONDS).intValue());
+      }
+      assertEquals(0, sharedClient.getHeaders().size());
+    } finally {
+      executor.shutdown();
+      sharedClient.close();
+    }
+  }
+
+  @Test
+  public void testRequestCoalescing() throws Exception {
+
+    new MockServerClient("localhost", 1080)
+        .when(request().withMethod("GET").withPath("/ResourceA/Coalesced"))
+        .respond(response().withStatusCode(200).withBody(json).withHeader(new Header("Content-Type",
+            "application/json")).withDelay(new Delay(TimeUnit.MILLISECONDS, 500)));
+
+    RestClient coalescingClient = new RestClient(RestClientConfig.newInstance().requestCoalescing(true));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Response>> responses = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        responses.add(executor.submit(() -> coalescingClient.send(
+            RestRequest.get(URI.create("http://localhost:1080/ResourceA/Coalesced"))
+                .accept(MediaType.APPLICATION_JSON_TYPE).build())));
+      }
+      for (Future<Response> future : responses) {
+        Response response = future.get(10, TimeUnit.SECONDS);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+        assertEquals(json, response.readEntity(String.class));
+        response.close();
+      }
+      CoalescingStats stats = coalescingClient.getCoalescingStats();
+      assertEquals(8, stats.getSent() + stats.getCollapsed());
+      assertTrue(stats.getCollapsed() > 0);
+    } finally {
+      executor.shutdown();
+      coalescingClient.close();
+    }
+  }
+
+  @Test
+  public void testLoadBalancedTarget() throws JsonProcessingException {
+
+    stubMockServerBehavior("GET", "/ReplicaA/Items/1", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+    stubMockServerBehavior("GET", "/ReplicaB/Items/1", null, null, null, 500, null, null);
+
+    RestClient balancingClient = new RestClient();
+    LoadBalancedTarget target = balancingClient.loadBalancedTarget("items", Arrays.asList(
+        URI.create("http://localhost:1080/ReplicaA"), URI.create("http://localhost:1080/ReplicaB/")),
+        LoadBalancerPolicy.newInstance().consecutiveFailures(1));
+    try {
+      URI uri = balancingClient.buildUri(target.getBaseUri().toString(), "/Items/{id}", null, 1);
+      assertEquals(URI.create("lb://items/Items/1"), uri);
+      int failed = 0;
+      for (int i = 0; i < 20; i++) {
+        Response response = balancingClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE);
+        if (response.getStatus() == Response.Status.OK.getStatusCode()) {
+          assertEquals(json, response.readEntity(String.class));
+        } else {
+          failed++;
+        }
+      }
+
+      // a replica without latency samples is cheaper than one with, so the failing one is tried once and ejected
+      assertEquals(1, failed);
+      ReplicaStats healthy = target.getStats().get(0);
+      ReplicaStats failing = target.getStats().get(1);
+      assertEquals(19, healthy.getRequests());
+      assertFalse(healthy.isEjected());
+      assertTrue(healthy.getLatencyEwmaMillis() > 0);
+      assertEquals(1, failing.getRequests());
+      assertEquals(1, failing.getFailures());
+      assertTrue(failing.isEjected());
+      assertEquals(0, failing.getInFlight());
+
+      try {
+        balancingClient.sendGetRequest(URI.create("lb://unknown/Items/1"), MediaType.APPLICATION_JSON_TYPE);
+        fail("Expected an unknown target to be rejected");
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().contains("lb://unknown"));
+      }
+    } finally {
+      balancingClient.close();
+    }
+  }
+
+  @Test
+  public void testCredentialProvider() throws Exception {
+
+    stubMockServerBehavior("GET", "/Credentials", null, ImmutableMap.of("Authorization", "Bearer token-1"), null,
+        401, null, null);
+    stubMockServerBehavior("GET", "/Credentials", null, ImmutableMap.of("Authorization", "Bearer token-2"), null,
+        200, json, ImmutableMap.of("Content-Type", "application/json"));
+    stubMockServerBehavior("GET", "/Credentials", null, ImmutableMap.of("Authorization", "Bearer token-3"), null,
+        200, json, ImmutableMap.of("Content-Type", "application/json"));
+
+    AtomicInteger fetches = new AtomicInteger();
+    RestClient credentialClient = new RestClient(RestClientConfig.newInstance()
+        .credentialProvider(() -> Credential.bearer("token-" + fetches.incrementAndGet(),
+            System.currentTimeMillis() + 1500))
+        .credentialRefreshAheadMillis(500));
+    try {
+      URI uri = URI.create("http://localhost:1080/Credentials");
+
+      // token-1 is rejected, so the call is sent once more with token-2
+      Response response = credentialClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE);
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+      assertEquals(json, response.readEntity(String.class));
+      assertEquals(2, fetches.get());
+
+      // token-2 is replaced in the background 500 ms ahead of its expiry
+      Thread.sleep(1300);
+      assertEquals(3, fetches.get());
+      response = credentialClient.sendAsync(RestRequest.get(uri).accept(MediaType.APPLICATION_JSON_TYPE).build())
+          .get(5, TimeUnit.SECONDS);
+      assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+
+      // an explicit Authorization header is sent as is
+      response = credentialClient.send(RestRequest.get(uri).accept(MediaType.APPLICATION_JSON_TYPE)
+          .header("Authorization", "Bearer token-1").build());
+      assertEquals(Response.Status.UNAUTHORIZED.getStatusCode(), response.getStatus());
+      assertEquals(3, fetches.get());
+    } finally {
+      credentialClient.close();
+    }
+
+    // a provider that throws an Error fails the waiting call instead of leaving it hanging
+    AtomicInteger attempts = new AtomicInteger();
+    RestClient failingClient = new RestClient(RestClientConfig.newInstance()
+        .credentialProvider(() -> {
+          if (attempts.incrementAndGet() == 1) {
+            throw new AssertionError("provider broke");
+          }
+          return Credential.bearer("token-2", Credential.NEVER_EXPIRES);
+        }));
+    try {
+      URI uri = URI.create("http://localhost:1080/Credentials");
+      try {
+        failingClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE);
+        fail("Expected the credential fetch to fail");
+      } catch (ProcessingException e) {
+        assertTrue(e.getCause() instanceof AssertionError);
+      }
+      assertEquals(Response.Status.OK.getStatusCode(),
+          failingClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE).getStatus());
+    } finally {
+      failingClient.close();
+    }
+
+    // an async call waiting for the first credential returns at once, without blocking the caller
+    RestClient slowClient = new RestClient(RestClientConfig.newInstance()
+        .credentialProvider(() -> {
+          Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
+          return Credential.bearer("token-2", Credential.NEVER_EXPIRES);
+        }));
+    try {
+      URI uri = URI.create("http://localhost:1080/Credentials");
+      long start = System.nanoTime();
+      Future<Response> pending = slowClient.sendAsync(
+          RestRequest.get(uri).accept(MediaType.APPLICATION_JSON_TYPE).build());
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250);
+      assertFalse(pending.isDone());
+      assertEquals(Response.Status.OK.getStatusCode(), pending.get(5, TimeUnit.SECONDS).getStatus());
+    } finally {
+      slowClient.close();
+    }
+  }
+
+  @Test
+  public void testRateLimit() throws Exception {
+
+    stubMockServerBehavior("GET", "/RateLimited/1", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+    stubMockServerBehavior("GET", "/Throttled", null, null, null, 429, null, ImmutableMap.of("Retry-After", "1"));
+
+    RestClient rejectingClient = new RestClient(RestClientConfig.newInstance().rateLimit("localhost:1080",
+        "/RateLimited/{id}", RateLimitPolicy.newInstance().permitsPerSecond(1).burst(2)
+            .mode(RateLimitPolicy.Mode.REJECT)));
+    try {
+      URI uri = rejectingClient.buildUri("http://localhost:1080", "/RateLimited/{id}", null, 1);
+      for (int i = 0; i < 2; i++) {
+        assertEquals(Response.Status.OK.getStatusCode(),
+            rejectingClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE).getStatus());
+      }
+      try {
+        rejectingClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE);
+        fail("Expected the call over the burst to be rejected");
+      } catch (RejectedRequestException e) {
+        assertEquals(RejectedRequestException.Reason.RATE_LIMITED, e.getReason());
+        assertEquals("localhost:1080/RateLimited/{id}", e.getHost());
+      }
+      RateLimitStats stats = rejectingClient.getRateLimitStats().get(0);
+      assertEquals(2, stats.getGranted());
+      assertEquals(1, stats.getRejected());
+    } finally {
+      rejectingClient.close();
+    }
+
+    RestClient waitingClient = new RestClient(RestClientConfig.newInstance().rateLimit("localhost",
+        RateLimitPolicy.newInstance().permitsPerSecond(10).burst(1).maxWaitMillis(2000)));
+    try {
+      URI uri = URI.create("http://localhost:1080/RateLimited/1");
+      long start = System.nanoTime();
+      for (int i = 0; i < 5; i++) {
+        assertEquals(Response.Status.OK.getStatusCode(),
+            waitingClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE).getStatus());
+      }
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 350);
+
+      // the 429 pauses the host for its Retry-After, which an async call waits out without blocking
+      assertEquals(429, waitingClient.sendGetRequest(URI.create("http://localhost:1080/Throttled"),
+          MediaType.APPLICATION_JSON_TYPE).getStatus());
+      start = System.nanoTime();
+      Future<Response> paused = waitingClient.sendAsync(RestRequest.get(uri)
+          .accept(MediaType.APPLICATION_JSON_TYPE).build());
+      assertFalse(paused.isDone());
+      assertEquals(Response.Status.OK.getStatusCode(), paused.get(5, TimeUnit.SECONDS).getStatus());
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 800);
+      RateLimitStats stats = waitingClient.getRateLimitStats().get(0);
+      assertEquals(1, stats.getThrottled());
+      assertEquals(7, stats.getGranted());
+
+      // a call cancelled while it waits for its permit gives the permit back
+      Future<Response> cancelled = waitingClient.sendAsync(RestRequest.get(uri)
+          .accept(MediaType.APPLICATION_JSON_TYPE).build());
+      assertTrue(cancelled.cancel(true));
+      assertEquals(7, waitingClient.getRateLimitStats().get(0).getGranted());
+    } finally {
+      waitingClient.close();
+    }
+
+    // with an async executor the wait for a permit does not hold one of its threads
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    RestClient executorClient = new RestClient(RestClientConfig.newInstance().asyncExecutor(executor)
+        .rateLimit("localhost", RateLimitPolicy.newInstance().permitsPerSecond(1).burst(1).maxWaitMillis(2000)));
+    try {
+      URI uri = URI.create("http://localhost:1080/RateLimited/1");
+      assertEquals(Response.Status.OK.getStatusCode(),
+          executorClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE).getStatus());
+      Future<Response> delayed = executorClient.sendAsync(RestRequest.get(uri)
+          .accept(MediaType.APPLICATION_JSON_TYPE).build());
+      assertEquals(Integer.valueOf(1), executor.submit(() -> 1).get(500, TimeUnit.MILLISECONDS));
+      assertFalse(delayed.isDone());
+      assertEquals(Response.Status.OK.getStatusCode(), delayed.get(5, TimeUnit.SECONDS).getStatus());
+    } finally {
+      executorClient.close();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testRequestLogging() throws Exception {
+
+    stubMockServerBehavior("POST", "/Logged", json, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+    stubMockServerBehavior("GET", "/Logged", null, null, null, 200, json,
+        ImmutableMap.of("Content-Type", "application/json"));
+    stubMockServerBehavior("GET", "/LoggedMissing", null, null, null, 404, null, null);
+    URI uri = URI.create("http://localhost:1080/Logged");
+
+    LinkedBlockingQueue<RequestLogRecord> records = new LinkedBlockingQueue<>();
+    RestClient loggingClient = new RestClient(RestClientConfig.newInstance().requestLogging(
+        RequestLoggingPolicy.newInstance().maxBodyBytes(10).redactHeaders("X-Secret").sink(records::add)));
+    try {
+      loggingClient.addAuthHeader("assertion");
+      loggingClient.addHeader("X-Secret", "secret");
+      Response response = loggingClient.sendPostRequest(json, uri, MediaType.APPLICATION_JSON_TYPE);
+      assertEquals(json, response.readEntity(String.class));
+
+      RequestLogRecord record = records.poll(5, TimeUnit.SECONDS);
+      assertEquals("POST", record.getMethod());
+      assertEquals(uri, record.getUri());
+      assertEquals(200, record.getStatus());
+      assertEquals(Arrays.asList("***"), record.getRequestHeaders().get("Authorization"));
+      assertEquals(Arrays.asList("***"), record.getRequestHeaders().get("X-Secret"));
+      String truncated = json.substring(0, 10) + "... (" + json.length() + " bytes)";
+      assertEquals(truncated, record.getRequestBody());
+      assertEquals(truncated, record.getResponseBody());
+      assertFalse(record.toString().contains("assertion"));
+    } finally {
+      loggingClient.close();
+    }
+
+    RestClient errorLoggingClient = new RestClient(RestClientConfig.newInstance().requestLogging(
+        RequestLoggingPolicy.newInstance().sampleRate(0).logErrors(true).sink(records::add)));
+    try {
+      assertEquals(200, errorLoggingClient.sendGetRequest(uri, MediaType.APPLICATION_JSON_TYPE).getStatus());
+      assertEquals(404, errorLoggingClient.sendGetRequest(URI.create("http://localhost:1080/LoggedMissing"),
+          MediaType.APPLICATION_JSON_TYPE).getStatus());
+      try {
+        errorLoggingClient.sendGetRequest(URI.create("http://localhost:1/Logged"), MediaType.APPLICATION_JSON_TYPE);
+        fail("Expected the connection to be refused");
+      } catch (ProcessingException e) {
+        // logged below
+      }
+
+      RequestLogRecord missing = records.poll(5, TimeUnit.SECONDS);
+      assertEquals(404, missing.getStatus());
+      RequestLogRecord failed = records.poll(5, TimeUnit.SECONDS);
+      assertEquals(0, failed.getStatus());
+      assertTrue(failed.getFailure() instanceof ProcessingException);
+      assertEquals(null, records.poll(300, TimeUnit.MILLISECONDS));
+      assertEquals(2, errorLoggingClient.getRequestLogStats().getLogged());
+      assertEquals(0, errorLoggingClient.getRequestLogStats().getDropped());
+    } finally {
+      errorLoggingClient.close();
+    }
+  }
+
   @Test
   public void testBuildUri() throws URISyntaxException {
     Map<String, String> queryParams = ImmutableMap.of(
@@ -306,4 +1350,20 @@ public class SecureRestClientTest {
     assertEquals("https://localhost:443/base1/account/123/user/456?222&p1=v1&p2=v2", uri.toString());
   }
 
+  @Test
+  public void testCompiledUriTemplate() {
+    CompiledUriTemplate template = CompiledUriTemplate.compile("https://localhost:443/base1/account/{acId}/user/{uId}");
+    assertTrue(template == CompiledUriTemplate.compile("https://localhost:443/base1/account/{acId}/user/{uId}"));
+    assertEquals("https://localhost:443/base1/account/a%2Fb/user/c%20d?q=x+y",
+        template.expand(ImmutableMap.of("q", "x y"), "a/b", "c d").toString());
+    assertEquals("https://localhost:443/base1/account/42",
+        CompiledUriTemplate.compile("https://localhost:443/base1/account/{acId: [0-9]+}").expand(null, 42).toString());
+    try {
+      template.expand(null, "123");
+      fail("Expected the missing uId to be reported");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("uId"));
+    }
+  }
+
 }
@@ -9,6 +9,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class TestUtils {
@@ -39,6 +41,19 @@ public class TestUtils {
       return byteStream.toByteArray();
   }
 
+  public static byte[] deflate(byte[] input, boolean nowrap) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+    ByteArrayOutputStream byteStream = new ByteArrayOutputStream(input.length);
+    try (DeflaterOutputStream deflateStream = new DeflaterOutputStream(byteStream, deflater)) {
+      deflateStream.write(input);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      deflater.end();
+    }
+    return byteStream.toByteArray();
+  }
+
   public static List<Header> convertHeaders(Map<String, String> headers) {
     List<Header> resultHeaders = new ArrayList<>();
     if (headers != null) {